@@ -0,0 +1,252 @@
+package ch.ethz.infsec.benchmarks;
+
+import ch.ethz.infsec.monitor.CustomSignature;
+import ch.ethz.infsec.monitor.DataType;
+import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.trace.formatter.BinaryTraceFormatter;
+import ch.ethz.infsec.trace.formatter.TraceFormatter;
+import ch.ethz.infsec.trace.parser.ParseException;
+import ch.ethz.infsec.trace.parser.RawLogReader;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Derives benchmark inputs from the recorded IC logs in {@code test-inputs}.
+ * <p>
+ * Each raw log is a Python literal holding an array of Elasticsearch documents. Every document becomes one time-point
+ * with a {@code log} fact, whose arguments follow {@code predicates.sig}, and a {@code syslog} fact with integer
+ * arguments, such that typed parsing is exercised as well.
+ */
+public final class BenchmarkInputs {
+    public static final String INPUTS_PROPERTY = "benchmark.inputs";
+
+    public static final CustomSignature SIGNATURE;
+
+    static {
+        Map<String, List<DataType>> events = new LinkedHashMap<>();
+        events.put("log", Arrays.asList(DataType.STRING, DataType.STRING, DataType.STRING, DataType.STRING,
+                DataType.STRING, DataType.STRING));
+        events.put("syslog", Arrays.asList(DataType.STRING, DataType.INTEGRAL, DataType.INTEGRAL));
+        SIGNATURE = new CustomSignature(events);
+    }
+
+    private static final String[] LEVELS = {"EMERG", "ALERT", "CRIT", "ERROR", "WARN", "NOTICE", "INFO", "DEBUG"};
+
+    private static final String PRINCIPAL_ALPHABET = "abcdefghijklmnopqrstuvwxyz234567";
+
+    private BenchmarkInputs() {
+    }
+
+    /**
+     * Returns a random principal ID in the textual form of node and subnet IDs.
+     */
+    public static String principalId(Random random) {
+        StringBuilder builder = new StringBuilder(63);
+        for (int i = 0; i < 53; ++i) {
+            if (i > 0 && i % 5 == 0) {
+                builder.append('-');
+            }
+            builder.append(PRINCIPAL_ALPHABET.charAt(random.nextInt(PRINCIPAL_ALPHABET.length())));
+        }
+        return builder.append("-qae").toString();
+    }
+
+    /**
+     * Returns a random SHA-256 hash as 64 hexadecimal digits.
+     */
+    public static String hash(Random random) {
+        StringBuilder builder = new StringBuilder(64);
+        for (int i = 0; i < 64; ++i) {
+            builder.append(Character.forDigit(random.nextInt(16), 16));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Resolves a path relative to the {@code test-inputs} directory. The directory is taken from the system property
+     * {@value #INPUTS_PROPERTY} or searched for in the working directory and its parents.
+     */
+    public static Path resolve(String input) throws IOException {
+        String configured = System.getProperty(INPUTS_PROPERTY);
+        if (configured != null) {
+            return Paths.get(configured).resolve(input);
+        }
+        for (Path dir = Paths.get("").toAbsolutePath(); dir != null; dir = dir.getParent()) {
+            Path candidate = dir.resolve("test-inputs");
+            if (Files.isDirectory(candidate)) {
+                return candidate.resolve(input);
+            }
+        }
+        throw new IOException("Could not find test-inputs, set -D" + INPUTS_PROPERTY);
+    }
+
+    /**
+     * Reads a raw log and returns its documents, each converted to a single line of JSON.
+     */
+    public static List<String> readDocuments(String input) throws IOException {
+        List<String> documents = new ArrayList<>();
+        try (RawLogReader reader = new RawLogReader(Files.newBufferedReader(resolve(input), StandardCharsets.UTF_8))) {
+            String document;
+            while ((document = reader.nextDocument()) != null) {
+                documents.add(document);
+            }
+        } catch (ParseException e) {
+            throw new IOException(e);
+        }
+        return documents;
+    }
+
+    /**
+     * Derives the facts of all documents, terminating each document's time-point.
+     */
+    public static List<Fact> deriveFacts(List<String> documents) throws IOException {
+        JsonFactory factory = new JsonFactory();
+        List<Fact> facts = new ArrayList<>();
+        long timepoint = 0;
+        for (String document : documents) {
+            Map<String, String> fields = new HashMap<>();
+            try (JsonParser parser = factory.createParser(document)) {
+                collectFields(parser, "", fields);
+            }
+            long timestamp = Instant.parse(fields.get("_source.@timestamp")).toEpochMilli();
+            String host = fields.getOrDefault("_source.host.name", "");
+            int priority = Integer.parseInt(fields.getOrDefault("_source.syslog.priority", "6"));
+            long facility = Long.parseLong(fields.getOrDefault("_source.syslog.facility", "0"));
+
+            Fact log = Fact.make("log", timestamp, host, host, fields.getOrDefault("_index", ""),
+                    fields.getOrDefault("_source.syslog.identifier", ""), LEVELS[priority & 7],
+                    fields.getOrDefault("_source.message", "").replace('\n', ' '));
+            Fact syslog = Fact.make("syslog", timestamp, host, (long) priority, facility);
+            Fact terminator = Fact.terminator(timestamp);
+            for (Fact fact : Arrays.asList(log, syslog, terminator)) {
+                fact.setTimepoint(timepoint);
+                facts.add(fact);
+            }
+            ++timepoint;
+        }
+        return facts;
+    }
+
+    private static void collectFields(JsonParser parser, String path, Map<String, String> fields) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                collectFields(parser, path.isEmpty() ? name : path + "." + name, fields);
+            }
+        } else if (token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+        } else if (token != null && token.isScalarValue()) {
+            fields.put(path, parser.getText());
+        }
+    }
+
+    /**
+     * Formats the facts in the binary trace format and returns the output in chunks of at most {@code chunkSize}
+     * ISO-8859-1 characters, i.e., bytes, as the replayer reads binary input.
+     */
+    public static List<String> formatBinary(List<Fact> facts, int chunkSize) throws IOException {
+        StringBuilder output = new StringBuilder();
+        BinaryTraceFormatter formatter = new BinaryTraceFormatter();
+        for (Fact fact : facts) {
+            formatter.printFact(output::append, fact);
+        }
+        formatter.endOfOutput(output::append);
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < output.length(); i += chunkSize) {
+            chunks.add(output.substring(i, Math.min(output.length(), i + chunkSize)));
+        }
+        return chunks;
+    }
+
+    /**
+     * Formats the facts and returns the output as separate lines without line terminators.
+     */
+    public static List<String> format(TraceFormatter formatter, List<Fact> facts) throws IOException {
+        StringBuilder output = new StringBuilder();
+        for (Fact fact : facts) {
+            formatter.printFact(output::append, fact);
+        }
+        List<String> lines = new ArrayList<>();
+        for (String line : output.toString().split("\n")) {
+            if (!line.isEmpty()) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Joins the lines with line feeds and returns their UTF-8 encoding in chunks of at most {@code chunkSize} bytes, as
+     * read from a file.
+     */
+    public static List<byte[]> toChunks(List<String> lines, int chunkSize) {
+        StringBuilder output = new StringBuilder();
+        for (String line : lines) {
+            output.append(line).append('\n');
+        }
+        byte[] bytes = output.toString().getBytes(StandardCharsets.UTF_8);
+        List<byte[]> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            chunks.add(Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + chunkSize)));
+        }
+        return chunks;
+    }
+
+    /**
+     * Replaces commas and equality signs in string arguments, which cannot be escaped in the CSV and DejaVu formats.
+     */
+    public static List<Fact> withoutDelimiters(List<Fact> facts) {
+        List<Fact> result = new ArrayList<>(facts.size());
+        for (Fact fact : facts) {
+            if (fact.isTerminator()) {
+                result.add(fact);
+                continue;
+            }
+            List<Object> arguments = new ArrayList<>(fact.getArity());
+            for (Object argument : fact.getArguments()) {
+                arguments.add(argument instanceof String
+                        ? ((String) argument).replace(',', ' ').replace('=', ' ')
+                        : argument);
+            }
+            Fact copy = Fact.make(fact.getName(), fact.getTimestamp(), arguments);
+            copy.setTimepoint(fact.getTimepoint());
+            result.add(copy);
+        }
+        return result;
+    }
+
+    /**
+     * Converts the {@code syslog} facts into verdicts, as if every such tuple violated a policy.
+     */
+    public static List<Fact> deriveVerdicts(List<Fact> facts) {
+        List<Fact> verdicts = new ArrayList<>();
+        for (Fact fact : facts) {
+            if (fact.isTerminator() || fact.getName().equals("syslog")) {
+                Fact verdict = fact.isTerminator()
+                        ? Fact.terminator(fact.getTimestamp())
+                        : Fact.make("", fact.getTimestamp(), fact.getArguments());
+                verdict.setTimepoint(fact.getTimepoint());
+                verdicts.add(verdict);
+            }
+        }
+        return verdicts;
+    }
+
+    public static long countBytes(List<String> lines) {
+        long bytes = 0;
+        for (String line : lines) {
+            bytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+        return bytes;
+    }
+}
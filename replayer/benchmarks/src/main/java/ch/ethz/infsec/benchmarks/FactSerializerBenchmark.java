@@ -0,0 +1,137 @@
+package ch.ethz.infsec.benchmarks;
+
+import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization and deserialization of facts with {@link FactSerializer}, for single facts and whole time-points.
+ * <p>
+ * The argument mix resembles IC events: {@code strings} has principal IDs only, {@code ic} mostly principal IDs and
+ * hashes plus some integers and floats, and {@code numeric} only integers and floats. The encoded size per fact is
+ * printed during setup. Run with the GC profiler to obtain the allocations per fact:
+ * <pre>
+ *     java -jar benchmarks/target/benchmarks.jar FactSerializerBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FactSerializerBenchmark {
+    static final int TIMEPOINT_SIZE = 100;
+
+    @Param({"strings", "ic", "numeric"})
+    public String mix;
+
+    private Kryo kryo;
+    private Fact singleFact;
+    private List<Fact> timepoint;
+    private Output output;
+    private Input input;
+    private byte[] singleBytes;
+    private int singleLength;
+    private byte[] timepointBytes;
+    private int timepointLength;
+
+    private Fact makeFact(Random random, long timestamp) {
+        switch (mix) {
+            case "strings":
+                return Fact.make("p2p__node_added", timestamp, BenchmarkInputs.principalId(random),
+                        BenchmarkInputs.principalId(random), BenchmarkInputs.principalId(random));
+            case "ic":
+                if (random.nextInt(4) == 0) {
+                    return Fact.make("log1", timestamp, BenchmarkInputs.principalId(random),
+                            random.nextDouble() * 1000.0);
+                }
+                return Fact.make("finalized", timestamp, BenchmarkInputs.principalId(random),
+                        BenchmarkInputs.principalId(random), (long) random.nextInt(1_000_000),
+                        BenchmarkInputs.hash(random), BenchmarkInputs.hash(random).substring(0, 40));
+            case "numeric":
+                return Fact.make("stats", timestamp, random.nextLong(), (long) random.nextInt(1000),
+                        random.nextDouble());
+            default:
+                throw new IllegalArgumentException(mix);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        kryo = new Kryo();
+        kryo.register(Fact.class, new FactSerializer());
+        output = new Output(1 << 16, -1);
+        input = new Input();
+
+        Random random = new Random(314159);
+        long timestamp = 1662473440115L;
+        singleFact = makeFact(random, timestamp);
+        singleFact.setTimepoint(42);
+        timepoint = new ArrayList<>(TIMEPOINT_SIZE + 1);
+        for (int i = 0; i < TIMEPOINT_SIZE; ++i) {
+            Fact fact = makeFact(random, timestamp);
+            fact.setTimepoint(43);
+            timepoint.add(fact);
+        }
+        Fact terminator = Fact.terminator(timestamp);
+        terminator.setTimepoint(43);
+        timepoint.add(terminator);
+
+        output.clear();
+        kryo.writeObject(output, singleFact);
+        singleBytes = output.toBytes();
+        singleLength = singleBytes.length;
+
+        output.clear();
+        for (Fact fact : timepoint) {
+            kryo.writeObject(output, fact);
+        }
+        timepointBytes = output.toBytes();
+        timepointLength = timepointBytes.length;
+
+        System.out.printf("%n%s: %d bytes/fact (single), %.1f bytes/fact (time-point of %d)%n",
+                mix, singleLength, (double) timepointLength / TIMEPOINT_SIZE, TIMEPOINT_SIZE);
+    }
+
+    @Benchmark
+    public int serializeFact() {
+        output.clear();
+        kryo.writeObject(output, singleFact);
+        return output.position();
+    }
+
+    @Benchmark
+    public Fact deserializeFact() {
+        input.setBuffer(singleBytes, 0, singleLength);
+        return kryo.readObject(input, Fact.class);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TIMEPOINT_SIZE)
+    public int serializeTimepoint() {
+        output.clear();
+        for (Fact fact : timepoint) {
+            kryo.writeObject(output, fact);
+        }
+        return output.position();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TIMEPOINT_SIZE)
+    public void deserializeTimepoint(Blackhole blackhole) {
+        input.setBuffer(timepointBytes, 0, timepointLength);
+        for (int i = 0; i <= TIMEPOINT_SIZE; ++i) {
+            blackhole.consume(kryo.readObject(input, Fact.class));
+        }
+    }
+}
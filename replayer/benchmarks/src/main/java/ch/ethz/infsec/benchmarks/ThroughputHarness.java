@@ -0,0 +1,357 @@
+package ch.ethz.infsec.benchmarks;
+
+import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.trace.formatter.Crv2014CsvFormatter;
+import ch.ethz.infsec.trace.formatter.DejavuLinearizingTraceFormatter;
+import ch.ethz.infsec.trace.formatter.MonpolyTraceFormatter;
+import ch.ethz.infsec.trace.formatter.TraceFormatter;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * End-to-end throughput regression harness for the replayer.
+ * <p>
+ * For every supported combination of input ({@code -i}) and output ({@code -f}) format, the harness runs the replayer
+ * in a separate JVM with {@code -a 0 -o null --summary} on a trace derived from {@code test-inputs}, and records the
+ * event rate, the index rate, and the peak resident set size. The results are written to a JSON file. If a baseline
+ * (a results file of an earlier run) is given, every combination is compared against it, and the harness exits with
+ * status 1 if a rate dropped, or the peak RSS grew, by more than the tolerance.
+ * <pre>
+ *     java -cp benchmarks/target/benchmarks.jar ch.ethz.infsec.benchmarks.ThroughputHarness \
+ *         --results throughput.json --baseline baseline.json --tolerance 0.1
+ * </pre>
+ * The trace contains two events per time-point, which the non-linearizing DejaVu formatter rejects. Therefore,
+ * {@code -f dejavu} is only combined with the DejaVu input formats.
+ */
+public final class ThroughputHarness {
+    static final List<String> INPUT_FORMATS = Arrays.asList("csv", "monpoly", "dejavu", "dejavu-timed");
+    static final List<String> OUTPUT_FORMATS = Arrays.asList(
+            "csv", "csv-linear", "monpoly", "monpoly-linear", "dejavu", "dejavu-linear");
+
+    private static final String REPLAYER_CLASS = "ch.ethz.infsec.replayer.Replayer";
+
+    private String input = "production/mainnet-3h-filtered-top1000.raw.log";
+    private int repeat = 200;
+    private int runs = 3;
+    private double tolerance = 0.1;
+    private Path resultsPath = Paths.get("throughput.json");
+    private Path baselinePath = null;
+    private final List<String> jvmOptions = new ArrayList<>();
+
+    static final class Result {
+        final String inputFormat;
+        final String outputFormat;
+        long events;
+        long indices;
+        double eventsPerSecond;
+        double indicesPerSecond;
+        long peakRssKb = -1;
+
+        Result(String inputFormat, String outputFormat) {
+            this.inputFormat = inputFormat;
+            this.outputFormat = outputFormat;
+        }
+
+        String key() {
+            return inputFormat + " -> " + outputFormat;
+        }
+    }
+
+    private ThroughputHarness() {
+    }
+
+    static boolean isSupported(String inputFormat, String outputFormat) {
+        return !outputFormat.equals("dejavu") || inputFormat.startsWith("dejavu");
+    }
+
+    private void writeInput(String format, List<Fact> facts, Path path) throws IOException {
+        TraceFormatter formatter;
+        switch (format) {
+            case "csv":
+                formatter = new Crv2014CsvFormatter();
+                facts = BenchmarkInputs.withoutDelimiters(facts);
+                break;
+            case "monpoly":
+                formatter = new MonpolyTraceFormatter(false);
+                break;
+            case "dejavu":
+            case "dejavu-timed":
+                formatter = new DejavuLinearizingTraceFormatter();
+                facts = BenchmarkInputs.withoutDelimiters(facts);
+                break;
+            default:
+                throw new IllegalArgumentException(format);
+        }
+        boolean timed = format.equals("dejavu-timed");
+
+        long firstTimestamp = facts.get(0).getTimestamp();
+        long timestampSpan = facts.get(facts.size() - 1).getTimestamp() - firstTimestamp + 1;
+        long timepointSpan = facts.get(facts.size() - 1).getTimepoint() + 1;
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < repeat; ++i) {
+                for (Fact fact : facts) {
+                    long timestamp = fact.getTimestamp() + i * timestampSpan;
+                    Fact shifted = fact.isTerminator()
+                            ? Fact.terminator(timestamp)
+                            : Fact.make(fact.getName(), timestamp, fact.getArguments());
+                    shifted.setTimepoint(fact.getTimepoint() + i * timepointSpan);
+                    formatter.printFact(line::append, shifted);
+                    if (line.length() > 0) {
+                        if (timed) {
+                            line.setLength(line.length() - 1);
+                            line.append(',').append(timestamp).append('\n');
+                        }
+                        writer.write(line.toString());
+                        line.setLength(0);
+                    }
+                }
+            }
+        }
+    }
+
+    private Result runReplayer(String inputFormat, String outputFormat, Path inputPath)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), REPLAYER_CLASS,
+                "-a", "0", "-i", inputFormat, "-f", outputFormat, "-o", "null", "--summary",
+                inputPath.toString()));
+        Process process = new ProcessBuilder(command).redirectOutput(ProcessBuilder.Redirect.INHERIT).start();
+
+        String summary = null;
+        StringBuilder errors = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("{")) {
+                    summary = line;
+                } else {
+                    errors.append(line).append('\n');
+                }
+            }
+        }
+        int status = process.waitFor();
+        if (status != 0 || summary == null) {
+            throw new IOException("Replayer failed for -i " + inputFormat + " -f " + outputFormat +
+                    " (exit status " + status + "):\n" + errors);
+        }
+
+        Result result = new Result(inputFormat, outputFormat);
+        try (JsonParser parser = new JsonFactory().createParser(summary)) {
+            readFields(parser, result);
+        }
+        return result;
+    }
+
+    private static void readFields(JsonParser parser, Result result) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT && parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected an object");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "events":
+                    result.events = parser.getLongValue();
+                    break;
+                case "indices":
+                    result.indices = parser.getLongValue();
+                    break;
+                case "events_per_second":
+                    result.eventsPerSecond = parser.getDoubleValue();
+                    break;
+                case "indices_per_second":
+                    result.indicesPerSecond = parser.getDoubleValue();
+                    break;
+                case "peak_rss_kb":
+                    result.peakRssKb = parser.getLongValue();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    static Map<String, Result> readResults(Path path) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        try (JsonParser parser = new JsonFactory().createParser(path.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Invalid results file: " + path);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (!name.equals("results") || token != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    Map<String, String> fields = new HashMap<>();
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.getCurrentName();
+                        parser.nextToken();
+                        fields.put(field, parser.getText());
+                        parser.skipChildren();
+                    }
+                    Result result = new Result(fields.get("input_format"), fields.get("output_format"));
+                    result.eventsPerSecond = Double.parseDouble(fields.getOrDefault("events_per_second", "0"));
+                    result.indicesPerSecond = Double.parseDouble(fields.getOrDefault("indices_per_second", "0"));
+                    result.peakRssKb = Long.parseLong(fields.getOrDefault("peak_rss_kb", "-1"));
+                    results.put(result.key(), result);
+                }
+            }
+        }
+        return results;
+    }
+
+    private void writeResults(List<Result> results) throws IOException {
+        try (JsonGenerator generator = new JsonFactory().createGenerator(resultsPath.toFile(), JsonEncoding.UTF8)) {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            generator.writeStringField("input", input);
+            generator.writeNumberField("repeat", repeat);
+            generator.writeNumberField("runs", runs);
+            generator.writeArrayFieldStart("results");
+            for (Result result : results) {
+                generator.writeStartObject();
+                generator.writeStringField("input_format", result.inputFormat);
+                generator.writeStringField("output_format", result.outputFormat);
+                generator.writeNumberField("events", result.events);
+                generator.writeNumberField("indices", result.indices);
+                generator.writeNumberField("events_per_second", result.eventsPerSecond);
+                generator.writeNumberField("indices_per_second", result.indicesPerSecond);
+                generator.writeNumberField("peak_rss_kb", result.peakRssKb);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Compares the results against the baseline and returns a description of every regression.
+     */
+    static List<String> findRegressions(List<Result> results, Map<String, Result> baseline, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (Result result : results) {
+            Result expected = baseline.get(result.key());
+            if (expected == null) {
+                continue;
+            }
+            if (result.eventsPerSecond < expected.eventsPerSecond * (1.0 - tolerance)) {
+                regressions.add(String.format(Locale.ROOT, "%s: %.0f events/s (baseline %.0f)",
+                        result.key(), result.eventsPerSecond, expected.eventsPerSecond));
+            }
+            if (result.indicesPerSecond < expected.indicesPerSecond * (1.0 - tolerance)) {
+                regressions.add(String.format(Locale.ROOT, "%s: %.0f indices/s (baseline %.0f)",
+                        result.key(), result.indicesPerSecond, expected.indicesPerSecond));
+            }
+            if (result.peakRssKb >= 0 && expected.peakRssKb >= 0 &&
+                    result.peakRssKb > expected.peakRssKb * (1.0 + tolerance)) {
+                regressions.add(String.format(Locale.ROOT, "%s: peak RSS %d kB (baseline %d kB)",
+                        result.key(), result.peakRssKb, expected.peakRssKb));
+            }
+        }
+        return regressions;
+    }
+
+    private int run() throws IOException, InterruptedException {
+        List<Fact> facts = BenchmarkInputs.deriveFacts(BenchmarkInputs.readDocuments(input));
+        Map<String, Result> baseline = baselinePath == null ? null : readResults(baselinePath);
+
+        List<Result> results = new ArrayList<>();
+        Path directory = Files.createTempDirectory("throughput");
+        try {
+            for (String inputFormat : INPUT_FORMATS) {
+                Path inputPath = directory.resolve("trace." + inputFormat);
+                writeInput(inputFormat, facts, inputPath);
+                for (String outputFormat : OUTPUT_FORMATS) {
+                    if (!isSupported(inputFormat, outputFormat)) {
+                        continue;
+                    }
+                    Result best = null;
+                    for (int i = 0; i < runs; ++i) {
+                        Result result = runReplayer(inputFormat, outputFormat, inputPath);
+                        if (best == null || result.eventsPerSecond > best.eventsPerSecond) {
+                            best = result;
+                        }
+                    }
+                    System.out.printf(Locale.ROOT, "%-32s %12.0f events/s %12.0f indices/s %10d kB%n",
+                            best.key(), best.eventsPerSecond, best.indicesPerSecond, best.peakRssKb);
+                    results.add(best);
+                }
+                Files.delete(inputPath);
+            }
+        } finally {
+            Files.deleteIfExists(directory);
+        }
+        writeResults(results);
+
+        if (baseline == null) {
+            return 0;
+        }
+        List<String> regressions = findRegressions(results, baseline, tolerance);
+        for (String regression : regressions) {
+            System.out.println("REGRESSION " + regression);
+        }
+        return regressions.isEmpty() ? 0 : 1;
+    }
+
+    private static void invalidArgument() {
+        System.err.println("Usage: ThroughputHarness [--input <raw log>] [--repeat <n>] [--runs <n>]\n" +
+                "       [--results <file>] [--baseline <file>] [--tolerance <fraction>] [--jvm-option <option>]...");
+        System.exit(2);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        ThroughputHarness harness = new ThroughputHarness();
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                switch (args[i]) {
+                    case "--input":
+                        harness.input = args[++i];
+                        break;
+                    case "--repeat":
+                        harness.repeat = Integer.parseInt(args[++i]);
+                        break;
+                    case "--runs":
+                        harness.runs = Integer.parseInt(args[++i]);
+                        break;
+                    case "--results":
+                        harness.resultsPath = Paths.get(args[++i]);
+                        break;
+                    case "--baseline":
+                        harness.baselinePath = Paths.get(args[++i]);
+                        break;
+                    case "--tolerance":
+                        harness.tolerance = Double.parseDouble(args[++i]);
+                        break;
+                    case "--jvm-option":
+                        harness.jvmOptions.add(args[++i]);
+                        break;
+                    default:
+                        invalidArgument();
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            invalidArgument();
+        }
+        if (harness.repeat < 1 || harness.runs < 1 || harness.tolerance < 0.0) {
+            invalidArgument();
+        }
+        System.exit(harness.run());
+    }
+}
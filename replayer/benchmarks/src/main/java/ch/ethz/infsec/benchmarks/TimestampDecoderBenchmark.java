@@ -0,0 +1,62 @@
+package ch.ethz.infsec.benchmarks;
+
+import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.trace.parser.TimestampDecoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of converting the {@code @timestamp} of an IC log document to milliseconds, per document, with
+ * {@link TimestampDecoder} and with {@link Instant#parse}. The time-stamps are those of the input's documents, in
+ * order:
+ * <pre>
+ *     java -jar benchmarks/target/benchmarks.jar TimestampDecoderBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimestampDecoderBenchmark {
+    @Param({"production/mainnet-3h-filtered-top1000.raw.log"})
+    public String input;
+
+    private String[] timestamps;
+    private TimestampDecoder decoder;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> values = new ArrayList<>();
+        for (Fact fact : BenchmarkInputs.deriveFacts(BenchmarkInputs.readDocuments(input))) {
+            if (fact.isTerminator()) {
+                values.add(Instant.ofEpochMilli(fact.getTimestamp()).toString());
+            }
+        }
+        timestamps = values.toArray(new String[0]);
+        decoder = new TimestampDecoder();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public void decoder(Blackhole blackhole) {
+        for (int i = 0; i < 1000; ++i) {
+            blackhole.consume(decoder.parseMillis(timestamps[i % timestamps.length]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public void instant(Blackhole blackhole) {
+        for (int i = 0; i < 1000; ++i) {
+            blackhole.consume(Instant.parse(timestamps[i % timestamps.length]).toEpochMilli());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ch.ethz.infsec.benchmarks;
+
+import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.trace.formatter.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@link TraceFormatter} implementations per fact, for IC {@code log} facts with long messages.
+ * <p>
+ * Every invocation formats {@value #FACTS} facts, which are grouped into databases of {@code databaseSize} facts. Run
+ * with the GC profiler to obtain the bytes allocated per fact ({@code gc.alloc.rate.norm}):
+ * <pre>
+ *     java -jar benchmarks/target/benchmarks.jar TraceFormatterBenchmark -prof gc
+ * </pre>
+ * DejaVu's format allows only one event per database, hence {@code databaseSize} is ignored for it. The
+ * {@code lazyQuotes} parameter only affects the MonPoly formatters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TraceFormatterBenchmark {
+    static final int FACTS = 10_000;
+
+    @Param({"monpoly", "monpoly-linear", "csv", "dejavu", "verdict"})
+    public String formatter;
+
+    @Param({"1", "100", "10000"})
+    public int databaseSize;
+
+    @Param({"true", "false"})
+    public boolean lazyQuotes;
+
+    @Param({"production/mainnet-3h-filtered-top1000.raw.log"})
+    public String input;
+
+    private TraceFormatter traceFormatter;
+    private List<Fact> facts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Fact> logFacts = new ArrayList<>();
+        for (Fact fact : BenchmarkInputs.deriveFacts(BenchmarkInputs.readDocuments(input))) {
+            if (!fact.isTerminator() && fact.getName().equals("log")) {
+                logFacts.add(fact);
+            }
+        }
+
+        String name = "log";
+        int size = databaseSize;
+        switch (formatter) {
+            case "monpoly":
+                traceFormatter = new MonpolyTraceFormatter(lazyQuotes);
+                break;
+            case "monpoly-linear":
+                traceFormatter = new MonpolyLinearizingTraceFormatter(lazyQuotes);
+                break;
+            case "csv":
+                traceFormatter = new Crv2014CsvFormatter();
+                break;
+            case "dejavu":
+                traceFormatter = new DejavuTraceFormatter();
+                size = 1;
+                break;
+            case "verdict":
+                MonpolyVerdictFormatter verdictFormatter = new MonpolyVerdictFormatter();
+                verdictFormatter.setLazyQuotes(lazyQuotes);
+                traceFormatter = verdictFormatter;
+                name = "";
+                break;
+            default:
+                throw new IllegalArgumentException(formatter);
+        }
+
+        facts = new ArrayList<>(FACTS + FACTS / size);
+        long timepoint = 0;
+        for (int i = 0; i < FACTS; ++i) {
+            Fact template = logFacts.get(i % logFacts.size());
+            long timestamp = template.getTimestamp();
+            Fact fact = Fact.make(name, timestamp, template.getArguments());
+            fact.setTimepoint(timepoint);
+            facts.add(fact);
+            if ((i + 1) % size == 0 || i + 1 == FACTS) {
+                Fact terminator = Fact.terminator(timestamp);
+                terminator.setTimepoint(timepoint);
+                facts.add(terminator);
+                ++timepoint;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FACTS)
+    public void format(Blackhole blackhole) throws IOException {
+        for (Fact fact : facts) {
+            traceFormatter.printFact(blackhole::consume, fact);
+        }
+    }
+}
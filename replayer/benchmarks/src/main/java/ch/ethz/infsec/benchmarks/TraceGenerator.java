@@ -0,0 +1,391 @@
+package ch.ethz.infsec.benchmarks;
+
+import ch.ethz.infsec.monitor.CustomSignature;
+import ch.ethz.infsec.monitor.DataType;
+import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.trace.formatter.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Generates synthetic IC traces for the events of a signature, e.g., {@code mfotl-policies/predicates.sig}.
+ * <p>
+ * Time advances in ticks of {@code tickLength} milliseconds from {@code startTimestamp} to {@code endTimestamp}; every
+ * non-empty tick becomes one time-point. The number of events of a relation per tick is Poisson distributed with the
+ * relation's rate (events per second), which is multiplied by the burst factor during bursts. Arguments are drawn
+ * uniformly from pools chosen by the parameter names of the signature: node IDs, node addresses, subnet IDs, data
+ * center prefixes, hashes, and generic values. All pools are created upfront, so generation allocates only the facts
+ * themselves. The same seed and configuration always produce the same trace.
+ * <pre>
+ *     java -cp benchmarks/target/benchmarks.jar ch.ethz.infsec.benchmarks.TraceGenerator \
+ *         --signature predicates.sig --rate log=5000 --duration 3600 -f monpoly | replayer.sh -a 0 ...
+ * </pre>
+ */
+public final class TraceGenerator {
+    private final CustomSignature signature;
+    private final long seed;
+
+    private final Map<String, Double> rates = new HashMap<>();
+    private double defaultRate = 1.0;
+    private int nodes = 100;
+    private int subnets = 10;
+    private int dataCenters = 20;
+    private int values = 1000;
+    private long startTimestamp = 0;
+    private long endTimestamp = 3_600_000;
+    private long tickLength = 1000;
+    private long burstPeriod = 0;
+    private long burstLength = 0;
+    private double burstFactor = 1.0;
+    private long maxEvents = Long.MAX_VALUE;
+
+    private static final class Relation {
+        final String name;
+        final double ratePerTick;
+        final Object[][] pools;
+
+        Relation(String name, double ratePerTick, Object[][] pools) {
+            this.name = name;
+            this.ratePerTick = ratePerTick;
+            this.pools = pools;
+        }
+    }
+
+    public TraceGenerator(CustomSignature signature, long seed) {
+        this.signature = signature;
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the rate of the relation in events per second. Relations without a rate use the default rate.
+     */
+    public TraceGenerator setRate(String relation, double eventsPerSecond) {
+        if (!signature.getEvents().contains(relation)) {
+            throw new IllegalArgumentException("Unknown relation " + relation);
+        }
+        rates.put(relation, eventsPerSecond);
+        return this;
+    }
+
+    public TraceGenerator setDefaultRate(double eventsPerSecond) {
+        this.defaultRate = eventsPerSecond;
+        return this;
+    }
+
+    public TraceGenerator setCardinalities(int nodes, int subnets, int dataCenters, int values) {
+        if (nodes < 1 || subnets < 1 || dataCenters < 1 || values < 1) {
+            throw new IllegalArgumentException("Cardinalities must be positive");
+        }
+        this.nodes = nodes;
+        this.subnets = subnets;
+        this.dataCenters = dataCenters;
+        this.values = values;
+        return this;
+    }
+
+    public TraceGenerator setTimestamps(long startTimestamp, long endTimestamp, long tickLength) {
+        if (endTimestamp < startTimestamp || tickLength < 1) {
+            throw new IllegalArgumentException("Invalid time range");
+        }
+        this.startTimestamp = startTimestamp;
+        this.endTimestamp = endTimestamp;
+        this.tickLength = tickLength;
+        return this;
+    }
+
+    /**
+     * Multiplies all rates by {@code factor} during the first {@code length} milliseconds of every {@code period}.
+     */
+    public TraceGenerator setBursts(long period, long length, double factor) {
+        if (period < 1 || length < 0 || length > period || factor < 0.0) {
+            throw new IllegalArgumentException("Invalid burst pattern");
+        }
+        this.burstPeriod = period;
+        this.burstLength = length;
+        this.burstFactor = factor;
+        return this;
+    }
+
+    /**
+     * Stops after the time-point in which the number of events reaches {@code maxEvents}.
+     */
+    public TraceGenerator setMaxEvents(long maxEvents) {
+        this.maxEvents = maxEvents;
+        return this;
+    }
+
+    private static Object[] pool(int size, IntFunction<Object> element) {
+        Object[] pool = new Object[size];
+        for (int i = 0; i < size; ++i) {
+            pool[i] = element.apply(i);
+        }
+        return pool;
+    }
+
+    private Object[] choosePool(String parameter, DataType type, Map<String, Object[]> shared, Random random) {
+        String domain;
+        if (type == DataType.INTEGRAL) {
+            domain = "int";
+        } else if (type == DataType.FLOAT) {
+            domain = "float";
+        } else if (parameter == null) {
+            domain = "string";
+        } else if (parameter.contains("subnet_id")) {
+            domain = "subnet";
+        } else if (parameter.contains("data_center")) {
+            domain = "data_center";
+        } else if (parameter.contains("addr")) {
+            domain = "addr";
+        } else if (parameter.contains("node") || parameter.equals("signer") || parameter.contains("host")) {
+            domain = "node";
+        } else if (parameter.contains("hash")) {
+            domain = "hash";
+        } else if (parameter.contains("subnet_type")) {
+            domain = "subnet_type";
+        } else if (parameter.equals("level")) {
+            domain = "level";
+        } else {
+            domain = "string";
+        }
+        return shared.computeIfAbsent(domain, d -> {
+            switch (d) {
+                case "int":
+                    return pool(values, i -> (long) i);
+                case "float":
+                    return pool(values, i -> random.nextDouble() * values);
+                case "subnet":
+                    return pool(subnets, i -> BenchmarkInputs.principalId(random));
+                case "data_center":
+                    return pool(dataCenters, i -> String.format("2a00:fb01:400:%x", i + 1));
+                case "addr":
+                    return pool(nodes, i -> String.format("2a00:fb01:400:%x:6801:%x:%x:%x",
+                            i % dataCenters + 1, random.nextInt(0x10000), random.nextInt(0x10000),
+                            random.nextInt(0x10000)));
+                case "node":
+                    return pool(nodes, i -> BenchmarkInputs.principalId(random));
+                case "hash":
+                    return pool(values, i -> BenchmarkInputs.hash(random));
+                case "subnet_type":
+                    return new Object[]{"Application", "SecureApplication", "System"};
+                case "level":
+                    return new Object[]{"INFO", "INFO", "INFO", "WARN", "ERROR", "DEBUG"};
+                default:
+                    return pool(values, i -> "value" + i);
+            }
+        });
+    }
+
+    private List<Relation> prepareRelations(Random random) {
+        Map<String, Object[]> shared = new HashMap<>();
+        List<Relation> relations = new ArrayList<>();
+        for (String event : signature.getEvents()) {
+            double rate = rates.getOrDefault(event, defaultRate);
+            if (rate <= 0.0) {
+                continue;
+            }
+            List<DataType> types = signature.getTypes(event);
+            List<String> names = signature.getParameterNames(event);
+            Object[][] pools = new Object[types.size()][];
+            for (int i = 0; i < types.size(); ++i) {
+                pools[i] = choosePool(names == null ? null : names.get(i), types.get(i), shared, random);
+            }
+            relations.add(new Relation(event, rate * tickLength / 1000.0, pools));
+        }
+        return relations;
+    }
+
+    private static int poisson(Random random, double mean) {
+        if (mean > 30.0) {
+            return Math.max(0, (int) Math.round(mean + Math.sqrt(mean) * random.nextGaussian()));
+        }
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            ++count;
+            product *= random.nextDouble();
+        }
+        return count;
+    }
+
+    /**
+     * Generates the trace, passing every fact and the terminator of every time-point to the sink. Returns the number
+     * of events (excluding terminators).
+     */
+    public long generate(Consumer<Fact> sink) {
+        Random random = new Random(seed);
+        List<Relation> relations = prepareRelations(random);
+        long events = 0;
+        long timepoint = 0;
+        for (long timestamp = startTimestamp; timestamp < endTimestamp && events < maxEvents;
+             timestamp += tickLength) {
+            double factor = burstPeriod > 0 && (timestamp - startTimestamp) % burstPeriod < burstLength
+                    ? burstFactor : 1.0;
+            long eventsBefore = events;
+            for (Relation relation : relations) {
+                int count = poisson(random, relation.ratePerTick * factor);
+                for (int i = 0; i < count; ++i) {
+                    List<Object> arguments = new ArrayList<>(relation.pools.length);
+                    for (Object[] pool : relation.pools) {
+                        arguments.add(pool[random.nextInt(pool.length)]);
+                    }
+                    Fact fact = Fact.make(relation.name, timestamp, arguments);
+                    fact.setTimepoint(timepoint);
+                    sink.accept(fact);
+                }
+                events += count;
+            }
+            if (events > eventsBefore) {
+                Fact terminator = Fact.terminator(timestamp);
+                terminator.setTimepoint(timepoint);
+                sink.accept(terminator);
+                ++timepoint;
+            }
+        }
+        return events;
+    }
+
+    private static TraceFormatter getTraceFormatter(String format) {
+        switch (format) {
+            case "csv":
+                return new Crv2014CsvFormatter();
+            case "csv-linear":
+                return new Crv2014CsvLinearizingFormatter();
+            case "monpoly":
+                return new MonpolyTraceFormatter(true);
+            case "monpoly-linear":
+                return new MonpolyLinearizingTraceFormatter(true);
+            case "dejavu-linear":
+                return new DejavuLinearizingTraceFormatter();
+            default:
+                throw new IllegalArgumentException("Unsupported output format " + format);
+        }
+    }
+
+    private static void invalidArgument() {
+        System.err.println("Usage: TraceGenerator --signature <file> [-f csv|csv-linear|monpoly|monpoly-linear|" +
+                "dejavu-linear]\n" +
+                "       [--seed <n>] [--rate <relation>=<events/s>]... [--default-rate <events/s>]\n" +
+                "       [--nodes <n>] [--subnets <n>] [--data-centers <n>] [--values <n>]\n" +
+                "       [--start <ms>] [--duration <s>] [--tick <ms>] [--burst <period ms>:<length ms>:<factor>]\n" +
+                "       [--events <n>]");
+        System.exit(2);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String signaturePath = null;
+        String format = "monpoly";
+        long seed = 0;
+        Map<String, Double> rates = new LinkedHashMap<>();
+        double defaultRate = 1.0;
+        int nodes = 100;
+        int subnets = 10;
+        int dataCenters = 20;
+        int values = 1000;
+        long start = 0;
+        long duration = 3600;
+        long tick = 1000;
+        String[] burst = null;
+        long maxEvents = Long.MAX_VALUE;
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                switch (args[i]) {
+                    case "--signature":
+                        signaturePath = args[++i];
+                        break;
+                    case "-f":
+                        format = args[++i];
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    case "--rate": {
+                        String[] parts = args[++i].split("=", 2);
+                        rates.put(parts[0], Double.parseDouble(parts[1]));
+                        break;
+                    }
+                    case "--default-rate":
+                        defaultRate = Double.parseDouble(args[++i]);
+                        break;
+                    case "--nodes":
+                        nodes = Integer.parseInt(args[++i]);
+                        break;
+                    case "--subnets":
+                        subnets = Integer.parseInt(args[++i]);
+                        break;
+                    case "--data-centers":
+                        dataCenters = Integer.parseInt(args[++i]);
+                        break;
+                    case "--values":
+                        values = Integer.parseInt(args[++i]);
+                        break;
+                    case "--start":
+                        start = Long.parseLong(args[++i]);
+                        break;
+                    case "--duration":
+                        duration = Long.parseLong(args[++i]);
+                        break;
+                    case "--tick":
+                        tick = Long.parseLong(args[++i]);
+                        break;
+                    case "--burst":
+                        burst = args[++i].split(":");
+                        if (burst.length != 3) {
+                            invalidArgument();
+                        }
+                        break;
+                    case "--events":
+                        maxEvents = Long.parseLong(args[++i]);
+                        break;
+                    default:
+                        invalidArgument();
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            invalidArgument();
+        }
+        if (signaturePath == null) {
+            invalidArgument();
+        }
+
+        TraceGenerator generator = new TraceGenerator(CustomSignature.parse(signaturePath), seed);
+        TraceFormatter formatter;
+        try {
+            for (Map.Entry<String, Double> rate : rates.entrySet()) {
+                generator.setRate(rate.getKey(), rate.getValue());
+            }
+            generator.setDefaultRate(defaultRate)
+                    .setCardinalities(nodes, subnets, dataCenters, values)
+                    .setTimestamps(start, start + duration * 1000, tick)
+                    .setMaxEvents(maxEvents);
+            if (burst != null) {
+                generator.setBursts(Long.parseLong(burst[0]), Long.parseLong(burst[1]),
+                        Double.parseDouble(burst[2]));
+            }
+            formatter = getTraceFormatter(format);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            invalidArgument();
+            return;
+        }
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        try {
+            generator.generate(fact -> {
+                try {
+                    formatter.printFact(writer::write, fact);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            // The consumer closed the pipe.
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package ch.ethz.infsec.benchmarks;
+
+import ch.ethz.infsec.monitor.DataType;
+import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.trace.formatter.Crv2014CsvFormatter;
+import ch.ethz.infsec.trace.formatter.DejavuLinearizingTraceFormatter;
+import ch.ethz.infsec.trace.formatter.MonpolyTraceFormatter;
+import ch.ethz.infsec.trace.formatter.MonpolyVerdictFormatter;
+import ch.ethz.infsec.trace.parser.*;
+import ch.ethz.infsec.trace.parser.JsonTraceParser.Projection;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Throughput of the {@link TraceParser} implementations on inputs derived from {@code test-inputs}.
+ * <p>
+ * The auxiliary counters {@code facts} and {@code bytes} report facts/s and input bytes/s. Run with the GC profiler
+ * to obtain the allocation rate:
+ * <pre>
+ *     java -jar benchmarks/target/benchmarks.jar TraceParserBenchmark -prof gc
+ * </pre>
+ * The {@code typed} parameter selects whether the parser is given a signature. The DejaVu and JSON parsers do not
+ * support signatures, the verdict parser treats all fields as strings if untyped. The {@code json-projected} format
+ * extracts the fields of the {@code log} relation from the JSON documents, with an integer priority if typed. The
+ * {@code json-parallel} format parses the documents like {@code json} with one worker per available processor. The
+ * binary format stores typed values and ignores the parameter; its input is split into chunks of 64 KiB instead of
+ * lines. The {@code monpoly-bytes} and {@code verdict-bytes} formats give the same inputs as UTF-8 bytes to the
+ * parsers' byte lexer, in chunks of 64 KiB and per line, respectively.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TraceParserBenchmark {
+    @Param({"monpoly", "monpoly-bytes", "csv", "dejavu", "json", "json-projected", "json-parallel", "verdict",
+            "verdict-bytes", "binary"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean typed;
+
+    @Param({
+            "production/mainnet-3h-filtered-top1000.raw.log",
+            "system-tests/hourly__basic_health_pot_single_host-2986511681.raw.log"
+    })
+    public String input;
+
+    private List<String> lines;
+    private List<byte[]> chunks;
+    private long inputBytes;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long facts;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            facts = 0;
+            bytes = 0;
+        }
+    }
+
+    private static final class CountingSink implements Consumer<Fact> {
+        private final Blackhole blackhole;
+        long count;
+
+        CountingSink(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void accept(Fact fact) {
+            blackhole.consume(fact);
+            ++count;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> documents = BenchmarkInputs.readDocuments(input);
+        List<Fact> facts = BenchmarkInputs.deriveFacts(documents);
+        switch (format) {
+            case "monpoly":
+                lines = BenchmarkInputs.format(new MonpolyTraceFormatter(true), facts);
+                break;
+            case "monpoly-bytes":
+                lines = BenchmarkInputs.format(new MonpolyTraceFormatter(true), facts);
+                chunks = BenchmarkInputs.toChunks(lines, 1 << 16);
+                break;
+            case "csv":
+                lines = BenchmarkInputs.format(new Crv2014CsvFormatter(), BenchmarkInputs.withoutDelimiters(facts));
+                break;
+            case "dejavu":
+                lines = BenchmarkInputs.format(new DejavuLinearizingTraceFormatter(),
+                        BenchmarkInputs.withoutDelimiters(facts));
+                break;
+            case "json":
+            case "json-projected":
+            case "json-parallel":
+                lines = documents;
+                break;
+            case "verdict":
+                lines = BenchmarkInputs.format(new MonpolyVerdictFormatter(), BenchmarkInputs.deriveVerdicts(facts));
+                break;
+            case "verdict-bytes":
+                lines = BenchmarkInputs.format(new MonpolyVerdictFormatter(), BenchmarkInputs.deriveVerdicts(facts));
+                chunks = lines.stream().map(line -> line.getBytes(StandardCharsets.UTF_8)).collect(Collectors.toList());
+                break;
+            case "binary":
+                lines = BenchmarkInputs.formatBinary(facts, 1 << 16);
+                break;
+            default:
+                throw new IllegalArgumentException(format);
+        }
+        inputBytes = format.equals("binary") ? lines.stream().mapToLong(String::length).sum() :
+                BenchmarkInputs.countBytes(lines);
+    }
+
+    private TraceParser createParser() {
+        switch (format) {
+            case "monpoly":
+            case "monpoly-bytes":
+                return new MonpolyTraceParser(typed ? BenchmarkInputs.SIGNATURE : null);
+            case "csv":
+                return new Crv2014CsvParser(typed ? BenchmarkInputs.SIGNATURE : null);
+            case "dejavu":
+                return new DejavuTraceParser(typed ? BenchmarkInputs.SIGNATURE : null, false);
+            case "json":
+                return new JsonTraceParser(Arrays.asList("_source", "@timestamp"));
+            case "json-projected":
+                return new JsonTraceParser(Arrays.asList("_source", "@timestamp"), new Projection("log",
+                        Arrays.asList(Projection.path("_source.host.name"), Projection.path("_index"),
+                                Projection.path("_source.syslog.identifier"),
+                                Projection.path("_source.syslog.priority"), Projection.path("_source.message")),
+                        Arrays.asList(DataType.STRING, DataType.STRING, DataType.STRING,
+                                typed ? DataType.INTEGRAL : DataType.STRING, DataType.STRING)));
+            case "json-parallel":
+                return new ParallelJsonTraceParser(Arrays.asList("_source", "@timestamp"), null,
+                        Runtime.getRuntime().availableProcessors(), 64);
+            case "verdict":
+            case "verdict-bytes":
+                return new MonpolyVerdictParser(typed
+                        ? BenchmarkInputs.SIGNATURE.getTypes("syslog")
+                        : Collections.nCopies(3, DataType.STRING));
+            case "binary":
+                return new BinaryTraceParser();
+            default:
+                throw new IllegalArgumentException(format);
+        }
+    }
+
+    @Benchmark
+    public void parse(Counters counters, Blackhole blackhole) throws ParseException {
+        TraceParser parser = createParser();
+        CountingSink sink = new CountingSink(blackhole);
+        if (format.equals("monpoly-bytes")) {
+            for (byte[] chunk : chunks) {
+                ((MonpolyTraceParser) parser).parse(sink, chunk, 0, chunk.length);
+            }
+        } else if (format.equals("verdict-bytes")) {
+            for (byte[] line : chunks) {
+                ((MonpolyVerdictParser) parser).parseLine(sink, line, 0, line.length);
+            }
+        } else {
+            for (String line : lines) {
+                parser.parseLine(sink, line);
+            }
+        }
+        parser.endOfInput(sink);
+        counters.facts += sink.count;
+        counters.bytes += inputBytes;
+    }
+}
@@ -0,0 +1,296 @@
+package ch.ethz.infsec.monitor;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A compact alternative to {@link Fact} for relations with a known {@link RelationLayout}. The arguments are stored in
+ * primitive arrays, so integers and floats are not boxed and no argument list is allocated. A fact of three integers
+ * needs two objects instead of six.
+ * <p>
+ * Terminators have no layout; their relation id is -1. Use {@link #toFact()} or {@link #getArguments()} where a
+ * {@code List<Object>} is expected.
+ * <p>
+ * The parsers, the replayer's queue, and the formatters still exchange {@link Fact}s, so replays do not use compact
+ * facts yet. On that path, {@link FactPool} and {@link FactBatch} reduce the allocations per fact instead.
+ */
+public final class CompactFact implements Serializable {
+    private static final long serialVersionUID = 7190337460127591548L;
+
+    private static final long[] NO_LONGS = new long[0];
+    private static final double[] NO_DOUBLES = new double[0];
+    private static final String[] NO_STRINGS = new String[0];
+
+    private final RelationLayout layout;
+    private long timestamp;
+    private long timepoint = -1;
+    private final long[] longs;
+    private final double[] doubles;
+    private final String[] strings;
+
+    private CompactFact(RelationLayout layout, long timestamp, long[] longs, double[] doubles, String[] strings) {
+        this.layout = layout;
+        this.timestamp = timestamp;
+        this.longs = longs;
+        this.doubles = doubles;
+        this.strings = strings;
+    }
+
+    public static CompactFact terminator(long timestamp) {
+        return new CompactFact(null, timestamp, NO_LONGS, NO_DOUBLES, NO_STRINGS);
+    }
+
+    /**
+     * Converts a fact whose arguments match the layout's types.
+     *
+     * @throws IllegalArgumentException if the arity or an argument's type does not match
+     */
+    public static CompactFact fromFact(Fact fact, RelationLayout layout) {
+        CompactFact compact;
+        if (fact.isTerminator()) {
+            compact = terminator(fact.getTimestamp());
+        } else {
+            if (fact.getArity() != layout.getArity()) {
+                throw new IllegalArgumentException("Expected " + layout.getArity() + " arguments for " +
+                        layout.getName() + ", got " + fact.getArity());
+            }
+            Builder builder = layout.builder();
+            for (int i = 0; i < fact.getArity(); ++i) {
+                builder.set(i, fact.getArgument(i));
+            }
+            compact = builder.build(fact.getTimestamp());
+        }
+        compact.setTimepoint(fact.getTimepoint());
+        return compact;
+    }
+
+    public RelationLayout getLayout() {
+        return layout;
+    }
+
+    public int getRelationId() {
+        return layout == null ? -1 : layout.getId();
+    }
+
+    public String getName() {
+        return layout == null ? null : layout.getName();
+    }
+
+    public boolean isTerminator() {
+        return layout == null;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public long getTimepoint() {
+        return timepoint;
+    }
+
+    public void setTimepoint(long timepoint) {
+        this.timepoint = timepoint;
+    }
+
+    public int getArity() {
+        return layout == null ? 0 : layout.getArity();
+    }
+
+    public DataType getType(int index) {
+        return layout.getType(index);
+    }
+
+    private int slot(int index, DataType type) {
+        if (layout.getType(index) != type) {
+            throw new IllegalArgumentException("Argument " + index + " of " + layout.getName() + " has type " +
+                    layout.getType(index) + ", not " + type);
+        }
+        return layout.getSlot(index);
+    }
+
+    public long getLong(int index) {
+        return longs[slot(index, DataType.INTEGRAL)];
+    }
+
+    public double getDouble(int index) {
+        return doubles[slot(index, DataType.FLOAT)];
+    }
+
+    public String getString(int index) {
+        return strings[slot(index, DataType.STRING)];
+    }
+
+    /**
+     * Returns the argument as {@link Long}, {@link Double}, or {@link String}, boxing it if necessary.
+     */
+    public Object getArgument(int index) {
+        int slot = layout.getSlot(index);
+        switch (layout.getType(index)) {
+            case INTEGRAL:
+                return longs[slot];
+            case FLOAT:
+                return doubles[slot];
+            default:
+                return strings[slot];
+        }
+    }
+
+    /**
+     * Returns an unmodifiable view of the arguments. Elements are boxed on access.
+     */
+    public List<Object> getArguments() {
+        return new ArgumentList();
+    }
+
+    /**
+     * Returns an equivalent {@link Fact}, whose argument list is a view of this fact's arguments.
+     */
+    public Fact toFact() {
+        Fact fact = layout == null ? Fact.terminator(timestamp) : Fact.make(layout.getName(), timestamp, getArguments());
+        fact.setTimepoint(timepoint);
+        return fact;
+    }
+
+    private final class ArgumentList extends AbstractList<Object> implements RandomAccess {
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= getArity()) {
+                throw new IndexOutOfBoundsException("Index: " + index);
+            }
+            return getArgument(index);
+        }
+
+        @Override
+        public int size() {
+            return getArity();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CompactFact that = (CompactFact) o;
+        return timestamp == that.timestamp &&
+                Objects.equals(layout, that.layout) &&
+                Arrays.equals(longs, that.longs) &&
+                Arrays.equals(doubles, that.doubles) &&
+                Arrays.equals(strings, that.strings);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getRelationId(), timestamp, Arrays.hashCode(longs), Arrays.hashCode(doubles),
+                Arrays.hashCode(strings));
+    }
+
+    @Override
+    public String toString() {
+        return toFact().toString();
+    }
+
+    /**
+     * Builds compact facts of one relation. Arguments that are not set are 0, 0.0, or null, respectively. A builder
+     * can be reused after {@link #build(long)}.
+     */
+    public static final class Builder {
+        private final RelationLayout layout;
+        private long[] longs;
+        private double[] doubles;
+        private String[] strings;
+
+        Builder(RelationLayout layout) {
+            this.layout = layout;
+            reset();
+        }
+
+        private void reset() {
+            longs = layout.getLongCount() == 0 ? NO_LONGS : new long[layout.getLongCount()];
+            doubles = layout.getDoubleCount() == 0 ? NO_DOUBLES : new double[layout.getDoubleCount()];
+            strings = layout.getStringCount() == 0 ? NO_STRINGS : new String[layout.getStringCount()];
+        }
+
+        private int slot(int index, DataType type) {
+            if (layout.getType(index) != type) {
+                throw new IllegalArgumentException("Argument " + index + " of " + layout.getName() + " has type " +
+                        layout.getType(index) + ", not " + type);
+            }
+            return layout.getSlot(index);
+        }
+
+        public Builder setLong(int index, long value) {
+            longs[slot(index, DataType.INTEGRAL)] = value;
+            return this;
+        }
+
+        public Builder setDouble(int index, double value) {
+            doubles[slot(index, DataType.FLOAT)] = value;
+            return this;
+        }
+
+        public Builder setString(int index, String value) {
+            strings[slot(index, DataType.STRING)] = value;
+            return this;
+        }
+
+        /**
+         * Sets the argument from a {@link Long}, {@link Integer}, {@link Double}, or {@link String} matching its type.
+         */
+        public Builder set(int index, Object value) {
+            switch (layout.getType(index)) {
+                case INTEGRAL:
+                    if (value instanceof Long || value instanceof Integer) {
+                        return setLong(index, ((Number) value).longValue());
+                    }
+                    break;
+                case FLOAT:
+                    if (value instanceof Double) {
+                        return setDouble(index, (Double) value);
+                    }
+                    break;
+                case STRING:
+                    if (value instanceof String) {
+                        return setString(index, (String) value);
+                    }
+                    break;
+            }
+            throw new IllegalArgumentException("Argument " + index + " of " + layout.getName() + " has type " +
+                    layout.getType(index) + ", got " + value);
+        }
+
+        /**
+         * Parses the argument according to its type, without boxing.
+         *
+         * @throws NumberFormatException if an integer or float is malformed
+         */
+        public Builder parse(int index, String value) {
+            int slot = layout.getSlot(index);
+            switch (layout.getType(index)) {
+                case INTEGRAL:
+                    longs[slot] = Long.parseLong(value);
+                    break;
+                case FLOAT:
+                    doubles[slot] = Double.parseDouble(value);
+                    break;
+                case STRING:
+                    strings[slot] = value;
+                    break;
+            }
+            return this;
+        }
+
+        public CompactFact build(long timestamp) {
+            CompactFact fact = new CompactFact(layout, timestamp, longs, doubles, strings);
+            reset();
+            return fact;
+        }
+    }
+}
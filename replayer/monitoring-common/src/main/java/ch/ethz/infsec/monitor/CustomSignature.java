@@ -1,6 +1,7 @@
 package ch.ethz.infsec.monitor;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
@@ -13,15 +14,23 @@ public class CustomSignature implements Signature {
 
     private final List<String> events;
     private final Map<String, List<DataType>> parameters;
+    private final Map<String, List<String>> parameterNames;
 
     protected CustomSignature(List<String> events, Map<String, List<DataType>> parameters){
+        this(events, parameters, Collections.emptyMap());
+    }
+
+    protected CustomSignature(List<String> events, Map<String, List<DataType>> parameters,
+                              Map<String, List<String>> parameterNames){
         this.events = events;
         this.parameters = parameters;
+        this.parameterNames = parameterNames;
     }
 
     public CustomSignature(Map<String, List<DataType>> events){
         this.events = new ArrayList<>(events.keySet());
         this.parameters = events;
+        this.parameterNames = Collections.emptyMap();
     }
 
     public List<String> getEvents(){
@@ -36,9 +45,23 @@ public class CustomSignature implements Signature {
         return parameters.get(e);
     }
 
+    /**
+     * Returns the parameter names of the event as declared in the signature file, with {@code null} for parameters
+     * that were declared by their type only. Returns {@code null} if the signature was not parsed from a file.
+     */
+    public List<String> getParameterNames(String e) {
+        return parameterNames.get(e);
+    }
+
+    // Declarations may span multiple lines.
     private static final Pattern specificationPattern =
-            Pattern.compile("(([a-zA-Z0-9_-]+)\\(([a-zA-Z0-9_:-]+(?:,\\s*[a-zA-Z0-9:_-]+)*)?\\)\\s*)");
-    private static final Pattern argumentDelimiter = Pattern.compile(",\\s*");
+            Pattern.compile("(([a-zA-Z0-9_-]+)\\(\\s*([a-zA-Z0-9_:-]+(?:\\s*,\\s*[a-zA-Z0-9:_-]+)*)?\\s*\\)\\s*)");
+    private static final Pattern argumentDelimiter = Pattern.compile("\\s*,\\s*");
+
+    private static String parseName(String s) {
+        String[] parts = s.trim().split(":");
+        return parts.length == 1 ? null : parts[0];
+    }
 
     private static DataType parseType(String s) {
         String[] parts = s.trim().split(":");
@@ -57,28 +80,29 @@ public class CustomSignature implements Signature {
     }
 
     public static CustomSignature parse(String path) throws SignatureParseException, IOException {
-        List<String> lines = Files.readAllLines(Paths.get(path));
+        String pattern = new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8).trim();
         List<String> events = new ArrayList<>();
         Map<String, List<DataType>> parameters = new HashMap<>();
+        Map<String, List<String>> parameterNames = new HashMap<>();
 
-        for (String pattern : lines) {
-            final Matcher matcher = specificationPattern.matcher(pattern);
-            while (matcher.regionStart() < pattern.length()) {
-                if (!matcher.find() || matcher.group(2) == null) {
-                    throw new SignatureParseException("Syntax error in signature");
-                }
-                String event = matcher.group(2);
-                events.add(event);
-                if(matcher.group(3)!=null){
-                    final String[] args = argumentDelimiter.split(matcher.group(3));
-                    parameters.put(event,
-                            Arrays.stream(args).map(CustomSignature::parseType).collect(Collectors.toList()));
-                } else {
-                    parameters.put(event, Collections.emptyList());
-                }
-                matcher.region(matcher.end(), pattern.length());
+        final Matcher matcher = specificationPattern.matcher(pattern);
+        while (matcher.regionStart() < pattern.length()) {
+            if (!matcher.find() || matcher.group(2) == null) {
+                throw new SignatureParseException("Syntax error in signature");
             }
-
+            String event = matcher.group(2);
+            events.add(event);
+            if(matcher.group(3)!=null){
+                final String[] args = argumentDelimiter.split(matcher.group(3));
+                parameters.put(event,
+                        Arrays.stream(args).map(CustomSignature::parseType).collect(Collectors.toList()));
+                parameterNames.put(event,
+                        Arrays.stream(args).map(CustomSignature::parseName).collect(Collectors.toList()));
+            } else {
+                parameters.put(event, Collections.emptyList());
+                parameterNames.put(event, Collections.emptyList());
+            }
+            matcher.region(matcher.end(), pattern.length());
         }
         if(events.size()==0){
             System.err.println("[Warning] Empty signature provided. Using the default one: P1(int)");
@@ -86,7 +110,7 @@ public class CustomSignature implements Signature {
             parameters.put("P1", Collections.singletonList(DataType.INTEGRAL));
         }
 
-        return new CustomSignature(events, parameters);
+        return new CustomSignature(events, parameters, parameterNames);
     }
 
     @Override
@@ -1,5 +1,7 @@
 package ch.ethz.infsec.monitor;
 
+import java.nio.charset.StandardCharsets;
+
 public enum DataType {
     INTEGRAL("int"),
     FLOAT("float"),
@@ -27,4 +29,34 @@ public enum DataType {
         }
         return null;
     }
+
+    /**
+     * Parses a range of the character sequence. Numbers are parsed without creating a string.
+     */
+    public Object parse(CharSequence s, int start, int end) {
+        switch (this) {
+            case INTEGRAL:
+                return Numbers.parseLong(s, start, end);
+            case FLOAT:
+                return Numbers.parseDouble(s, start, end);
+            case STRING:
+                return s.subSequence(start, end).toString();
+        }
+        return null;
+    }
+
+    /**
+     * Parses a range of UTF-8 bytes.
+     */
+    public Object parse(byte[] s, int start, int end) {
+        switch (this) {
+            case INTEGRAL:
+                return Numbers.parseLong(s, start, end);
+            case FLOAT:
+                return Numbers.parseDouble(s, start, end);
+            case STRING:
+                return new String(s, start, end - start, StandardCharsets.UTF_8);
+        }
+        return null;
+    }
 }
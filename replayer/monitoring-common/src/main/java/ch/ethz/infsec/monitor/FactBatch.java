@@ -0,0 +1,202 @@
+package ch.ethz.infsec.monitor;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * All facts of a single time-point, grouped by relation and stored column by column.
+ * <p>
+ * The relations appear in the order in which their first tuple was added; the tuples of each relation keep their
+ * order. Argument {@code c} of tuple {@code row} of relation {@code r} is {@code getColumn(r, c)[row]}. Unlike a
+ * sequence of {@link Fact}s, a batch has no terminator: it always represents a complete database.
+ */
+public final class FactBatch implements Serializable {
+    private static final long serialVersionUID = 5326590108415723877L;
+
+    private static final int INITIAL_ROWS = 4;
+
+    private final long timestamp;
+    private long timepoint;
+    private int relationCount = 0;
+    private String[] names = new String[4];
+    private int[] arities = new int[4];
+    private int[] sizes = new int[4];
+    private Object[][][] columns = new Object[4][][];
+    private final HashMap<String, Integer> relationIndex = new HashMap<>();
+    private int factCount = 0;
+
+    public FactBatch(long timestamp, long timepoint) {
+        this.timestamp = timestamp;
+        this.timepoint = timepoint;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getTimepoint() {
+        return timepoint;
+    }
+
+    public void setTimepoint(long timepoint) {
+        this.timepoint = timepoint;
+    }
+
+    private int relation(String name, int arity) {
+        Integer index = relationIndex.get(name);
+        if (index != null) {
+            if (arities[index] != arity) {
+                throw new IllegalArgumentException("Relation " + name + " has arity " + arities[index] +
+                        ", got a tuple with " + arity + " arguments");
+            }
+            return index;
+        }
+        if (relationCount == names.length) {
+            int capacity = 2 * relationCount;
+            names = Arrays.copyOf(names, capacity);
+            arities = Arrays.copyOf(arities, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+        int r = relationCount++;
+        names[r] = name;
+        arities[r] = arity;
+        sizes[r] = 0;
+        columns[r] = new Object[arity][INITIAL_ROWS];
+        relationIndex.put(name, r);
+        return r;
+    }
+
+    /**
+     * Adds a tuple to the relation. The arguments are copied.
+     *
+     * @throws IllegalArgumentException if the relation already has tuples with a different number of arguments, in
+     *                                  which case the batch is unchanged
+     */
+    public void add(String relation, List<Object> arguments) {
+        int arity = arguments.size();
+        int r = relation(relation, arity);
+        int row = sizes[r]++;
+        Object[][] relationColumns = columns[r];
+        if (arity > 0 && row == relationColumns[0].length) {
+            for (int c = 0; c < arity; ++c) {
+                relationColumns[c] = Arrays.copyOf(relationColumns[c], 2 * row);
+            }
+        }
+        for (int c = 0; c < arity; ++c) {
+            relationColumns[c][row] = arguments.get(c);
+        }
+        ++factCount;
+    }
+
+    public void add(Fact fact) {
+        if (fact.isTerminator() || fact.isMeta()) {
+            throw new IllegalArgumentException("Only regular facts can be added to a batch");
+        }
+        add(fact.getName(), fact.getArguments());
+    }
+
+    public int getRelationCount() {
+        return relationCount;
+    }
+
+    /**
+     * Returns the index of the relation, or -1 if the batch has no tuples of it.
+     */
+    public int getRelationIndex(String name) {
+        Integer index = relationIndex.get(name);
+        return index == null ? -1 : index;
+    }
+
+    public String getRelationName(int relation) {
+        return names[relation];
+    }
+
+    public int getArity(int relation) {
+        return arities[relation];
+    }
+
+    /**
+     * Returns the number of tuples of the relation.
+     */
+    public int getSize(int relation) {
+        return sizes[relation];
+    }
+
+    /**
+     * Returns the values of one argument for all tuples of the relation. Only the first {@link #getSize(int)}
+     * elements are valid, and the array must not be modified.
+     */
+    public Object[] getColumn(int relation, int column) {
+        return columns[relation][column];
+    }
+
+    public Object getValue(int relation, int row, int column) {
+        if (row >= sizes[relation]) {
+            throw new IndexOutOfBoundsException("Row: " + row);
+        }
+        return columns[relation][column][row];
+    }
+
+    /**
+     * Returns the total number of tuples of all relations.
+     */
+    public int getFactCount() {
+        return factCount;
+    }
+
+    /**
+     * Converts the batch into facts, grouped by relation, followed by a terminator.
+     */
+    public List<Fact> toFacts() {
+        List<Fact> facts = new ArrayList<>(factCount + 1);
+        for (int r = 0; r < relationCount; ++r) {
+            for (int row = 0; row < sizes[r]; ++row) {
+                List<Object> arguments = new ArrayList<>(arities[r]);
+                for (int c = 0; c < arities[r]; ++c) {
+                    arguments.add(columns[r][c][row]);
+                }
+                Fact fact = Fact.make(names[r], timestamp, arguments);
+                fact.setTimepoint(timepoint);
+                facts.add(fact);
+            }
+        }
+        Fact terminator = Fact.terminator(timestamp);
+        terminator.setTimepoint(timepoint);
+        facts.add(terminator);
+        return facts;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FactBatch that = (FactBatch) o;
+        return timestamp == that.timestamp && timepoint == that.timepoint && toFacts().equals(that.toFacts());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(timestamp, timepoint, factCount);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append('@').append(timestamp);
+        for (int r = 0; r < relationCount; ++r) {
+            builder.append(' ').append(names[r]);
+            for (int row = 0; row < sizes[r]; ++row) {
+                builder.append('(');
+                for (int c = 0; c < arities[r]; ++c) {
+                    if (c > 0) {
+                        builder.append(", ");
+                    }
+                    builder.append(columns[r][c][row]);
+                }
+                builder.append(')');
+            }
+        }
+        return builder.toString();
+    }
+}
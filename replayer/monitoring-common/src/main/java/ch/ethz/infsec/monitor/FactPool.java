@@ -0,0 +1,54 @@
+package ch.ethz.infsec.monitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * A bounded pool of reusable facts with mutable argument lists. Facts that are no longer referenced anywhere else can
+ * be returned with {@link #release(Fact)} and are handed out again by {@link #acquire(String, long)}.
+ * <p>
+ * The pool is not thread-safe. The owner must make sure that a released fact is not read or modified anymore, e.g.,
+ * by releasing facts only after they have been formatted.
+ */
+public final class FactPool {
+    private final ArrayDeque<Fact> free;
+    private final int capacity;
+
+    public FactPool(int capacity) {
+        this.free = new ArrayDeque<>(capacity);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns a fact with the given name and time-stamp, no time-point, and an empty, mutable argument list.
+     * Use {@code null} as the name for terminators.
+     */
+    public Fact acquire(String name, long timestamp) {
+        Fact fact = free.pollFirst();
+        if (fact == null) {
+            return Fact.make(name, timestamp, new ArrayList<>());
+        }
+        fact.setName(name);
+        fact.setTimestamp(timestamp);
+        fact.setTimepoint(-1);
+        return fact;
+    }
+
+    /**
+     * Returns the fact to the pool, unless the pool is full or the fact's argument list cannot be reused.
+     */
+    public void release(Fact fact) {
+        if (free.size() < capacity && fact.getArguments() instanceof ArrayList) {
+            fact.getArguments().clear();
+            free.addFirst(fact);
+        }
+    }
+
+    public int size() {
+        return free.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
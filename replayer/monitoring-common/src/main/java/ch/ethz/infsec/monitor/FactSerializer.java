@@ -10,10 +10,10 @@ import java.util.ArrayList;
 
 public class FactSerializer extends Serializer<Fact> implements Serializable {
     private static final long serialVersionUID = -4617203911449622409L;
-    private static final byte LONG_TYPE = 1;
-    private static final byte INT_TYPE = 2;
-    private static final byte STRING_TYPE = 3;
-    private static final byte DOUBLE_TYPE = 4;
+    public static final byte LONG_TYPE = 1;
+    public static final byte INT_TYPE = 2;
+    public static final byte STRING_TYPE = 3;
+    public static final byte DOUBLE_TYPE = 4;
 
     @Override
     public void write(Kryo kryo, Output output, Fact fact) {
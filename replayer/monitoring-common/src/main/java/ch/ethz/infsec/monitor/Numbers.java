@@ -0,0 +1,239 @@
+package ch.ethz.infsec.monitor;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses numbers directly from a range of characters or bytes, without creating a string for the range.
+ * <p>
+ * The accepted syntax and the results are the same as for {@link Long#parseLong(String)} and
+ * {@link Double#parseDouble(String)}. Plain decimal numbers are parsed here; other forms (e.g., hexadecimal floats,
+ * {@code NaN}, surrounding whitespace for floats, or more significant digits than a double holds exactly) are passed
+ * on to the JDK methods, as are malformed inputs so that the exceptions are the same.
+ */
+public final class Numbers {
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_EXACT_EXPONENT = 22;
+    private static final int MAX_EXPONENT_DIGITS = 6;
+
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_EXPONENT + 1];
+
+    static {
+        double power = 1.0;
+        for (int i = 0; i <= MAX_EXACT_EXPONENT; ++i) {
+            POWERS_OF_TEN[i] = power;
+            power *= 10.0;
+        }
+    }
+
+    private Numbers() {
+    }
+
+    public static long parseLong(CharSequence s, int start, int end) {
+        int i = start;
+        if (i >= end) {
+            return Long.parseLong(s.subSequence(start, end).toString());
+        }
+        boolean negative = false;
+        long limit = -Long.MAX_VALUE;
+        final char first = s.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            limit = negative ? Long.MIN_VALUE : limit;
+            if (++i == end) {
+                return Long.parseLong(s.subSequence(start, end).toString());
+            }
+        }
+        final long minimum = limit / 10;
+        // Accumulate negatively, which covers Long.MIN_VALUE.
+        long result = 0;
+        for (; i < end; ++i) {
+            final int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < minimum || result * 10 < limit + digit) {
+                return Long.parseLong(s.subSequence(start, end).toString());
+            }
+            result = result * 10 - digit;
+        }
+        return negative ? result : -result;
+    }
+
+    public static long parseLong(byte[] s, int start, int end) {
+        int i = start;
+        if (i >= end) {
+            return Long.parseLong(new String(s, start, end - start, StandardCharsets.UTF_8));
+        }
+        boolean negative = false;
+        long limit = -Long.MAX_VALUE;
+        final byte first = s[i];
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            limit = negative ? Long.MIN_VALUE : limit;
+            if (++i == end) {
+                return Long.parseLong(new String(s, start, end - start, StandardCharsets.UTF_8));
+            }
+        }
+        final long minimum = limit / 10;
+        long result = 0;
+        for (; i < end; ++i) {
+            final int digit = s[i] - '0';
+            if (digit < 0 || digit > 9 || result < minimum || result * 10 < limit + digit) {
+                return Long.parseLong(new String(s, start, end - start, StandardCharsets.UTF_8));
+            }
+            result = result * 10 - digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Computes a decimal number from its mantissa and exponent if the result is exact, and returns NaN otherwise.
+     * A mantissa and power of ten that are both exact doubles give a correctly rounded result with a single
+     * multiplication or division.
+     */
+    private static double exactDecimal(boolean negative, long mantissa, int exponent) {
+        if (mantissa > MAX_EXACT_MANTISSA || exponent < -MAX_EXACT_EXPONENT || exponent > MAX_EXACT_EXPONENT) {
+            return Double.NaN;
+        }
+        double value = (double) mantissa;
+        if (exponent < 0) {
+            value /= POWERS_OF_TEN[-exponent];
+        } else {
+            value *= POWERS_OF_TEN[exponent];
+        }
+        return negative ? -value : value;
+    }
+
+    public static double parseDouble(CharSequence s, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            ++i;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean exact = true;
+        for (; i < end; ++i) {
+            final int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            ++digits;
+            if (mantissa > MAX_EXACT_MANTISSA) {
+                exact = false;
+            } else {
+                mantissa = mantissa * 10 + digit;
+            }
+        }
+        if (i < end && s.charAt(i) == '.') {
+            for (++i; i < end; ++i) {
+                final int digit = s.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                ++digits;
+                if (mantissa > MAX_EXACT_MANTISSA) {
+                    exact = false;
+                } else {
+                    mantissa = mantissa * 10 + digit;
+                    --exponent;
+                }
+            }
+        }
+        if (i < end && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            ++i;
+            boolean negativeExponent = false;
+            if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+                negativeExponent = s.charAt(i) == '-';
+                ++i;
+            }
+            final int exponentStart = i;
+            int value = 0;
+            for (; i < end && i - exponentStart < MAX_EXPONENT_DIGITS; ++i) {
+                final int digit = s.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = value * 10 + digit;
+            }
+            if (i == exponentStart) {
+                exact = false;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (exact && digits > 0 && i == end) {
+            final double value = exactDecimal(negative, mantissa, exponent);
+            if (!Double.isNaN(value)) {
+                return value;
+            }
+        }
+        return Double.parseDouble(s.subSequence(start, end).toString());
+    }
+
+    public static double parseDouble(byte[] s, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (s[i] == '-' || s[i] == '+')) {
+            negative = s[i] == '-';
+            ++i;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean exact = true;
+        for (; i < end; ++i) {
+            final int digit = s[i] - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            ++digits;
+            if (mantissa > MAX_EXACT_MANTISSA) {
+                exact = false;
+            } else {
+                mantissa = mantissa * 10 + digit;
+            }
+        }
+        if (i < end && s[i] == '.') {
+            for (++i; i < end; ++i) {
+                final int digit = s[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                ++digits;
+                if (mantissa > MAX_EXACT_MANTISSA) {
+                    exact = false;
+                } else {
+                    mantissa = mantissa * 10 + digit;
+                    --exponent;
+                }
+            }
+        }
+        if (i < end && (s[i] == 'e' || s[i] == 'E')) {
+            ++i;
+            boolean negativeExponent = false;
+            if (i < end && (s[i] == '-' || s[i] == '+')) {
+                negativeExponent = s[i] == '-';
+                ++i;
+            }
+            final int exponentStart = i;
+            int value = 0;
+            for (; i < end && i - exponentStart < MAX_EXPONENT_DIGITS; ++i) {
+                final int digit = s[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = value * 10 + digit;
+            }
+            if (i == exponentStart) {
+                exact = false;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (exact && digits > 0 && i == end) {
+            final double value = exactDecimal(negative, mantissa, exponent);
+            if (!Double.isNaN(value)) {
+                return value;
+            }
+        }
+        return Double.parseDouble(new String(s, start, end - start, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,122 @@
+package ch.ethz.infsec.monitor;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * The layout of the {@link CompactFact}s of one relation. Every argument is assigned a slot in the fact's array for its
+ * {@link DataType}: integers are stored in a {@code long[]}, floats in a {@code double[]}, and strings in a
+ * {@code String[]}. Each relation of a signature has a small integer id, which is its position in
+ * {@link Signature#getEvents()}.
+ */
+public final class RelationLayout implements Serializable {
+    private static final long serialVersionUID = 2913760415032476173L;
+
+    private final int id;
+    private final String name;
+    private final DataType[] types;
+    private final int[] slots;
+    private final int longCount;
+    private final int doubleCount;
+    private final int stringCount;
+
+    public RelationLayout(int id, String name, List<DataType> types) {
+        this.id = id;
+        this.name = Objects.requireNonNull(name, "name");
+        this.types = types.toArray(new DataType[0]);
+        this.slots = new int[this.types.length];
+        int longs = 0;
+        int doubles = 0;
+        int strings = 0;
+        for (int i = 0; i < this.types.length; ++i) {
+            switch (this.types[i]) {
+                case INTEGRAL:
+                    slots[i] = longs++;
+                    break;
+                case FLOAT:
+                    slots[i] = doubles++;
+                    break;
+                case STRING:
+                    slots[i] = strings++;
+                    break;
+            }
+        }
+        this.longCount = longs;
+        this.doubleCount = doubles;
+        this.stringCount = strings;
+    }
+
+    /**
+     * Returns the layouts of all relations of the signature, in the order of {@link Signature#getEvents()}.
+     */
+    public static Map<String, RelationLayout> forSignature(Signature signature) {
+        Map<String, RelationLayout> layouts = new LinkedHashMap<>();
+        int id = 0;
+        for (String event : signature.getEvents()) {
+            layouts.put(event, new RelationLayout(id++, event, signature.getTypes(event)));
+        }
+        return layouts;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getArity() {
+        return types.length;
+    }
+
+    public DataType getType(int index) {
+        return types[index];
+    }
+
+    int getSlot(int index) {
+        return slots[index];
+    }
+
+    int getLongCount() {
+        return longCount;
+    }
+
+    int getDoubleCount() {
+        return doubleCount;
+    }
+
+    int getStringCount() {
+        return stringCount;
+    }
+
+    public CompactFact.Builder builder() {
+        return new CompactFact.Builder(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RelationLayout that = (RelationLayout) o;
+        return id == that.id && name.equals(that.name) && Arrays.equals(types, that.types);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, Arrays.hashCode(types));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(name).append('(');
+        for (int i = 0; i < types.length; ++i) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(types[i]);
+        }
+        return builder.append(')').toString();
+    }
+}
@@ -0,0 +1,151 @@
+package ch.ethz.infsec.monitor;
+
+import java.util.Arrays;
+
+/**
+ * A bounded table of canonical strings for relation names and recurring argument values, shared by a parser and a
+ * formatter.
+ * <p>
+ * Parsers call {@link #intern(CharSequence)} instead of creating a new string for every token. A value is admitted to
+ * the table only when it is seen for the second time within a short while (approximately), such that unique values
+ * like time-stamps and hashes do not crowd out the hot ones, and only if it is at most {@code maxLength} characters
+ * long. Once {@code capacity} symbols have been admitted, the table does not change anymore. Every symbol has a fixed
+ * integer code, which formatters can use to cache encodings, e.g., the quoted form.
+ * <p>
+ * The table may be used by multiple threads. Lookups do not lock; only insertions are synchronized.
+ */
+public final class SymbolTable {
+    private final String[] symbols;
+    private final int mask;
+    private final int capacity;
+    private final int maxLength;
+    private final byte[] sightings;
+    private int sightingCount = 0;
+    private int size = 0;
+
+    public SymbolTable(int capacity, int maxLength) {
+        if (capacity < 1 || maxLength < 0) {
+            throw new IllegalArgumentException("Invalid symbol table size");
+        }
+        int slots = Integer.highestOneBit(capacity) << 2;
+        this.symbols = new String[slots];
+        this.mask = slots - 1;
+        this.capacity = capacity;
+        this.maxLength = maxLength;
+        this.sightings = new byte[slots];
+    }
+
+    public SymbolTable(int capacity) {
+        this(capacity, 128);
+    }
+
+    private static int hash(CharSequence chars) {
+        int h = 0;
+        for (int i = 0; i < chars.length(); ++i) {
+            h = 31 * h + chars.charAt(i);
+        }
+        return h;
+    }
+
+    private int firstSlot(int hash) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static boolean contentEquals(String symbol, CharSequence chars) {
+        if (symbol.length() != chars.length()) {
+            return false;
+        }
+        for (int i = 0; i < symbol.length(); ++i) {
+            if (symbol.charAt(i) != chars.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the canonical string with the given content. If the content is not (yet) in the table, a new string is
+     * returned.
+     */
+    public String intern(CharSequence chars) {
+        if (chars.length() > maxLength) {
+            return chars.toString();
+        }
+        int hash = hash(chars);
+        int slot = firstSlot(hash);
+        String symbol;
+        while ((symbol = symbols[slot]) != null) {
+            if (symbol.hashCode() == hash && contentEquals(symbol, chars)) {
+                return symbol;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return insert(chars, hash);
+    }
+
+    private synchronized String insert(CharSequence chars, int hash) {
+        int slot = firstSlot(hash);
+        String symbol;
+        while ((symbol = symbols[slot]) != null) {
+            if (symbol.hashCode() == hash && contentEquals(symbol, chars)) {
+                return symbol;
+            }
+            slot = (slot + 1) & mask;
+        }
+        String value = chars.toString();
+        if (size >= capacity) {
+            return value;
+        }
+        int sighting = firstSlot(hash * 0x9E3779B9);
+        if (sightings[sighting] == 0) {
+            // Forget old sightings once a quarter of the filter is set, so that it keeps rejecting rare values.
+            if (++sightingCount > sightings.length / 4) {
+                Arrays.fill(sightings, (byte) 0);
+                sightingCount = 1;
+            }
+            sightings[sighting] = 1;
+            return value;
+        }
+        symbols[slot] = value;
+        ++size;
+        return value;
+    }
+
+    /**
+     * Returns the code of the symbol, or -1 if it is not in the table.
+     */
+    public int getCode(String value) {
+        if (value.length() > maxLength) {
+            return -1;
+        }
+        int hash = value.hashCode();
+        int slot = firstSlot(hash);
+        String symbol;
+        while ((symbol = symbols[slot]) != null) {
+            if (symbol == value || (symbol.hashCode() == hash && symbol.equals(value))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public String getSymbol(int code) {
+        return symbols[code];
+    }
+
+    /**
+     * Returns an upper bound (exclusive) for all codes.
+     */
+    public int getCodeLimit() {
+        return symbols.length;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,99 @@
+package ch.ethz.infsec.monitor;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CompactFactTest {
+    private final RelationLayout layout = new RelationLayout(3, "finalized",
+            Arrays.asList(DataType.STRING, DataType.INTEGRAL, DataType.FLOAT, DataType.STRING, DataType.INTEGRAL));
+
+    @Test
+    public void testBuilder() {
+        final CompactFact.Builder builder = layout.builder();
+        final CompactFact fact = builder.setString(0, "node").setLong(1, 42L).setDouble(2, 1.5)
+                .setString(3, "hash").setLong(4, -7L).build(123L);
+        fact.setTimepoint(9L);
+
+        assertEquals(3, fact.getRelationId());
+        assertEquals("finalized", fact.getName());
+        assertFalse(fact.isTerminator());
+        assertEquals(123L, fact.getTimestamp());
+        assertEquals(9L, fact.getTimepoint());
+        assertEquals(5, fact.getArity());
+        assertEquals("node", fact.getString(0));
+        assertEquals(42L, fact.getLong(1));
+        assertEquals(1.5, fact.getDouble(2), 0.0);
+        assertEquals("hash", fact.getString(3));
+        assertEquals(-7L, fact.getLong(4));
+
+        final CompactFact next = builder.parse(0, "other").parse(1, "1").parse(2, "2.5").build(124L);
+        assertEquals("other", next.getString(0));
+        assertEquals(1L, next.getLong(1));
+        assertEquals(2.5, next.getDouble(2), 0.0);
+        assertNull(next.getString(3));
+        assertEquals(0L, next.getLong(4));
+        assertEquals("node", fact.getString(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTypeMismatch() {
+        layout.builder().setLong(0, 1L);
+    }
+
+    @Test
+    public void testAdapter() {
+        final CompactFact fact = layout.builder().setString(0, "node").setLong(1, 42L).setDouble(2, 1.5)
+                .setString(3, "hash").setLong(4, -7L).build(123L);
+        fact.setTimepoint(9L);
+
+        assertEquals(Arrays.asList("node", 42L, 1.5, "hash", -7L), fact.getArguments());
+        final Fact converted = fact.toFact();
+        assertEquals(Fact.make("finalized", 123L, "node", 42L, 1.5, "hash", -7L), converted);
+        assertEquals(9L, converted.getTimepoint());
+        assertEquals(fact, CompactFact.fromFact(converted, layout));
+
+        final CompactFact terminator = CompactFact.terminator(124L);
+        assertTrue(terminator.isTerminator());
+        assertEquals(-1, terminator.getRelationId());
+        assertEquals(Collections.emptyList(), terminator.getArguments());
+        assertEquals(Fact.terminator(124L), terminator.toFact());
+        assertEquals(terminator, CompactFact.fromFact(Fact.terminator(124L), layout));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromFactArityMismatch() {
+        CompactFact.fromFact(Fact.make("finalized", 1L, "node"), layout);
+    }
+
+    @Test
+    public void testForSignature() {
+        final Map<String, List<DataType>> events = new LinkedHashMap<>();
+        events.put("a", Collections.singletonList(DataType.INTEGRAL));
+        events.put("b", Arrays.asList(DataType.STRING, DataType.STRING));
+        final Map<String, RelationLayout> layouts = RelationLayout.forSignature(new CustomSignature(events));
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(layouts.keySet()));
+        assertEquals(0, layouts.get("a").getId());
+        assertEquals(1, layouts.get("b").getId());
+        assertEquals(2, layouts.get("b").getArity());
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        final CompactFact fact = layout.builder().setString(0, "node").setLong(1, 42L).build(123L);
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutput = new ObjectOutputStream(outputStream)) {
+            objectOutput.writeObject(fact);
+        }
+        final Object copy;
+        try (ObjectInputStream objectInput =
+                     new ObjectInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            copy = objectInput.readObject();
+        }
+        assertEquals(fact, copy);
+    }
+}
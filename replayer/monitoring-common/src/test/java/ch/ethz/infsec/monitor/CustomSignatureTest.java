@@ -0,0 +1,63 @@
+package ch.ethz.infsec.monitor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class CustomSignatureTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CustomSignature parse(String content) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return CustomSignature.parse(file.getPath());
+    }
+
+    @Test
+    public void testParse() throws IOException {
+        CustomSignature signature = parse("\nP(int, float) Q()\n\nlog(node:string, level:string)\n");
+        assertEquals(Arrays.asList("P", "Q", "log"), signature.getEvents());
+        assertEquals(Arrays.asList(DataType.INTEGRAL, DataType.FLOAT), signature.getTypes("P"));
+        assertEquals(Collections.emptyList(), signature.getTypes("Q"));
+        assertEquals(Arrays.asList(DataType.STRING, DataType.STRING), signature.getTypes("log"));
+        assertEquals(Arrays.asList(null, null), signature.getParameterNames("P"));
+        assertEquals(Arrays.asList("node", "level"), signature.getParameterNames("log"));
+    }
+
+    @Test
+    public void testParseMultiLine() throws IOException {
+        CustomSignature signature = parse("consensus_finalized(node_id:string,\n" +
+                "                    state_avail:int)\n" +
+                "handshake_failed(\n" +
+                "    local_addr:string,\n" +
+                "    peer_addr:string\n" +
+                ")\n" +
+                "end_test()\n");
+        assertEquals(Arrays.asList("consensus_finalized", "handshake_failed", "end_test"), signature.getEvents());
+        assertEquals(Arrays.asList(DataType.STRING, DataType.INTEGRAL), signature.getTypes("consensus_finalized"));
+        assertEquals(Arrays.asList("local_addr", "peer_addr"), signature.getParameterNames("handshake_failed"));
+        assertEquals(0, signature.getArity("end_test"));
+    }
+
+    @Test(expected = SignatureParseException.class)
+    public void testSyntaxError() throws IOException {
+        parse("P(int\n");
+    }
+
+    @Test
+    public void testParameterNamesOfConstructedSignature() {
+        CustomSignature signature = new CustomSignature(
+                Collections.singletonMap("P", Collections.singletonList(DataType.INTEGRAL)));
+        assertNull(signature.getParameterNames("P"));
+    }
+}
@@ -0,0 +1,88 @@
+package ch.ethz.infsec.monitor;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class FactBatchTest {
+    @Test
+    public void testColumns() {
+        final FactBatch batch = new FactBatch(123L, 4L);
+        for (long i = 0; i < 10; ++i) {
+            batch.add("a", Arrays.asList("x" + i, i));
+            if (i % 3 == 0) {
+                batch.add("b", Collections.emptyList());
+            }
+        }
+        batch.add(Fact.make("c", 123L, 1.5));
+
+        assertEquals(123L, batch.getTimestamp());
+        assertEquals(4L, batch.getTimepoint());
+        assertEquals(3, batch.getRelationCount());
+        assertEquals(15, batch.getFactCount());
+        assertEquals("a", batch.getRelationName(0));
+        assertEquals(0, batch.getRelationIndex("a"));
+        assertEquals(2, batch.getRelationIndex("c"));
+        assertEquals(-1, batch.getRelationIndex("d"));
+        assertEquals(2, batch.getArity(0));
+        assertEquals(10, batch.getSize(0));
+        assertEquals(4, batch.getSize(1));
+        assertEquals(0, batch.getArity(1));
+        assertEquals("x7", batch.getColumn(0, 0)[7]);
+        assertEquals(9L, batch.getValue(0, 9, 1));
+        assertEquals(1.5, batch.getValue(2, 0, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testArityMismatch() {
+        final FactBatch batch = new FactBatch(1L, 0L);
+        batch.add("a", Collections.singletonList(1L));
+        batch.add("a", Arrays.asList(1L, 2L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTerminator() {
+        new FactBatch(1L, 0L).add(Fact.terminator(1L));
+    }
+
+    @Test
+    public void testToFacts() {
+        final FactBatch batch = new FactBatch(5L, 2L);
+        batch.add("a", Collections.singletonList(1L));
+        batch.add("b", Collections.singletonList("x"));
+        batch.add("a", Collections.singletonList(2L));
+
+        final List<Fact> facts = batch.toFacts();
+        assertEquals(Arrays.asList(
+                Fact.make("a", 5L, 1L),
+                Fact.make("a", 5L, 2L),
+                Fact.make("b", 5L, "x"),
+                Fact.terminator(5L)
+        ), facts);
+        for (Fact fact : facts) {
+            assertEquals(2L, fact.getTimepoint());
+        }
+        assertEquals(Collections.singletonList(Fact.terminator(6L)), new FactBatch(6L, 3L).toFacts());
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        final FactBatch batch = new FactBatch(5L, 2L);
+        batch.add("a", Arrays.asList(1L, "x"));
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutput = new ObjectOutputStream(outputStream)) {
+            objectOutput.writeObject(batch);
+        }
+        final FactBatch copy;
+        try (ObjectInputStream objectInput =
+                     new ObjectInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            copy = (FactBatch) objectInput.readObject();
+        }
+        assertEquals(batch, copy);
+        assertEquals(0, copy.getRelationIndex("a"));
+    }
+}
@@ -0,0 +1,46 @@
+package ch.ethz.infsec.monitor;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class FactPoolTest {
+    @Test
+    public void testReuse() {
+        final FactPool pool = new FactPool(1);
+        final Fact fact = pool.acquire("foo", 123L);
+        fact.setTimepoint(4L);
+        fact.getArguments().add("abc");
+        assertEquals(Fact.make("foo", 123L, "abc"), fact);
+
+        pool.release(fact);
+        assertEquals(1, pool.size());
+        final Fact reused = pool.acquire(null, 456L);
+        assertSame(fact, reused);
+        assertEquals(0, pool.size());
+        assertTrue(reused.isTerminator());
+        assertEquals(456L, reused.getTimestamp());
+        assertEquals(-1L, reused.getTimepoint());
+        assertEquals(Collections.emptyList(), reused.getArguments());
+    }
+
+    @Test
+    public void testBounded() {
+        final FactPool pool = new FactPool(1);
+        pool.release(pool.acquire("a", 1L));
+        pool.release(pool.acquire("b", 2L));
+        pool.release(Fact.make("c", 3L, "x"));
+        assertEquals(1, pool.size());
+        assertEquals(1, pool.capacity());
+    }
+
+    @Test
+    public void testImmutableArgumentsAreNotPooled() {
+        final FactPool pool = new FactPool(4);
+        pool.release(Fact.make("c", 3L, "x"));
+        pool.release(Fact.terminator(3L));
+        assertEquals(0, pool.size());
+    }
+}
@@ -0,0 +1,85 @@
+package ch.ethz.infsec.monitor;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NumbersTest {
+    private static void assertLong(String s) {
+        final String padded = "x(" + s + ")";
+        final byte[] bytes = padded.getBytes(StandardCharsets.UTF_8);
+        Long expected;
+        try {
+            expected = Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            expected = null;
+        }
+        try {
+            assertEquals(s, expected, (Long) Numbers.parseLong(padded, 2, padded.length() - 1));
+        } catch (NumberFormatException e) {
+            assertNull(s, expected);
+        }
+        try {
+            assertEquals(s, expected, (Long) Numbers.parseLong(bytes, 2, bytes.length - 1));
+        } catch (NumberFormatException e) {
+            assertNull(s, expected);
+        }
+    }
+
+    private static void assertDouble(String s) {
+        final String padded = "x(" + s + ")";
+        final byte[] bytes = padded.getBytes(StandardCharsets.UTF_8);
+        Double expected;
+        try {
+            expected = Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            expected = null;
+        }
+        try {
+            final double actual = Numbers.parseDouble(padded, 2, padded.length() - 1);
+            assertNotNull(s, expected);
+            assertEquals(s, Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+        } catch (NumberFormatException e) {
+            assertNull(s, expected);
+        }
+        try {
+            final double actual = Numbers.parseDouble(bytes, 2, bytes.length - 1);
+            assertNotNull(s, expected);
+            assertEquals(s, Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+        } catch (NumberFormatException e) {
+            assertNull(s, expected);
+        }
+    }
+
+    @Test
+    public void testParseLong() {
+        for (String s : new String[]{"0", "-0", "+0", "42", "-42", "+42", "007", "9223372036854775807",
+                "-9223372036854775808", "9223372036854775808", "-9223372036854775809", "99999999999999999999",
+                "", "-", "+", "1-", "1 ", " 1", "1.0", "abc", "١٢"}) {
+            assertLong(s);
+        }
+        final Random random = new Random(1);
+        for (int i = 0; i < 10000; ++i) {
+            assertLong(Long.toString(random.nextLong() >> random.nextInt(64)));
+        }
+    }
+
+    @Test
+    public void testParseDouble() {
+        for (String s : new String[]{"0", "-0", "-0.0", "1.5", "-1.5", "+2.25", ".5", "5.", "1e10", "1E-5", "1.5e+3",
+                "123456789012345678901234567890", "0.1", "0.30000000000000004", "9007199254740993",
+                "1e23", "1e-23", "4.9e-324", "1.7976931348623157E308", "1e400", "NaN", "-Infinity", "0x1p3", "1d",
+                " 1.5 ", "", ".", "-", "e5", "1e", "1e+", "1.2.3", "1e1234567"}) {
+            assertDouble(s);
+        }
+        final Random random = new Random(1);
+        for (int i = 0; i < 10000; ++i) {
+            assertDouble(Double.toString(Double.longBitsToDouble(random.nextLong())));
+            assertDouble(Double.toString(random.nextDouble() * 1000));
+            assertDouble(String.format("%.3f", random.nextDouble() * 1000000 - 500000));
+        }
+    }
+}
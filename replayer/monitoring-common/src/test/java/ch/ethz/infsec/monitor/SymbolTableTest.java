@@ -0,0 +1,42 @@
+package ch.ethz.infsec.monitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SymbolTableTest {
+    @Test
+    public void testIntern() {
+        final SymbolTable table = new SymbolTable(16, 8);
+        final String first = table.intern(new StringBuilder("node"));
+        assertEquals("node", first);
+        assertEquals(-1, table.getCode("node"));
+
+        final String second = table.intern(new StringBuilder("node"));
+        assertEquals("node", second);
+        final int code = table.getCode("node");
+        assertTrue(code >= 0);
+        assertEquals(1, table.size());
+        assertSame(second, table.intern(new StringBuilder("node")));
+        assertSame(second, table.getSymbol(code));
+        assertEquals(code, table.getCode(new String("node".toCharArray())));
+    }
+
+    @Test
+    public void testBounds() {
+        final SymbolTable table = new SymbolTable(2, 4);
+        table.intern("toolong");
+        table.intern("toolong");
+        assertEquals(-1, table.getCode("toolong"));
+
+        for (String value : new String[]{"a", "b", "c"}) {
+            table.intern(value);
+            table.intern(value);
+        }
+        assertEquals(2, table.size());
+        assertTrue(table.getCode("a") >= 0);
+        assertTrue(table.getCode("b") >= 0);
+        assertEquals(-1, table.getCode("c"));
+        assertEquals("c", table.intern("c"));
+    }
+}
@@ -0,0 +1,131 @@
+package ch.ethz.infsec.replayer;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Writes the input lines that could not be parsed to a side file. The lines are written by a thread of its own, such
+ * that the input thread only enqueues them.
+ * <p>
+ * Every record is a single line with the line number (starting at 1), the byte offset of the line in the input (in
+ * UTF-8, assuming single-character line ends), the reason, and the line itself, separated by tabs.
+ */
+final class Quarantine implements Closeable {
+    private static final int CAPACITY = 4096;
+
+    private static final class Record {
+        final long lineNumber;
+        final long offset;
+        final String reason;
+        final String line;
+
+        Record(long lineNumber, long offset, String reason, String line) {
+            this.lineNumber = lineNumber;
+            this.offset = offset;
+            this.reason = reason;
+            this.line = line;
+        }
+    }
+
+    private static final Record END = new Record(0, 0, null, null);
+
+    private final String filename;
+    private final Writer writer;
+    private final LinkedBlockingQueue<Record> queue;
+    private final Thread thread;
+    private volatile IOException error;
+    private long count;
+
+    Quarantine(String filename) throws IOException {
+        this.filename = filename;
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename),
+                StandardCharsets.UTF_8));
+        this.queue = new LinkedBlockingQueue<>(CAPACITY);
+        this.error = null;
+        this.count = 0;
+        this.thread = new Thread(this::run, "quarantine");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Returns the number of bytes of the line in UTF-8.
+     */
+    static long utf8Length(String line) {
+        long length = line.length();
+        for (int i = 0; i < line.length(); ++i) {
+            final char c = line.charAt(i);
+            if (c >= 0x80) {
+                // Surrogate pairs take four bytes, i.e., two per char.
+                length += c < 0x800 ? 1 : Character.isSurrogate(c) ? 1 : 2;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Enqueues a line. Blocks only if the writer thread has fallen behind by many lines.
+     */
+    void put(long lineNumber, long offset, String reason, String line) throws InterruptedException {
+        queue.put(new Record(lineNumber, offset, reason, line));
+        ++count;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    String getFilename() {
+        return filename;
+    }
+
+    private void write(Record record) throws IOException {
+        writer.write(Long.toString(record.lineNumber));
+        writer.write('\t');
+        writer.write(Long.toString(record.offset));
+        writer.write('\t');
+        writer.write(record.reason.replace('\t', ' ').replace('\n', ' ').replace('\r', ' '));
+        writer.write('\t');
+        writer.write(record.line);
+        writer.write('\n');
+    }
+
+    private void run() {
+        try {
+            Record record;
+            while ((record = queue.take()) != END) {
+                // After a write error, the remaining records are discarded such that the input thread never blocks.
+                if (error == null) {
+                    try {
+                        write(record);
+                        if (queue.isEmpty()) {
+                            writer.flush();
+                        }
+                    } catch (IOException e) {
+                        error = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until all enqueued lines have been written and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            queue.put(END);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.close();
+        if (error != null) {
+            throw error;
+        }
+    }
+}
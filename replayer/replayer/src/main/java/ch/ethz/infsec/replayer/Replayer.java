@@ -2,19 +2,30 @@ package ch.ethz.infsec.replayer;
 
 import ch.ethz.infsec.kafka.MonitorKafkaConfig;
 import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactBatch;
+import ch.ethz.infsec.monitor.FactPool;
+import ch.ethz.infsec.monitor.SymbolTable;
 import ch.ethz.infsec.trace.formatter.*;
+import ch.ethz.infsec.trace.parser.BinaryTraceParser;
 import ch.ethz.infsec.trace.parser.Crv2014CsvParser;
 import ch.ethz.infsec.trace.parser.DejavuTraceParser;
+import ch.ethz.infsec.trace.parser.FactBatchCollector;
+import ch.ethz.infsec.trace.parser.JsonTraceParser;
 import ch.ethz.infsec.trace.parser.MonpolyTraceParser;
+import ch.ethz.infsec.trace.parser.ParseException;
+import ch.ethz.infsec.trace.parser.RawLogReader;
+import ch.ethz.infsec.trace.parser.RegistrySnapshotParser;
 import ch.ethz.infsec.trace.parser.TraceParser;
 import org.apache.commons.io.IOUtils;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 
 import java.io.*;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ArrayBlockingQueue;
@@ -22,6 +33,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 
 public class Replayer {
     private static final int FACT_CHUNK_SIZE = 128;
+    private static final int BINARY_CHUNK_SIZE = 1 << 16;
 
     private double timeMultiplier = 1.0;
     private String commandPrefix = ">";
@@ -29,6 +41,20 @@ public class Replayer {
     private String timestampPrefix = "###";
     private int queueCapacity = 1024;
     private boolean explicitEmissiontime = false;
+    private long slipThreshold = 10;
+    private boolean pooled = false;
+    private boolean batched = false;
+    private boolean streaming = false;
+    private boolean wireOutput = false;
+    private boolean binaryInput = false;
+    // Raw IC logs are read one document at a time instead of line by line.
+    private boolean rawLogInput = false;
+    private boolean binaryOutput = false;
+    private SymbolTable symbolTable = null;
+    // Facts of the registry snapshot given with --initial-state, with time-stamp 0.
+    private List<Fact> initialState = null;
+    // Set with --quarantine: malformed lines are written to it instead of aborting the replay.
+    private Quarantine quarantine = null;
 
     private Reporter reporter = new NullReporter();
 
@@ -39,6 +65,8 @@ public class Replayer {
         private BufferedReader input;
         private Output output;
         private LinkedBlockingQueue<ArrayList<OutputItem>> queue;
+        // Chunks whose items have been emitted, returned by the output thread if pooling is enabled.
+        private ArrayBlockingQueue<ArrayList<OutputItem>> recycledChunks;
         private Thread inputThread;
         private boolean printEOF;
 
@@ -49,11 +77,17 @@ public class Replayer {
             this.output = output;
             this.parser = parser;
             this.formatter = formatter;
+            if (wireOutput) {
+                output.setEncoder(new WireEncoder());
+            }
         }
 
         @Override
         public void run() {
             queue = new LinkedBlockingQueue<>(queueCapacity);
+            if (pooled) {
+                recycledChunks = new ArrayBlockingQueue<>(queueCapacity);
+            }
 
             Thread reporterThread = new Thread(reporter);
             reporterThread.setDaemon(true);
@@ -77,6 +111,18 @@ public class Replayer {
             } catch (InterruptedException ignored) {
             }
 
+            if (quarantine != null) {
+                try {
+                    quarantine.close();
+                    if (quarantine.getCount() > 0) {
+                        System.err.println("Warning: " + quarantine.getCount() + " malformed lines were written to " +
+                                quarantine.getFilename());
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error: Could not write the quarantine file: " + e.getMessage());
+                    System.exit(1);
+                }
+            }
             if (!inputWorker.isSuccessful() || !outputWorker.isSuccessful()) {
                 System.exit(1);
             }
@@ -89,12 +135,89 @@ public class Replayer {
 
             private final ArrayList<OutputItem> parsedItems = new ArrayList<>();
             private ArrayList<OutputItem> currentChunk = new ArrayList<>(FACT_CHUNK_SIZE);
+            // Number of facts in the current chunk. A batch counts as many facts as it contains.
+            private int currentChunkFacts = 0;
+
+            private final FactPool factPool;
+            private final ArrayDeque<FactItem> freeFactItems;
+            private final char[] binaryChunk = binaryInput ? new char[BINARY_CHUNK_SIZE] : null;
+            private final RawLogReader rawLog = rawLogInput ? new RawLogReader(input) : null;
+            private boolean initialStatePending = initialState != null;
+            // The initial state takes the first time-point, so those of the trace are shifted by one.
+            private final long timepointShift = initialState != null ? 1 : 0;
+            // The position of the current line in the input, for the quarantine.
+            private String currentLine = null;
+            private long lineNumber = 0;
+            private long lineOffset = 0;
+            private long nextLineOffset = 0;
+            // The lines since the start of the database that is being parsed, beginning at spanLineNumber and
+            // spanOffset. A database is finished if a terminator or batch has been processed for the current line.
+            private final ArrayList<String> spanLines = new ArrayList<>();
+            private long spanLineNumber = 0;
+            private long spanOffset = 0;
+            private boolean databaseFinished = false;
+            // Set in batched mode.
+            private FactBatchCollector collector = null;
+
+            InputWorker() {
+                if (pooled) {
+                    int capacity = (queueCapacity + 2) * FACT_CHUNK_SIZE;
+                    factPool = new FactPool(capacity);
+                    freeFactItems = new ArrayDeque<>(capacity);
+                    parser.setFactPool(factPool);
+                } else {
+                    factPool = null;
+                    freeFactItems = null;
+                }
+            }
+
+            private ArrayList<OutputItem> newChunk() {
+                if (pooled) {
+                    ArrayList<OutputItem> chunk = recycledChunks.poll();
+                    if (chunk != null) {
+                        for (OutputItem item : chunk) {
+                            if (item instanceof FactItem) {
+                                FactItem factItem = (FactItem) item;
+                                factPool.release(factItem.fact);
+                                factItem.fact = null;
+                                if (freeFactItems.size() < factPool.capacity()) {
+                                    freeFactItems.addFirst(factItem);
+                                }
+                            }
+                        }
+                        chunk.clear();
+                        return chunk;
+                    }
+                }
+                return new ArrayList<>(FACT_CHUNK_SIZE);
+            }
+
+            private FactItem newFactItem(long emissionTime, Fact fact) {
+                FactItem item = pooled ? freeFactItems.pollFirst() : null;
+                if (item == null) {
+                    return new FactItem(emissionTime, fact);
+                }
+                item.emissionTime = emissionTime;
+                item.fact = fact;
+                return item;
+            }
 
             private void putItem(OutputItem item, boolean force) throws InterruptedException {
                 currentChunk.add(item);
-                if (currentChunk.size() >= FACT_CHUNK_SIZE || force) {
-                    queue.put(currentChunk);
-                    currentChunk = new ArrayList<>(FACT_CHUNK_SIZE);
+                currentChunkFacts += item.getFactCount();
+                if (currentChunkFacts >= FACT_CHUNK_SIZE || force) {
+                    if (ReplayerEvents.CHUNK_HANDOFF.isEnabled()) {
+                        ReplayerEvents.ChunkHandoff event = new ReplayerEvents.ChunkHandoff();
+                        event.begin();
+                        queue.put(currentChunk);
+                        event.chunkSize = currentChunk.size();
+                        event.queuedChunks = queue.size();
+                        event.commit();
+                    } else {
+                        queue.put(currentChunk);
+                    }
+                    currentChunk = newChunk();
+                    currentChunkFacts = 0;
                 }
             }
 
@@ -115,43 +238,204 @@ public class Replayer {
                 return emissionTime;
             }
 
+            // The initial state is put before the first event, with the same time-stamp and emission time. If batched,
+            // it is a single batch, as the wire encoder only takes meta-facts individually.
+            private void putInitialState(long timestamp, long emissionTime) {
+                if (!initialStatePending) {
+                    return;
+                }
+                if (batched) {
+                    FactBatch batch = new FactBatch(timestamp, initialState.get(0).getTimepoint());
+                    for (Fact fact : initialState) {
+                        if (!fact.isTerminator()) {
+                            batch.add(fact);
+                        }
+                    }
+                    parsedItems.add(new BatchItem(emissionTime, batch));
+                } else {
+                    for (Fact fact : initialState) {
+                        Fact copy = Fact.make(fact.getName(), timestamp, fact.getArguments());
+                        copy.setTimepoint(fact.getTimepoint());
+                        parsedItems.add(newFactItem(emissionTime, copy));
+                    }
+                }
+                initialStatePending = false;
+            }
+
+            private void shiftTimepoint(Fact fact) {
+                if (timepointShift != 0 && !fact.isMeta()) {
+                    fact.setTimepoint(fact.getTimepoint() + timepointShift);
+                }
+            }
+
             private void processFact(Fact fact) {
+                shiftTimepoint(fact);
                 final long timestamp = fact.getTimestamp();
                 if (firstTimestamp < 0) {
                     firstTimestamp = timestamp;
                 }
-                parsedItems.add(new FactItem(calculateEmissionTime(timestamp), fact));
+                putInitialState(timestamp, calculateEmissionTime(timestamp));
+                parsedItems.add(newFactItem(calculateEmissionTime(timestamp), fact));
+                databaseFinished |= fact.isTerminator();
+            }
+
+            // Binary traces are read in chunks of ISO-8859-1 characters (one per byte) instead of lines.
+            private String readInput() throws IOException, ParseException {
+                if (rawLog != null) {
+                    return rawLog.nextDocument();
+                }
+                if (!binaryInput) {
+                    final String line = input.readLine();
+                    if (quarantine != null && line != null) {
+                        currentLine = line;
+                        ++lineNumber;
+                        lineOffset = nextLineOffset;
+                        nextLineOffset += Quarantine.utf8Length(line) + 1;
+                        if (parser.inInitialState()) {
+                            restartSpan();
+                        } else {
+                            spanLines.add(line);
+                        }
+                        databaseFinished = false;
+                    }
+                    return line;
+                }
+                final int length = input.read(binaryChunk);
+                return length < 0 ? null : new String(binaryChunk, 0, length);
+            }
+
+            private boolean isCommand(String line) {
+                return !binaryInput && !rawLogInput && line.startsWith(commandPrefix);
+            }
+
+            private void putCommand(String line) throws InterruptedException {
+                // The binary trace format cannot represent commands.
+                if (!binaryOutput) {
+                    putItem(new CommandItem(calculateEmissionTime(currEmissionTime), line), false);
+                }
             }
 
             private void processFactExplicitEmissiontime(Fact fact) {
                 assert currEmissionTime != -1;
-                parsedItems.add(new FactItem(calculateEmissionTime(currEmissionTime), fact));
+                shiftTimepoint(fact);
+                putInitialState(fact.getTimestamp(), calculateEmissionTime(currEmissionTime));
+                parsedItems.add(newFactItem(calculateEmissionTime(currEmissionTime), fact));
+                databaseFinished |= fact.isTerminator();
+            }
+
+            private void processBatch(FactBatch batch) {
+                batch.setTimepoint(batch.getTimepoint() + timepointShift);
+                final long timestamp = batch.getTimestamp();
+                if (firstTimestamp < 0) {
+                    firstTimestamp = timestamp;
+                }
+                putInitialState(timestamp, calculateEmissionTime(timestamp));
+                parsedItems.add(new BatchItem(calculateEmissionTime(timestamp), batch));
+                databaseFinished = true;
+            }
+
+            private void processBatchExplicitEmissiontime(FactBatch batch) {
+                assert currEmissionTime != -1;
+                batch.setTimepoint(batch.getTimepoint() + timepointShift);
+                putInitialState(batch.getTimestamp(), calculateEmissionTime(currEmissionTime));
+                parsedItems.add(new BatchItem(calculateEmissionTime(currEmissionTime), batch));
+                databaseFinished = true;
+            }
+
+            // Makes the span consist of the current line only.
+            private void restartSpan() {
+                spanLines.clear();
+                spanLines.add(currentLine);
+                spanLineNumber = lineNumber;
+                spanOffset = lineOffset;
+            }
+
+            // Writes all but the given number of last lines of the span to the quarantine.
+            private void quarantineSpan(String reason, int excludedLines) throws InterruptedException {
+                long offset = spanOffset;
+                for (int i = 0; i < spanLines.size() - excludedLines; ++i) {
+                    final String spanLine = spanLines.get(i);
+                    quarantine.put(spanLineNumber + i, offset, reason, spanLine);
+                    offset += Quarantine.utf8Length(spanLine) + 1;
+                }
+            }
+
+            private void parse(String line) throws ParseException {
+                if (collector != null) {
+                    parser.parseBatches(collector, line);
+                } else if (explicitEmissiontime) {
+                    parser.parseLine(this::processFactExplicitEmissiontime, line);
+                } else {
+                    parser.parseLine(this::processFact, line);
+                }
+            }
+
+            // Parse errors are only thrown if there is no quarantine. Parsers reset their state when they throw. If the
+            // failing database started in an earlier line, the lines from there on are quarantined instead, and the
+            // current line is parsed again, as it may start a valid database.
+            private void parseLine(String line) throws ParseException, InterruptedException {
+                try {
+                    parse(line);
+                } catch (ParseException e) {
+                    if (quarantine == null) {
+                        throw e;
+                    }
+                    if (databaseFinished || spanLines.size() == 1) {
+                        quarantine.put(lineNumber, lineOffset, e.getMessage(), currentLine);
+                        return;
+                    }
+                    quarantineSpan(e.getMessage(), 1);
+                    restartSpan();
+                    try {
+                        parse(line);
+                    } catch (ParseException again) {
+                        quarantine.put(lineNumber, lineOffset, again.getMessage(), currentLine);
+                        return;
+                    }
+                }
+                if (quarantine != null && databaseFinished && spanLines.size() > 1) {
+                    restartSpan();
+                }
+            }
+
+            // The database that is still open at the end of the input started with the span.
+            private void quarantineEnd(ParseException e) throws ParseException, InterruptedException {
+                if (quarantine == null) {
+                    throw e;
+                }
+                quarantineSpan(e.getMessage(), 0);
             }
 
             public void run() {
                 if (explicitEmissiontime)
                      firstTimestamp = 0;
                 try {
+                    if (batched) {
+                        runBatched();
+                        successful = true;
+                        return;
+                    }
                     String line;
-                    while ((line = input.readLine()) != null) {
+                    while ((line = readInput()) != null) {
                         if (explicitEmissiontime) {
                             String[] parts = line.split("'");
                             assert parts.length == 2;
                             currEmissionTime = Long.parseLong(parts[0]);
                             line = parts[1];
                         }
-                        if (line.startsWith(commandPrefix)) {
-                            CommandItem commandItem = new CommandItem(calculateEmissionTime(currEmissionTime), line);
-                            putItem(commandItem, false);
+                        if (isCommand(line)) {
+                            putCommand(line);
                         } else {
-                            if (explicitEmissiontime)
-                                parser.parseLine(this::processFactExplicitEmissiontime, line);
-                            else
-                                parser.parseLine(this::processFact, line);
+                            parseLine(line);
                             emitParsedItems();
                         }
                     }
-                    parser.endOfInput(this::processFact);
+                    try {
+                        parser.endOfInput(this::processFact);
+                    } catch (ParseException e) {
+                        quarantineEnd(e);
+                    }
+                    putInitialState(0, 0);
                     emitParsedItems();
                     putItem(new TerminalItem(), true);
                     successful = true;
@@ -162,6 +446,36 @@ public class Replayer {
                 }
             }
 
+            private void runBatched() throws Exception {
+                collector = explicitEmissiontime ?
+                        new FactBatchCollector(this::processBatchExplicitEmissiontime,
+                                this::processFactExplicitEmissiontime) :
+                        new FactBatchCollector(this::processBatch, this::processFact);
+                String line;
+                while ((line = readInput()) != null) {
+                    if (explicitEmissiontime) {
+                        String[] parts = line.split("'");
+                        assert parts.length == 2;
+                        currEmissionTime = Long.parseLong(parts[0]);
+                        line = parts[1];
+                    }
+                    if (isCommand(line)) {
+                        putCommand(line);
+                    } else {
+                        parseLine(line);
+                        emitParsedItems();
+                    }
+                }
+                try {
+                    parser.endOfBatches(collector);
+                } catch (ParseException e) {
+                    quarantineEnd(e);
+                }
+                putInitialState(0, 0);
+                emitParsedItems();
+                putItem(new TerminalItem(), true);
+            }
+
             boolean isSuccessful() {
                 return successful;
             }
@@ -174,6 +488,7 @@ public class Replayer {
             private long startTimeNanos;
             private long tsIdx = 0;
             private boolean printEOF;
+            private final ArrayList<ArrayList<OutputItem>> emittedChunks = new ArrayList<>();
 
             OutputWorker(boolean printEOF) {
                 this.printEOF = printEOF;
@@ -188,9 +503,42 @@ public class Replayer {
                 }
             }
 
+            private ArrayList<OutputItem> takeAfterUnderrun() throws InterruptedException {
+                if (ReplayerEvents.UNDERRUN.isEnabled()) {
+                    ReplayerEvents.Underrun event = new ReplayerEvents.Underrun();
+                    event.begin();
+                    ArrayList<OutputItem> chunk = queue.take();
+                    event.commit();
+                    return chunk;
+                }
+                return queue.take();
+            }
+
+            private void checkEmissionSlip(long emissionTime) {
+                long elapsedMillis = (System.nanoTime() - startTimeNanos) / 1_000_000L;
+                long slip = elapsedMillis - emissionTime;
+                if (slip > slipThreshold) {
+                    ReplayerEvents.EmissionSlip event = new ReplayerEvents.EmissionSlip();
+                    event.scheduledTime = emissionTime;
+                    event.slip = slip;
+                    event.commit();
+                }
+            }
+
+            // Formatters may keep references to the facts of the current database until its terminator has been
+            // printed. Therefore, emitted chunks are only recycled after the next terminator.
+            private void recycleEmittedChunks() {
+                for (ArrayList<OutputItem> chunk : emittedChunks) {
+                    if (!recycledChunks.offer(chunk)) {
+                        break;
+                    }
+                }
+                emittedChunks.clear();
+            }
+
             private void emitTimestamp(long relativeTimestamp) throws IOException {
                 final long timestamp = startTimeMillis + relativeTimestamp;
-                output.writeString(String.format(">LATENCY %d %d <\n", tsIdx, timestamp));
+                output.writeText(String.format(">LATENCY %d %d <\n", tsIdx, timestamp));
                 output.flush();
                 tsIdx++;
             }
@@ -199,8 +547,9 @@ public class Replayer {
                 long nextTimestampToEmit = timestampInterval + timestampInterval / 2;
                 long lastOutputTime = 0;
 
-                Iterator<OutputItem> outputItems = queue.take().iterator();
-                OutputItem outputItem = outputItems.next();
+                ArrayList<OutputItem> currentChunk = queue.take();
+                int currentIndex = 0;
+                OutputItem outputItem = currentChunk.get(currentIndex++);
                 startTimeMillis = System.currentTimeMillis();
                 startTimeNanos = System.nanoTime();
 
@@ -217,27 +566,38 @@ public class Replayer {
                         lastOutputTime = outputItem.emissionTime;
 
                     delay(outputItem.emissionTime);
+                    if (ReplayerEvents.EMISSION_SLIP.isEnabled()) {
+                        checkEmissionSlip(outputItem.emissionTime);
+                    }
                     outputItem.emit(output, formatter);
                     outputItem.reportDelivery(reporter, startTimeNanos);
+                    if (pooled && outputItem.endsDatabase()) {
+                        recycleEmittedChunks();
+                    }
 
-
-                    if (!outputItems.hasNext()) {
+                    if (currentIndex == currentChunk.size()) {
+                        if (pooled) {
+                            emittedChunks.add(currentChunk);
+                        }
                         ArrayList<OutputItem> chunk = queue.poll();
                         if (chunk == null) {
                             reporter.reportUnderrun();
-                            chunk = queue.take();
+                            chunk = takeAfterUnderrun();
                         }
-                        outputItems = chunk.iterator();
+                        currentChunk = chunk;
+                        currentIndex = 0;
                     }
-                    outputItem = outputItems.next();
+                    outputItem = currentChunk.get(currentIndex++);
                 }
 
                 if (timestampInterval > 0) {
                     emitTimestamp(lastOutputTime);
                 }
+                formatter.endOfOutput(output::writeString);
+                output.flush();
                 if (printEOF) {
-                    output.writeString(">EOF<\n");
-                    output.writeString(">TERMSTREAM<\n");
+                    output.writeText(">EOF<\n");
+                    output.writeText(">TERMSTREAM<\n");
                     output.flush();
                 }
                 reporter.reportEnd();
@@ -266,7 +626,7 @@ public class Replayer {
     }
 
     private static abstract class OutputItem {
-        final long emissionTime;
+        long emissionTime;
 
         OutputItem(long emissionTime) {
             this.emissionTime = emissionTime;
@@ -275,6 +635,14 @@ public class Replayer {
         abstract void emit(Output output, TraceFormatter formatter) throws IOException;
 
         abstract void reportDelivery(Reporter reporter, long startTime);
+
+        int getFactCount() {
+            return 1;
+        }
+
+        boolean endsDatabase() {
+            return false;
+        }
     }
 
     private static final class TerminalItem extends OutputItem {
@@ -294,7 +662,7 @@ public class Replayer {
     }
 
     private static final class FactItem extends OutputItem {
-        final Fact fact;
+        Fact fact;
 
         FactItem(long emissionTime, Fact fact) {
             super(emissionTime);
@@ -313,6 +681,41 @@ public class Replayer {
         void reportDelivery(Reporter reporter, long startTime) {
             reporter.reportDelivery(this, startTime);
         }
+
+        @Override
+        boolean endsDatabase() {
+            return fact.isTerminator();
+        }
+    }
+
+    private static final class BatchItem extends OutputItem {
+        final FactBatch batch;
+
+        BatchItem(long emissionTime, FactBatch batch) {
+            super(emissionTime);
+            this.batch = batch;
+        }
+
+        @Override
+        void emit(Output output, TraceFormatter formatter) throws IOException {
+            output.writeBatch(batch, formatter);
+            output.flush();
+        }
+
+        @Override
+        void reportDelivery(Reporter reporter, long startTime) {
+            reporter.reportDatabase(emissionTime, batch.getFactCount(), startTime);
+        }
+
+        @Override
+        int getFactCount() {
+            return Math.max(1, batch.getFactCount());
+        }
+
+        @Override
+        boolean endsDatabase() {
+            return true;
+        }
     }
 
     private static final class CommandItem extends OutputItem {
@@ -325,7 +728,7 @@ public class Replayer {
 
         @Override
         public void emit(Output output, TraceFormatter formatter) throws IOException {
-            output.writeString(command + "\n");
+            output.writeText(command + "\n");
             output.flush();
         }
 
@@ -334,23 +737,111 @@ public class Replayer {
         }
     }
 
+    // The binary trace formatter passes bytes as ISO-8859-1 strings.
+    private Charset outputCharset() {
+        return binaryOutput ? StandardCharsets.ISO_8859_1 : Charset.defaultCharset();
+    }
+
+    private Reader openInput(String filename) throws FileNotFoundException {
+        return new InputStreamReader(new FileInputStream(filename),
+                binaryInput ? StandardCharsets.ISO_8859_1 : Charset.defaultCharset());
+    }
+
     private abstract class Output {
+        private long databaseFormatNanos = 0;
+        private int databaseFacts = 0;
+        // Encodes batches, meta-facts, and commands in the binary wire format if set.
+        private WireEncoder encoder = null;
+
         abstract void writeString(String string) throws IOException;
 
+        abstract void writeFrame(byte[] frame, int length) throws IOException;
+
+        void setEncoder(WireEncoder encoder) {
+            this.encoder = encoder;
+        }
+
+        void writeText(String text) throws IOException {
+            if (encoder == null) {
+                writeString(text);
+            } else {
+                int length = encoder.encodeText(text);
+                writeFrame(encoder.getBuffer(), length);
+            }
+        }
+
         void writeFact(Fact fact, TraceFormatter formatter) throws IOException {
+            if (encoder != null) {
+                int length = encoder.encodeMeta(fact);
+                writeFrame(encoder.getBuffer(), length);
+                return;
+            }
+            if (!ReplayerEvents.FORMAT_DATABASE.isEnabled()) {
+                formatter.printFact(this::writeString, fact);
+                return;
+            }
+
+            long start = System.nanoTime();
             formatter.printFact(this::writeString, fact);
+            databaseFormatNanos += System.nanoTime() - start;
+            if (fact.isTerminator()) {
+                ReplayerEvents.FormatDatabase event = new ReplayerEvents.FormatDatabase();
+                event.timestamp = fact.getTimestamp();
+                event.facts = databaseFacts;
+                event.formatTime = databaseFormatNanos;
+                event.commit();
+                databaseFormatNanos = 0;
+                databaseFacts = 0;
+            } else {
+                ++databaseFacts;
+            }
+        }
+
+        void writeBatch(FactBatch batch, TraceFormatter formatter) throws IOException {
+            if (encoder != null) {
+                int length = encoder.encodeBatch(batch);
+                writeFrame(encoder.getBuffer(), length);
+                return;
+            }
+            if (!ReplayerEvents.FORMAT_DATABASE.isEnabled()) {
+                formatter.printBatch(this::writeString, batch);
+                return;
+            }
+
+            long start = System.nanoTime();
+            formatter.printBatch(this::writeString, batch);
+            ReplayerEvents.FormatDatabase event = new ReplayerEvents.FormatDatabase();
+            event.timestamp = batch.getTimestamp();
+            event.facts = batch.getFactCount();
+            event.formatTime = System.nanoTime() - start;
+            event.commit();
+        }
+
+        void flush() throws IOException {
+            if (ReplayerEvents.OUTPUT_FLUSH.isEnabled()) {
+                ReplayerEvents.OutputFlush event = new ReplayerEvents.OutputFlush();
+                event.begin();
+                flushOutput();
+                event.output = getClass().getSimpleName();
+                event.commit();
+            } else {
+                flushOutput();
+            }
         }
 
-        abstract void flush() throws IOException;
+        abstract void flushOutput() throws IOException;
     }
 
     private class KafkaOutput extends Output {
         private KafkaProducer<String, String> producer;
+        private KafkaProducer<String, byte[]> frameProducer;
         private int partition;
         private String topic;
 
-        KafkaOutput(int partition, KafkaProducer<String, String> producer) {
+        KafkaOutput(int partition, KafkaProducer<String, String> producer,
+                    KafkaProducer<String, byte[]> frameProducer) {
             this.producer = producer;
+            this.frameProducer = frameProducer;
             topic = MonitorKafkaConfig.getTopic();
             this.partition = partition;
         }
@@ -361,14 +852,42 @@ public class Replayer {
             producer.send(record);
         }
 
+        // Every record holds exactly one frame.
         @Override
-        void flush() {
-            producer.flush();
+        void writeFrame(byte[] frame, int length) {
+            ProducerRecord<String, byte[]> record =
+                    new ProducerRecord<>(topic, partition, "", Arrays.copyOf(frame, length));
+            frameProducer.send(record);
+        }
+
+        @Override
+        void flushOutput() {
+            if (producer != null) {
+                producer.flush();
+            }
+            if (frameProducer != null) {
+                frameProducer.flush();
+            }
+        }
+    }
+
+    private class NullOutput extends Output {
+        @Override
+        void writeString(String string) {
+        }
+
+        @Override
+        void writeFrame(byte[] frame, int length) {
+        }
+
+        @Override
+        void flushOutput() {
         }
     }
 
     private class StandardOutput extends Output {
-        private final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(System.out));
+        private final BufferedOutputStream stream = new BufferedOutputStream(System.out);
+        private final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(stream, outputCharset()));
 
         @Override
         void writeString(String string) throws IOException {
@@ -376,18 +895,25 @@ public class Replayer {
         }
 
         @Override
-        void flush() throws IOException {
+        void writeFrame(byte[] frame, int length) throws IOException {
+            stream.write(frame, 0, length);
+        }
+
+        @Override
+        void flushOutput() throws IOException {
             writer.flush();
         }
     }
 
     private class SocketOutput extends Output {
         private Socket clientSocket;
+        private BufferedOutputStream stream;
         private BufferedWriter writer;
 
         SocketOutput(Socket clientSocket) throws IOException {
             this.clientSocket = clientSocket;
-            writer = new BufferedWriter(new OutputStreamWriter(clientSocket.getOutputStream()));
+            stream = new BufferedOutputStream(clientSocket.getOutputStream());
+            writer = new BufferedWriter(new OutputStreamWriter(stream, outputCharset()));
             System.err.printf("Client connected: %s:%d\n",
                     clientSocket.getInetAddress().getHostAddress(),
                     clientSocket.getPort());
@@ -403,6 +929,7 @@ public class Replayer {
             } catch (IOException ignored) {
             }
             writer = null;
+            stream = null;
             clientSocket = null;
         }
 
@@ -426,7 +953,20 @@ public class Replayer {
         }
 
         @Override
-        void flush() throws IOException {
+        void writeFrame(byte[] frame, int length) throws IOException {
+            boolean tryAgain = true;
+            do {
+                try {
+                    stream.write(frame, 0, length);
+                    tryAgain = false;
+                } catch (IOException e) {
+                    handleError(e);
+                }
+            } while (tryAgain);
+        }
+
+        @Override
+        void flushOutput() throws IOException {
             boolean tryAgain = true;
             do {
                 try {
@@ -444,6 +984,9 @@ public class Replayer {
 
         void reportDelivery(FactItem item, long startTime);
 
+        // Reports a complete database of the given number of events, which has been delivered as a single item.
+        void reportDatabase(long emissionTime, int events, long startTime);
+
         void reportEnd();
     }
 
@@ -456,8 +999,65 @@ public class Replayer {
         public void reportDelivery(FactItem item, long startTime) {
         }
 
+        @Override
+        public void reportDatabase(long emissionTime, int events, long startTime) {
+        }
+
+        @Override
+        public void reportEnd() {
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+
+    private static class SummaryReporter implements Reporter {
+        private long startTime;
+        private long indices = 0;
+        private long events = 0;
+
+        @Override
+        public void reportUnderrun() {
+        }
+
+        @Override
+        public void reportDelivery(FactItem item, long startTime) {
+            this.startTime = startTime;
+            if (item.fact.isTerminator()) {
+                ++indices;
+            } else {
+                ++events;
+            }
+        }
+
+        @Override
+        public void reportDatabase(long emissionTime, int events, long startTime) {
+            this.startTime = startTime;
+            ++indices;
+            this.events += events;
+        }
+
         @Override
         public void reportEnd() {
+            double seconds = (double) (System.nanoTime() - startTime) / 1e9;
+            System.err.printf(Locale.ROOT,
+                    "{\"events\": %d, \"indices\": %d, \"seconds\": %.3f, \"events_per_second\": %.1f, " +
+                            "\"indices_per_second\": %.1f, \"peak_rss_kb\": %d}\n",
+                    events, indices, seconds, events / seconds, indices / seconds, peakRssKilobytes());
+        }
+
+        private static long peakRssKilobytes() {
+            try (BufferedReader status = new BufferedReader(new FileReader("/proc/self/status"))) {
+                String line;
+                while ((line = status.readLine()) != null) {
+                    if (line.startsWith("VmHWM:")) {
+                        return Long.parseLong(line.substring(6).replace("kB", "").trim());
+                    }
+                }
+            } catch (IOException | NumberFormatException ignored) {
+            }
+            return -1;
         }
 
         @Override
@@ -497,26 +1097,30 @@ public class Replayer {
         @Override
         public synchronized void reportDelivery(FactItem item, long startTime) {
             if (item.fact.isTerminator()) {
-                long now = System.nanoTime();
-
-                ++indices;
-                ++indicesSinceLastReport;
-
-                totalEvents += eventsInCurrentIndex;
-                eventsSinceLastReport += eventsInCurrentIndex;
-
-                long elapsedMillis = (now - startTime) / 1_000_000L;
-                currentDelay = Math.max(0, elapsedMillis - item.emissionTime);
-                delaySum += currentDelay;
-                maxDelay = Math.max(maxDelay, currentDelay);
-                maxDelaySinceLastReport = Math.max(maxDelaySinceLastReport, currentDelay);
-
+                reportDatabase(item.emissionTime, eventsInCurrentIndex, startTime);
                 eventsInCurrentIndex = 0;
             } else {
                 ++eventsInCurrentIndex;
             }
         }
 
+        @Override
+        public synchronized void reportDatabase(long emissionTime, int events, long startTime) {
+            long now = System.nanoTime();
+
+            ++indices;
+            ++indicesSinceLastReport;
+
+            totalEvents += events;
+            eventsSinceLastReport += events;
+
+            long elapsedMillis = (now - startTime) / 1_000_000L;
+            currentDelay = Math.max(0, elapsedMillis - emissionTime);
+            delaySum += currentDelay;
+            maxDelay = Math.max(maxDelay, currentDelay);
+            maxDelaySinceLastReport = Math.max(maxDelaySinceLastReport, currentDelay);
+        }
+
         @Override
         public synchronized void reportEnd() {
             running = false;
@@ -544,6 +1148,19 @@ public class Replayer {
                         totalSeconds, indexRate, eventRate, delaySeconds, currentMaxDelaySeconds, maxDelaySeconds, totalAverageDelaySeconds);
             }
 
+            if (ReplayerEvents.REPORTER_SNAPSHOT.isEnabled()) {
+                ReplayerEvents.ReporterSnapshot event = new ReplayerEvents.ReporterSnapshot();
+                event.indexRate = indexRate;
+                event.eventRate = eventRate;
+                event.currentDelay = currentDelay;
+                event.peakDelay = maxDelaySinceLastReport;
+                event.maxDelay = maxDelay;
+                event.indices = indices;
+                event.events = totalEvents;
+                event.underruns = underruns;
+                event.commit();
+            }
+
             indicesSinceLastReport = 0;
             eventsSinceLastReport = 0;
             currentDelay = 0;
@@ -603,33 +1220,38 @@ public class Replayer {
         @Override
         public void reportDelivery(FactItem item, long startTime) {
             if (item.fact.isTerminator()) {
-                long now = System.nanoTime();
-                long elapsedMillis = (now - startTime) / 1_000_000L;
-                long currentDelay = Math.max(0, elapsedMillis - item.emissionTime);
-                if (hardLimit >= 0 && currentDelay > hardLimit) {
-                    System.err.println("Hard latency limit reached");
-                    System.exit(10);
-                }
-
-                long emissionPeriod = item.emissionTime / 1_000L;
-                if (emissionPeriod != samples[PERIOD]) {
-                    readySamples.add(samples);
-                    samples = reuseSamples.poll();
-                    if (samples == null) {
-                        throw new RuntimeException("Reporting buffer underflow");
-                    }
-                    samples[PERIOD] = emissionPeriod;
-                    samples[UNDERRUNS] = 0;
-                    samples[NUM_SAMPLES] = 0;
-                }
-                if (LATENCIES + samples[NUM_SAMPLES] >= samples.length) {
-                    long[] oldSamples = samples;
-                    samples = new long[2 * oldSamples.length];
-                    System.arraycopy(oldSamples, 0, samples, 0, oldSamples.length);
+                reportDatabase(item.emissionTime, 0, startTime);
+            }
+        }
+
+        @Override
+        public void reportDatabase(long emissionTime, int events, long startTime) {
+            long now = System.nanoTime();
+            long elapsedMillis = (now - startTime) / 1_000_000L;
+            long currentDelay = Math.max(0, elapsedMillis - emissionTime);
+            if (hardLimit >= 0 && currentDelay > hardLimit) {
+                System.err.println("Hard latency limit reached");
+                System.exit(10);
+            }
+
+            long emissionPeriod = emissionTime / 1_000L;
+            if (emissionPeriod != samples[PERIOD]) {
+                readySamples.add(samples);
+                samples = reuseSamples.poll();
+                if (samples == null) {
+                    throw new RuntimeException("Reporting buffer underflow");
                 }
-                samples[LATENCIES + (int)samples[NUM_SAMPLES]] = currentDelay;
-                ++samples[NUM_SAMPLES];
+                samples[PERIOD] = emissionPeriod;
+                samples[UNDERRUNS] = 0;
+                samples[NUM_SAMPLES] = 0;
+            }
+            if (LATENCIES + samples[NUM_SAMPLES] >= samples.length) {
+                long[] oldSamples = samples;
+                samples = new long[2 * oldSamples.length];
+                System.arraycopy(oldSamples, 0, samples, 0, oldSamples.length);
             }
+            samples[LATENCIES + (int)samples[NUM_SAMPLES]] = currentDelay;
+            ++samples[NUM_SAMPLES];
         }
 
         @Override
@@ -650,6 +1272,18 @@ public class Replayer {
             }
             System.err.printf("%6d, %7d, %6d, %6d, %6d, %6d, %9d\n", samples[PERIOD], numSamples,
                     lat50, lat90, lat99, lat100, samples[UNDERRUNS]);
+
+            if (ReplayerEvents.LATENCY_SNAPSHOT.isEnabled()) {
+                ReplayerEvents.LatencySnapshot event = new ReplayerEvents.LatencySnapshot();
+                event.period = samples[PERIOD];
+                event.samples = numSamples;
+                event.p50 = lat50;
+                event.p90 = lat90;
+                event.p99 = lat99;
+                event.max = lat100;
+                event.underruns = samples[UNDERRUNS];
+                event.commit();
+            }
         }
 
         @Override
@@ -699,6 +1333,10 @@ public class Replayer {
                 parser = new DejavuTraceParser(); break;
             case "dejavu-timed":
                 parser = new DejavuTraceParser(true); break;
+            case "binary":
+                parser = new BinaryTraceParser(); break;
+            case "rawlog":
+                parser = new JsonTraceParser(Arrays.asList("_source", "@timestamp")); break;
             default:
                 invalidArgument();
                 throw new RuntimeException("unreachable");
@@ -708,6 +1346,27 @@ public class Replayer {
         return parser;
     }
 
+    private static List<Fact> readInitialState(String filename) throws IOException, ParseException {
+        List<Fact> facts = new ArrayList<>();
+        RegistrySnapshotParser parser = new RegistrySnapshotParser();
+        try (BufferedReader input = new BufferedReader(new InputStreamReader(new FileInputStream(filename),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = input.readLine()) != null) {
+                parser.parseLine(facts::add, line);
+            }
+        }
+        parser.endOfInput(facts::add);
+        return facts;
+    }
+
+    private void configureParser(TraceParser parser) {
+        parser.setSymbolTable(symbolTable);
+        if (parser instanceof MonpolyTraceParser) {
+            ((MonpolyTraceParser) parser).setStreaming(streaming);
+        }
+    }
+
     private static TraceFormatter getTraceFormatter(String format, boolean lazyQuotes) {
         switch (format) {
             case "csv":
@@ -724,6 +1383,11 @@ public class Replayer {
                 return new DejavuTraceFormatter();
             case "dejavu-linear":
                 return new DejavuLinearizingTraceFormatter();
+            case "binary":
+                return new BinaryTraceFormatter();
+            case "wire":
+                // Batches, meta-facts, and commands are encoded by the output (see setEncoder).
+                return new MonpolyTraceFormatter(lazyQuotes);
             default:
                 invalidArgument();
                 throw new RuntimeException("unreachable");
@@ -743,8 +1407,11 @@ public class Replayer {
         boolean markDatabaseEnd = true;
         boolean clearTopic = false;
         boolean kafkaOutput = false;
+        boolean nullOutput = false;
         boolean otherBranch = false;
         boolean lazyQuotes = true;
+        String initialStateFilename = null;
+        String quarantineFilename = null;
 
         try {
             for (int i = 0; i < args.length; ++i) {
@@ -765,6 +1432,30 @@ public class Replayer {
                         }
                         replayer.reporter = new PercentileReporter(Integer.parseInt(args[i]));
                         break;
+                    case "--pooled":
+                        replayer.pooled = true;
+                        break;
+                    case "--batch":
+                        replayer.batched = true;
+                        break;
+                    case "--stream":
+                        replayer.streaming = true;
+                        break;
+                    case "--quarantine":
+                        if (++i == args.length) {
+                            invalidArgument();
+                        }
+                        quarantineFilename = args[i];
+                        break;
+                    case "--initial-state":
+                        if (++i == args.length) {
+                            invalidArgument();
+                        }
+                        initialStateFilename = args[i];
+                        break;
+                    case "--summary":
+                        replayer.reporter = new SummaryReporter();
+                        break;
                     case "-a":
                         if (++i == args.length) {
                             invalidArgument();
@@ -774,12 +1465,24 @@ public class Replayer {
                     case "-e":
                         replayer.explicitEmissiontime = true;
                         break;
+                    case "--slip-threshold":
+                        if (++i == args.length) {
+                            invalidArgument();
+                        }
+                        replayer.slipThreshold = Long.parseLong(args[i]);
+                        break;
                     case "-q":
                         if (++i == args.length) {
                             invalidArgument();
                         }
                         replayer.queueCapacity = Integer.parseInt(args[i]);
                         break;
+                    case "--symbols":
+                        if (++i == args.length) {
+                            invalidArgument();
+                        }
+                        replayer.symbolTable = new SymbolTable(Integer.parseInt(args[i]));
+                        break;
                     case "-n":
                         if (++i == args.length) {
                             invalidArgument();
@@ -834,6 +1537,10 @@ public class Replayer {
                                 kafkaOutput = true;
                                 break;
                             }
+                            if (args[i].equals("null")) {
+                                nullOutput = true;
+                                break;
+                            }
                             invalidArgument();
                         }
                         outputHost = parts[0];
@@ -879,6 +1586,56 @@ public class Replayer {
         } catch (NumberFormatException e) {
             invalidArgument();
         }
+        if (formatterType.equals("wire")) {
+            replayer.wireOutput = true;
+            replayer.batched = true;
+        }
+        if (parserType.equals("binary")) {
+            if (replayer.explicitEmissiontime) {
+                System.err.println("Error: Binary input does not support explicit emission times");
+                System.exit(1);
+            }
+            replayer.binaryInput = true;
+        }
+        if (parserType.equals("rawlog")) {
+            if (replayer.explicitEmissiontime) {
+                System.err.println("Error: Raw log input does not support explicit emission times");
+                System.exit(1);
+            }
+            replayer.rawLogInput = true;
+        }
+        if (formatterType.equals("binary")) {
+            if (numInputFiles != 1 || kafkaOutput || otherBranch || replayer.timestampInterval > 0) {
+                System.err.println("Error: Binary output requires a single input and standard, socket, or null output");
+                System.exit(1);
+            }
+            replayer.binaryOutput = true;
+        }
+        if (quarantineFilename != null) {
+            if (numInputFiles != 1 || kafkaOutput || otherBranch || replayer.binaryInput || replayer.rawLogInput) {
+                System.err.println("Error: The quarantine requires a single input in a line-based text format");
+                System.exit(1);
+            }
+            // Streamed tuples are emitted before their database is known to be well-formed.
+            if (replayer.streaming && !replayer.batched) {
+                System.err.println("Error: The quarantine cannot be combined with --stream");
+                System.exit(1);
+            }
+            try {
+                replayer.quarantine = new Quarantine(quarantineFilename);
+            } catch (IOException e) {
+                System.err.println("Error: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        if (initialStateFilename != null) {
+            try {
+                replayer.initialState = readInitialState(initialStateFilename);
+            } catch (IOException | ParseException e) {
+                System.err.println("Error: Could not read the initial state: " + e.getMessage());
+                System.exit(1);
+            }
+        }
         if (numInputFiles == 1 && !kafkaOutput && !otherBranch) {
             BufferedReader input;
             Output output;
@@ -886,10 +1643,11 @@ public class Replayer {
             TraceFormatter formatter;
 
             if (inputFilename == null) {
-                input = new BufferedReader(new InputStreamReader(System.in));
+                input = new BufferedReader(new InputStreamReader(System.in,
+                        replayer.binaryInput ? StandardCharsets.ISO_8859_1 : Charset.defaultCharset()));
             } else {
                 try {
-                    input = new BufferedReader(new FileReader(inputFilename));
+                    input = new BufferedReader(replayer.openInput(inputFilename));
                 } catch (FileNotFoundException e) {
                     System.err.println("Error: " + e.getMessage());
                     System.exit(1);
@@ -897,7 +1655,9 @@ public class Replayer {
                 }
             }
 
-            if (outputHost == null) {
+            if (nullOutput) {
+                output = replayer.new NullOutput();
+            } else if (outputHost == null) {
                 output = replayer.new StandardOutput();
             } else {
                 try {
@@ -913,6 +1673,8 @@ public class Replayer {
             parser = getTraceParser(parserType, mode);
             formatter = getTraceFormatter(formatterType, lazyQuotes);
             formatter.setMarkDatabaseEnd(markDatabaseEnd);
+            replayer.configureParser(parser);
+            formatter.setSymbolTable(replayer.symbolTable);
             ReplayerWorker repWorker = replayer.new ReplayerWorker(input, output, parser, formatter, false);
 
             repWorker.run();
@@ -920,6 +1682,7 @@ public class Replayer {
             ArrayList<ReplayerWorker> replayerWorkers = new ArrayList<>();
             ArrayList<Thread> workerThreads = new ArrayList<>();
             KafkaProducer<String, String> producer = null;
+            KafkaProducer<String, byte[]> frameProducer = null;
             Properties props = new Properties();
             if (clearTopic) {
                 props.setProperty("clearTopic", Boolean.toString(clearTopic));
@@ -939,8 +1702,13 @@ public class Replayer {
             if(!kafkaOutput && outputHost == null) {
                 System.err.println("Socketouput with more than 1 partition requires outputhost");
             }
-            if (kafkaOutput)
+            if (kafkaOutput && replayer.wireOutput) {
+                Properties frameProps = MonitorKafkaConfig.getKafkaProps();
+                frameProps.setProperty("value.serializer", ByteArraySerializer.class.getName());
+                frameProducer = new KafkaProducer<>(frameProps);
+            } else if (kafkaOutput) {
                 producer = new KafkaProducer<>(MonitorKafkaConfig.getKafkaProps());
+            }
 
             ArrayList<SocketOutput> socketClients = new ArrayList<>();
             ServerSocket serverSocket = new ServerSocket(outputPort, -1, InetAddress.getByName(outputHost));
@@ -948,7 +1716,7 @@ public class Replayer {
                 BufferedReader input;
                 try {
                     System.out.println("first replayer worker reading from " + inputFilename + i + ".csv");
-                    input = new BufferedReader(new FileReader(inputFilename + i + ".csv"));
+                    input = new BufferedReader(replayer.openInput(inputFilename + i + ".csv"));
                 } catch (FileNotFoundException e) {
                     System.err.println("Error: " + e.getMessage());
                     System.exit(1);
@@ -956,7 +1724,7 @@ public class Replayer {
                 }
                 Output output;
                 if (kafkaOutput) {
-                    output = replayer.new KafkaOutput(i, producer);
+                    output = replayer.new KafkaOutput(i, producer, frameProducer);
                 } else {
                     Socket sock = serverSocket.accept();
                     SocketOutput socketOutput = replayer.new SocketOutput(sock);
@@ -966,6 +1734,8 @@ public class Replayer {
                 TraceParser parser = getTraceParser(parserType, mode);
                 TraceFormatter formatter = getTraceFormatter(formatterType, lazyQuotes);
                 formatter.setMarkDatabaseEnd(markDatabaseEnd);
+                replayer.configureParser(parser);
+                formatter.setSymbolTable(replayer.symbolTable);
                 replayerWorkers.add(replayer.new ReplayerWorker(input, output, parser, formatter, true));
             }
 
@@ -0,0 +1,197 @@
+package ch.ethz.infsec.replayer;
+
+import jdk.jfr.*;
+
+/**
+ * Java Flight Recorder events emitted by the replayer.
+ * <p>
+ * All events are disabled by default. They can be enabled with the settings file {@code replayer.jfc}, e.g.,
+ * {@code jcmd <pid> JFR.start settings=replayer.jfc}. Callers must check the corresponding {@link Type} before
+ * creating an event object, such that nothing is allocated on the hot path while the events are disabled.
+ * <p>
+ * The flight recorder is only available since JDK 8u262. On older JVMs, the types are never enabled, and the event
+ * classes, which extend {@link Event}, are never loaded.
+ */
+final class ReplayerEvents {
+    static final boolean AVAILABLE = isAvailable();
+
+    static final Type CHUNK_HANDOFF = AVAILABLE ? new Type(ChunkHandoff.class) : Type.UNAVAILABLE;
+    static final Type UNDERRUN = AVAILABLE ? new Type(Underrun.class) : Type.UNAVAILABLE;
+    static final Type EMISSION_SLIP = AVAILABLE ? new Type(EmissionSlip.class) : Type.UNAVAILABLE;
+    static final Type FORMAT_DATABASE = AVAILABLE ? new Type(FormatDatabase.class) : Type.UNAVAILABLE;
+    static final Type OUTPUT_FLUSH = AVAILABLE ? new Type(OutputFlush.class) : Type.UNAVAILABLE;
+    static final Type REPORTER_SNAPSHOT = AVAILABLE ? new Type(ReporterSnapshot.class) : Type.UNAVAILABLE;
+    static final Type LATENCY_SNAPSHOT = AVAILABLE ? new Type(LatencySnapshot.class) : Type.UNAVAILABLE;
+
+    /**
+     * Wraps an {@link EventType}, which is null if there is no flight recorder.
+     */
+    static final class Type {
+        static final Type UNAVAILABLE = new Type();
+
+        private final EventType eventType;
+
+        private Type() {
+            this.eventType = null;
+        }
+
+        private Type(Class<? extends Event> eventClass) {
+            this.eventType = EventType.getEventType(eventClass);
+        }
+
+        boolean isEnabled() {
+            return eventType != null && eventType.isEnabled();
+        }
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, ReplayerEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private ReplayerEvents() {
+    }
+
+    @Name("ch.ethz.infsec.replayer.ChunkHandoff")
+    @Label("Chunk Handoff")
+    @Category("Replayer")
+    @Description("The input thread passes a chunk of output items to the queue; the duration is the time spent blocked")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class ChunkHandoff extends Event {
+        @Label("Chunk Size")
+        int chunkSize;
+
+        @Label("Queued Chunks")
+        int queuedChunks;
+    }
+
+    @Name("ch.ethz.infsec.replayer.Underrun")
+    @Label("Underrun")
+    @Category("Replayer")
+    @Description("The output thread found the queue empty; the duration is the time spent waiting for the next chunk")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Underrun extends Event {
+    }
+
+    @Name("ch.ethz.infsec.replayer.EmissionSlip")
+    @Label("Emission Slip")
+    @Category("Replayer")
+    @Description("An output item was emitted later than scheduled by more than the slip threshold")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class EmissionSlip extends Event {
+        @Label("Scheduled Time")
+        @Description("Emission time relative to the start of the replay")
+        @Timespan(Timespan.MILLISECONDS)
+        long scheduledTime;
+
+        @Label("Slip")
+        @Timespan(Timespan.MILLISECONDS)
+        long slip;
+    }
+
+    @Name("ch.ethz.infsec.replayer.FormatDatabase")
+    @Label("Format Database")
+    @Category("Replayer")
+    @Description("Formatting of all facts of one database")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class FormatDatabase extends Event {
+        @Label("Time-stamp")
+        long timestamp;
+
+        @Label("Facts")
+        int facts;
+
+        @Label("Format Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long formatTime;
+    }
+
+    @Name("ch.ethz.infsec.replayer.OutputFlush")
+    @Label("Output Flush")
+    @Category("Replayer")
+    @Description("Flush of the output (standard output, socket, or Kafka producer)")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class OutputFlush extends Event {
+        @Label("Output")
+        String output;
+    }
+
+    @Name("ch.ethz.infsec.replayer.ReporterSnapshot")
+    @Label("Reporter Snapshot")
+    @Category("Replayer")
+    @Description("Statistics reported by -v and -vv")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class ReporterSnapshot extends Event {
+        @Label("Index Rate")
+        @Frequency
+        double indexRate;
+
+        @Label("Event Rate")
+        @Frequency
+        double eventRate;
+
+        @Label("Current Delay")
+        @Timespan(Timespan.MILLISECONDS)
+        long currentDelay;
+
+        @Label("Peak Delay")
+        @Timespan(Timespan.MILLISECONDS)
+        long peakDelay;
+
+        @Label("Maximum Delay")
+        @Timespan(Timespan.MILLISECONDS)
+        long maxDelay;
+
+        @Label("Indices")
+        long indices;
+
+        @Label("Events")
+        long events;
+
+        @Label("Underruns")
+        long underruns;
+    }
+
+    @Name("ch.ethz.infsec.replayer.LatencySnapshot")
+    @Label("Latency Snapshot")
+    @Category("Replayer")
+    @Description("Latency percentiles reported by --latency-report")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class LatencySnapshot extends Event {
+        @Label("Period")
+        long period;
+
+        @Label("Samples")
+        long samples;
+
+        @Label("50th Percentile")
+        @Timespan(Timespan.MILLISECONDS)
+        long p50;
+
+        @Label("90th Percentile")
+        @Timespan(Timespan.MILLISECONDS)
+        long p90;
+
+        @Label("99th Percentile")
+        @Timespan(Timespan.MILLISECONDS)
+        long p99;
+
+        @Label("Maximum")
+        @Timespan(Timespan.MILLISECONDS)
+        long max;
+
+        @Label("Underruns")
+        long underruns;
+    }
+}
@@ -0,0 +1,60 @@
+package ch.ethz.infsec.replayer;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReplayerEventsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(timeout = 20000)
+    public void testRecording() throws Exception {
+        assertTrue(ReplayerEvents.AVAILABLE);
+
+        File input = folder.newFile("trace.log");
+        Files.write(input.toPath(), Arrays.asList("@1 p(a)", "@2 p(b) q(1,2);", "@3"), StandardCharsets.UTF_8);
+        Path settings = Paths.get(System.getProperty("basedir")).getParent().resolve("replayer.jfc");
+        Path dump = folder.getRoot().toPath().resolve("replay.jfr");
+
+        try (Recording recording = new Recording(Configuration.create(settings))) {
+            recording.start();
+            // A negative threshold makes every output item an emission slip.
+            Replayer.main(new String[]{"-a", "0", "-i", "monpoly", "-f", "monpoly", "-o", "null",
+                    "--slip-threshold", "-1", input.getPath()});
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        HashMap<String, Integer> counts = new HashMap<>();
+        List<RecordedEvent> formatEvents = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+            String name = event.getEventType().getName();
+            counts.merge(name, 1, Integer::sum);
+            if (name.equals("ch.ethz.infsec.replayer.FormatDatabase")) {
+                formatEvents.add(event);
+            }
+        }
+        assertEquals(3, formatEvents.size());
+        assertEquals(1L, formatEvents.get(0).getLong("timestamp"));
+        assertEquals(2, formatEvents.get(1).getInt("facts"));
+        // Three terminators and three facts.
+        assertEquals(Integer.valueOf(6), counts.get("ch.ethz.infsec.replayer.EmissionSlip"));
+    }
+}
@@ -1,20 +1,32 @@
 package ch.ethz.infsec.replayer;
 
+import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactBatch;
+import ch.ethz.infsec.trace.parser.WireDecoder;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.junit.After;
-import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Semaphore;
 
 import static org.junit.Assert.assertEquals;
 
 public class ReplayerIT {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private Process process;
     private ArrayList<Pair<Integer, String>> output;
     private Semaphore doneReading;
@@ -24,13 +36,16 @@ public class ReplayerIT {
         return Math.round((current - first) / 100.0f) * 100;
     }
 
-    @Before
-    public void setUp() throws IOException {
+    private ProcessBuilder replayer(String... arguments) {
         Path executablePath = Paths.get(System.getProperty("basedir")).getParent().resolve("replayer.sh");
-        process = new ProcessBuilder(executablePath.toString(),
-                "-a", "10", "-f", "monpoly", "-t", "1000", "-T", "TIME:", "-C", "CMD:", "-no-end-marker")
-                .redirectError(ProcessBuilder.Redirect.INHERIT)
-                .start();
+        ArrayList<String> command = new ArrayList<>();
+        command.add(executablePath.toString());
+        command.addAll(Arrays.asList(arguments));
+        return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT);
+    }
+
+    private void startReplayer(String... arguments) throws IOException {
+        process = replayer(arguments).start();
 
         output = new ArrayList<>();
         doneReading = new Semaphore(0);
@@ -69,8 +84,21 @@ public class ReplayerIT {
         }
     }
 
+    // Replays the input as fast as possible and returns the output.
+    private byte[] replay(String input, String... arguments) throws IOException, InterruptedException {
+        process = replayer(arguments).start();
+        try (OutputStream stdin = process.getOutputStream()) {
+            stdin.write(input.getBytes(StandardCharsets.UTF_8));
+        }
+        final byte[] result = IOUtils.toByteArray(process.getInputStream());
+        process.waitFor();
+        assertEquals(0, process.exitValue());
+        return result;
+    }
+
     @Test(timeout = 5000)
     public void testReplayer() throws IOException, InterruptedException {
+        startReplayer("-a", "10", "-f", "monpoly", "-t", "1000", "-T", "TIME:", "-C", "CMD:", "-no-end-marker");
         final String input = "abc, tp=1, ts=1000, x=foo\n" +
                 "abc, tp=1, ts=1000, x=bar\n" +
                 "def, tp=2, ts=1000, x=1234\n" +
@@ -98,4 +126,109 @@ public class ReplayerIT {
                 Pair.of(3000, "TIME:3000")
         ), output);
     }
+
+    @Test(timeout = 5000)
+    public void testInitialStateWire() throws Exception {
+        final File snapshot = folder.newFile("registry.json");
+        Files.write(snapshot.toPath(), Arrays.asList("{",
+                "  \"node_record_n1\": {\"http\": {\"ip_addr\": \"::1\"}},",
+                "  \"subnet_list\": {\"subnets\": [\"(principal-id)s1\"]},",
+                "  \"subnet_record_s1\": {\"membership\": [\"(principal-id)n1\"], \"subnet_type\": 2}",
+                "}"), StandardCharsets.UTF_8);
+        final byte[] frames = replay("@5 p(a);\n>cmd<\n@6 p(b);\n",
+                "-a", "0", "-i", "monpoly", "-f", "wire", "--initial-state", snapshot.getPath());
+
+        final ArrayList<Object> decoded = new ArrayList<>();
+        final WireDecoder decoder = new WireDecoder();
+        final InputStream stream = new ByteArrayInputStream(frames);
+        final WireDecoder.Sink sink = new WireDecoder.Sink() {
+            @Override
+            public void acceptBatch(FactBatch batch) {
+                decoded.add(batch);
+            }
+
+            @Override
+            public void acceptMeta(Fact fact) {
+                decoded.add(fact);
+            }
+
+            @Override
+            public void acceptText(String text) {
+                decoded.add(text);
+            }
+        };
+        while (decoder.readFrame(stream, sink)) {
+        }
+
+        final FactBatch initialState = new FactBatch(5, 0);
+        initialState.add("originally_in_ic", Arrays.asList("n1", "::1"));
+        initialState.add("original_subnet_type", Arrays.asList("s1", "System"));
+        initialState.add("originally_in_subnet", Arrays.asList("n1", "::1", "s1"));
+        final FactBatch first = new FactBatch(5, 1);
+        first.add("p", Collections.singletonList("a"));
+        final FactBatch second = new FactBatch(6, 2);
+        second.add("p", Collections.singletonList("b"));
+        assertEquals(Arrays.asList(initialState, first, ">cmd<\n", second), decoded);
+    }
+
+    // Replays the input with a quarantine and returns the output, followed by the quarantine file's lines.
+    private List<String> replayQuarantined(String input, String... arguments) throws IOException, InterruptedException {
+        final File quarantine = new File(folder.getRoot(), "quarantine.tsv");
+        final ArrayList<String> allArguments = new ArrayList<>(Arrays.asList(arguments));
+        allArguments.add("--quarantine");
+        allArguments.add(quarantine.getPath());
+        final byte[] replayed = replay(input, allArguments.toArray(new String[0]));
+        final ArrayList<String> result = new ArrayList<>(Arrays.asList(
+                new String(replayed, StandardCharsets.UTF_8).split("\n")));
+        result.add("--");
+        result.addAll(Files.readAllLines(quarantine.toPath(), StandardCharsets.UTF_8));
+        return result;
+    }
+
+    @Test(timeout = 5000)
+    public void testQuarantineCsv() throws Exception {
+        assertEquals(Arrays.asList(
+                "@1 a(a);",
+                "@2 b(b);",
+                "--",
+                "2\t19\tInvalid input near \"p, tp=abc, ts=10, x0=a\"\tp, tp=abc, ts=10, x0=a"
+        ), replayQuarantined("a, tp=1, ts=1, x=a\np, tp=abc, ts=10, x0=a\nb, tp=2, ts=2, x=b\n",
+                "-a", "0", "-i", "csv", "-f", "monpoly"));
+    }
+
+    @Test(timeout = 5000)
+    public void testQuarantineMonpoly() throws Exception {
+        assertEquals(Arrays.asList(
+                "@1 p(a);",
+                "@2 p(c);",
+                "--",
+                "2\t9\tInvalid input near \"@x p(b);\"\t@x p(b);"
+        ), replayQuarantined("@1 p(a);\n@x p(b);\n@2 p(c);\n", "-a", "0", "-i", "monpoly", "-f", "monpoly"));
+    }
+
+    @Test(timeout = 5000)
+    public void testQuarantineUnterminatedMonpoly() throws Exception {
+        // The database at @2 is only found to be malformed in the next line, which starts a valid database.
+        assertEquals(Arrays.asList(
+                "@1 p(a);",
+                "@3 p(d);",
+                "@4 p(e);",
+                "--",
+                "2\t9\tInvalid input near \"@3 p(d)\"\t@2 p(c",
+                "5\t33\tInvalid input near \"\"\t@5 p(f)",
+                "6\t41\tInvalid input near \"\"\tq(g"
+        ), replayQuarantined("@1 p(a);\n@2 p(c\n@3 p(d)\n@4 p(e);\n@5 p(f)\nq(g\n",
+                "-a", "0", "-i", "monpoly", "-f", "monpoly"));
+    }
+
+    @Test(timeout = 5000)
+    public void testRawLog() throws Exception {
+        final byte[] output = replay("[{'_source': {'@timestamp': '1970-01-01T00:00:01Z', 'a': None}},\n" +
+                        " {'_source': {'@timestamp': '1970-01-01T00:00:02.5Z', 'b': 'it\\'s'}}]\n",
+                "-a", "0", "-i", "rawlog", "-f", "monpoly");
+        assertEquals(Arrays.asList(
+                "@1000 str(2,1970-01-01T00:00:01Z) key(1,\"@timestamp\",2)(1,a,3)(0,_source,1) null(3) root(0);",
+                "@2500 str(6,1970-01-01T00:00:02.5Z)(7,\"it's\") key(5,\"@timestamp\",6)(5,b,7)(4,_source,5) root(4);"
+        ), Arrays.asList(new String(output, StandardCharsets.UTF_8).split("\n")));
+    }
 }
@@ -1,12 +1,18 @@
 package ch.ethz.infsec.trace.formatter;
 
+import ch.ethz.infsec.monitor.SymbolTable;
+
 import java.io.Serializable;
+import java.util.Arrays;
 
 abstract class AbstractMonpolyFormatter implements Serializable {
     private static final long serialVersionUID = -1321702340607633180L;
 
     protected boolean lazyQuotes = true;
     StringBuilder builder = new StringBuilder();
+    private transient SymbolTable symbolTable;
+    // Encoded arguments, indexed by symbol code.
+    private transient String[] encodedSymbols;
 
     private boolean isSimpleStringChar(char c) {
         return (c >= '0' && c <= '9') ||
@@ -57,6 +63,24 @@ abstract class AbstractMonpolyFormatter implements Serializable {
     }
 
     void printArgument(Object value, StringBuilder builder) {
+        if (symbolTable != null && value instanceof String) {
+            final int code = symbolTable.getCode((String) value);
+            if (code >= 0) {
+                String encoded = encodedSymbols[code];
+                if (encoded == null) {
+                    final StringBuilder encodedBuilder = new StringBuilder();
+                    encodeArgument(value, encodedBuilder);
+                    encoded = encodedBuilder.toString();
+                    encodedSymbols[code] = encoded;
+                }
+                builder.append(encoded);
+                return;
+            }
+        }
+        encodeArgument(value, builder);
+    }
+
+    private void encodeArgument(Object value, StringBuilder builder) {
         if (lazyQuotes) {
             printString(value.toString(), builder);
         } else {
@@ -70,5 +94,13 @@ abstract class AbstractMonpolyFormatter implements Serializable {
 
     public void setLazyQuotes(boolean lazyQuotes) {
         this.lazyQuotes = lazyQuotes;
+        if (encodedSymbols != null) {
+            Arrays.fill(encodedSymbols, null);
+        }
+    }
+
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+        this.encodedSymbols = symbolTable == null ? null : new String[symbolTable.getCodeLimit()];
     }
 }
@@ -0,0 +1,307 @@
+package ch.ethz.infsec.trace.formatter;
+
+import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactBatch;
+import ch.ethz.infsec.monitor.FactSerializer;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Writes traces in the block-structured binary trace format, which is read by
+ * {@link ch.ethz.infsec.trace.parser.BinaryTraceParser}.
+ * <p>
+ * A file starts with {@link #MAGIC} and {@link #VERSION}, followed by records. Every record consists of a kind byte,
+ * the length of its payload (four bytes), and the payload. Fixed-size integers are big-endian; all other integers
+ * are varints, which are zig-zag encoded if they may be negative.
+ * <ul>
+ *     <li>{@link #BLOCK_RECORD}: the first and last time-stamp of the block (eight bytes each), the first time-point,
+ *     the number of entries, the block's string dictionary (count, then UTF-8 strings with their length), and the
+ *     entries. A database entry ({@link #DATABASE_ENTRY}) has the difference of its time-stamp to the previous one
+ *     (initially the first time-stamp), the number of relations, and for every relation the dictionary index of its
+ *     name, its arity, the number of tuples, and its columns. A column starts with one of {@link FactSerializer}'s
+ *     type tags if all its values have that type, and {@link #MIXED_COLUMN} otherwise, in which case every value has
+ *     its own tag. Strings are dictionary indices. A meta entry ({@link #META_ENTRY}) has the name, the number of
+ *     arguments, and the tagged arguments of a meta-fact.</li>
+ *     <li>{@link #DIRECTORY_RECORD}: the number of blocks, and for every block its file offset, first and last
+ *     time-stamp, first time-point, and number of databases. It is followed by the offset of the directory record
+ *     (eight bytes) and {@link #MAGIC}, such that readers can find the directory from the end of the file.</li>
+ * </ul>
+ * Databases are numbered consecutively from 0, and their tuples are grouped by relation. A block is written once it holds {@code blockFacts} facts or
+ * {@code blockDatabases} databases; the remaining block and the directory are written by {@link #endOfOutput}.
+ * <p>
+ * The output is binary. It is passed to the sink as ISO-8859-1 strings, i.e., every character is one byte, and must
+ * be written with that charset.
+ */
+public class BinaryTraceFormatter implements TraceFormatter, Serializable {
+    private static final long serialVersionUID = 8843806720546003718L;
+
+    public static final byte[] MAGIC = {'M', 'F', 'T', 'B'};
+    public static final byte VERSION = 1;
+
+    public static final byte BLOCK_RECORD = 1;
+    public static final byte DIRECTORY_RECORD = 2;
+
+    public static final byte DATABASE_ENTRY = 1;
+    public static final byte META_ENTRY = 2;
+
+    public static final byte MIXED_COLUMN = 0;
+
+    public static final int RECORD_HEADER_LENGTH = 5;
+    public static final int FOOTER_LENGTH = 12;
+
+    private final int blockFacts;
+    private final int blockDatabases;
+
+    private final ByteOutput entries = new ByteOutput(1 << 16);
+    private final ByteOutput record = new ByteOutput(1 << 16);
+    private final HashMap<String, Integer> dictionary = new HashMap<>();
+    private final ArrayList<String> dictionaryStrings = new ArrayList<>();
+    private final ArrayList<Long> directory = new ArrayList<>();
+
+    private FactBatch currentDatabase = null;
+    private long nextTimepoint = 0;
+    private long offset = 0;
+    private boolean headerWritten = false;
+
+    private int entryCount = 0;
+    private int databaseCount = 0;
+    private int factCount = 0;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long previousTimestamp;
+    private long firstTimepoint;
+
+    public BinaryTraceFormatter(int blockFacts, int blockDatabases) {
+        this.blockFacts = blockFacts;
+        this.blockDatabases = blockDatabases;
+    }
+
+    public BinaryTraceFormatter() {
+        this(16384, 4096);
+    }
+
+    private void emit(TraceConsumer sink, ByteOutput bytes) throws IOException {
+        sink.accept(new String(bytes.getBuffer(), 0, bytes.size(), StandardCharsets.ISO_8859_1));
+        offset += bytes.size();
+    }
+
+    private void writeHeader(TraceConsumer sink) throws IOException {
+        if (!headerWritten) {
+            record.clear();
+            record.writeBytes(MAGIC, 0, MAGIC.length);
+            record.writeByte(VERSION);
+            emit(sink, record);
+            headerWritten = true;
+        }
+    }
+
+    private int symbol(String value) {
+        Integer index = dictionary.get(value);
+        if (index == null) {
+            index = dictionaryStrings.size();
+            dictionary.put(value, index);
+            dictionaryStrings.add(value);
+        }
+        return index;
+    }
+
+    private static byte typeOf(Object value) {
+        if (value instanceof String) {
+            return FactSerializer.STRING_TYPE;
+        } else if (value instanceof Long) {
+            return FactSerializer.LONG_TYPE;
+        } else if (value instanceof Integer) {
+            return FactSerializer.INT_TYPE;
+        } else if (value instanceof Double) {
+            return FactSerializer.DOUBLE_TYPE;
+        }
+        throw new IllegalArgumentException("Cannot serialize argument type: " +
+                (value == null ? "null" : value.getClass().getCanonicalName()));
+    }
+
+    private void writeValue(byte type, Object value) {
+        switch (type) {
+            case FactSerializer.STRING_TYPE:
+                entries.writeVarInt(symbol((String) value));
+                break;
+            case FactSerializer.LONG_TYPE:
+                entries.writeZigZag((Long) value);
+                break;
+            case FactSerializer.INT_TYPE:
+                entries.writeZigZag((Integer) value);
+                break;
+            default:
+                entries.writeDouble((Double) value);
+                break;
+        }
+    }
+
+    private void writeColumn(Object[] values, int size) {
+        byte type = size == 0 ? MIXED_COLUMN : typeOf(values[0]);
+        for (int row = 1; row < size && type != MIXED_COLUMN; ++row) {
+            if (typeOf(values[row]) != type) {
+                type = MIXED_COLUMN;
+            }
+        }
+        entries.writeByte(type);
+        for (int row = 0; row < size; ++row) {
+            if (type == MIXED_COLUMN) {
+                final byte valueType = typeOf(values[row]);
+                entries.writeByte(valueType);
+                writeValue(valueType, values[row]);
+            } else {
+                writeValue(type, values[row]);
+            }
+        }
+    }
+
+    private void addDatabase(TraceConsumer sink, FactBatch batch) throws IOException {
+        final long timestamp = batch.getTimestamp();
+        if (databaseCount == 0) {
+            firstTimestamp = timestamp;
+            previousTimestamp = timestamp;
+            firstTimepoint = nextTimepoint;
+        }
+        entries.writeByte(DATABASE_ENTRY);
+        entries.writeZigZag(timestamp - previousTimestamp);
+        entries.writeVarInt(batch.getRelationCount());
+        for (int relation = 0; relation < batch.getRelationCount(); ++relation) {
+            final int arity = batch.getArity(relation);
+            final int size = batch.getSize(relation);
+            entries.writeVarInt(symbol(batch.getRelationName(relation)));
+            entries.writeVarInt(arity);
+            entries.writeVarInt(size);
+            for (int column = 0; column < arity; ++column) {
+                writeColumn(batch.getColumn(relation, column), size);
+            }
+        }
+        previousTimestamp = timestamp;
+        lastTimestamp = timestamp;
+        ++entryCount;
+        ++databaseCount;
+        ++nextTimepoint;
+        factCount += batch.getFactCount();
+        if (factCount >= blockFacts || databaseCount >= blockDatabases) {
+            writeBlock(sink);
+        }
+    }
+
+    private void addMeta(Fact fact) {
+        entries.writeByte(META_ENTRY);
+        entries.writeVarInt(symbol(fact.getName()));
+        entries.writeVarInt(fact.getArity());
+        for (Object argument : fact.getArguments()) {
+            final byte type = typeOf(argument);
+            entries.writeByte(type);
+            writeValue(type, argument);
+        }
+        ++entryCount;
+    }
+
+    private void writeBlock(TraceConsumer sink) throws IOException {
+        writeHeader(sink);
+        if (entryCount == 0) {
+            return;
+        }
+        if (databaseCount == 0) {
+            // A block with meta-facts only.
+            firstTimestamp = lastTimestamp = -1;
+            firstTimepoint = nextTimepoint;
+        }
+        directory.add(offset);
+        directory.add(firstTimestamp);
+        directory.add(lastTimestamp);
+        directory.add(firstTimepoint);
+        directory.add((long) databaseCount);
+
+        record.clear();
+        record.writeByte(BLOCK_RECORD);
+        record.skip(4);
+        record.writeLong(firstTimestamp);
+        record.writeLong(lastTimestamp);
+        record.writeZigZag(firstTimepoint);
+        record.writeVarInt(entryCount);
+        record.writeVarInt(dictionaryStrings.size());
+        for (String value : dictionaryStrings) {
+            record.writeUtf8(value);
+        }
+        record.writeBytes(entries.getBuffer(), 0, entries.size());
+        record.setInt(1, record.size() - RECORD_HEADER_LENGTH);
+        emit(sink, record);
+
+        entries.clear();
+        dictionary.clear();
+        dictionaryStrings.clear();
+        entryCount = 0;
+        databaseCount = 0;
+        factCount = 0;
+    }
+
+    @Override
+    public void printFact(TraceConsumer sink, Fact fact) throws IOException {
+        if (fact.isMeta()) {
+            addMeta(fact);
+        } else if (fact.isTerminator()) {
+            final FactBatch database = currentDatabase == null ?
+                    new FactBatch(fact.getTimestamp(), nextTimepoint) : currentDatabase;
+            currentDatabase = null;
+            addDatabase(sink, database);
+        } else {
+            if (currentDatabase == null) {
+                currentDatabase = new FactBatch(fact.getTimestamp(), nextTimepoint);
+            }
+            currentDatabase.add(fact);
+        }
+    }
+
+    @Override
+    public void printBatch(TraceConsumer sink, FactBatch batch) throws IOException {
+        addDatabase(sink, batch);
+    }
+
+    /**
+     * Writes the pending block and the block directory. Facts of an incomplete database are dropped.
+     */
+    @Override
+    public void endOfOutput(TraceConsumer sink) throws IOException {
+        writeBlock(sink);
+        currentDatabase = null;
+        final long directoryOffset = offset;
+        record.clear();
+        record.writeByte(DIRECTORY_RECORD);
+        record.skip(4);
+        final int blocks = directory.size() / 5;
+        record.writeVarInt(blocks);
+        for (int i = 0; i < directory.size(); i += 5) {
+            record.writeVarLong(directory.get(i));
+            record.writeZigZag(directory.get(i + 1));
+            record.writeZigZag(directory.get(i + 2));
+            record.writeZigZag(directory.get(i + 3));
+            record.writeVarLong(directory.get(i + 4));
+        }
+        record.setInt(1, record.size() - RECORD_HEADER_LENGTH);
+        record.writeLong(directoryOffset);
+        record.writeBytes(MAGIC, 0, MAGIC.length);
+        emit(sink, record);
+        directory.clear();
+    }
+
+    @Override
+    public boolean getMarkDatabaseEnd() {
+        return true;
+    }
+
+    @Override
+    public void setMarkDatabaseEnd(boolean markDatabaseEnd) {
+        // ignore
+    }
+
+    @Override
+    public boolean inInitialState() {
+        return currentDatabase == null;
+    }
+}
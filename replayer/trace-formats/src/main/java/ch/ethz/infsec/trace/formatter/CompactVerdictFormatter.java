@@ -0,0 +1,158 @@
+package ch.ethz.infsec.trace.formatter;
+
+import ch.ethz.infsec.monitor.Fact;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prints verdicts, as parsed by {@link ch.ethz.infsec.trace.parser.MonpolyVerdictParser}, as intervals of consecutive
+ * time-points at which a tuple is reported. A tuple that is reported at many consecutive time-points thus results in
+ * two lines instead of one per time-point:
+ * <pre>
+ *     @10 (time point 3): opened (a,1)
+ *     @10..25 (time points 3..7): closed (a,1)
+ * </pre>
+ * The first line is printed with the verdict that first reports the tuple. The second one is printed with the first
+ * verdict that does not report it anymore, i.e., a verdict for a later time-point other than the next one, or a verdict
+ * for the next time-point without the tuple. Time-points for which there is no verdict have no violations, so a gap
+ * also closes all open intervals. The intervals that are still open at the end of the output are closed, too.
+ * <p>
+ * The open intervals are kept in a hash index keyed by the tuple. A verdict only touches the intervals of its own
+ * tuples and of the previous verdict's tuples.
+ * <p>
+ * Like {@link MonpolyVerdictFormatter}, this is an alternative for the monitor's verdict output. It is not an output
+ * format of the replayer, whose inputs are traces: their facts have relation names and no verdict tuples.
+ */
+public class CompactVerdictFormatter extends AbstractMonpolyFormatter implements TraceFormatter, Serializable {
+    private static final long serialVersionUID = -5177806327540632096L;
+
+    private static final class Interval implements Serializable {
+        private static final long serialVersionUID = 2945810632815207416L;
+
+        final long firstTimestamp;
+        final long firstTimepoint;
+        long lastTimestamp;
+        long lastTimepoint;
+
+        Interval(long timestamp, long timepoint) {
+            this.firstTimestamp = timestamp;
+            this.firstTimepoint = timepoint;
+            this.lastTimestamp = timestamp;
+            this.lastTimepoint = timepoint;
+        }
+    }
+
+    private final LinkedHashMap<List<Object>, Interval> openIntervals = new LinkedHashMap<>();
+    // The tuples of the current verdict, which is complete once its terminator arrives.
+    private final ArrayList<List<Object>> tuples = new ArrayList<>();
+    private final ArrayList<List<Object>> openedTuples = new ArrayList<>();
+    private long previousTimepoint = -1;
+
+    private void printTuple(List<Object> tuple) {
+        if (tuple.isEmpty()) {
+            builder.append("true");
+        } else {
+            builder.append('(');
+            printArgument(tuple.get(0), builder);
+            for (int i = 1; i < tuple.size(); ++i) {
+                builder.append(',');
+                printArgument(tuple.get(i), builder);
+            }
+            builder.append(')');
+        }
+    }
+
+    private void printLine(TraceConsumer sink) throws IOException {
+        builder.append('\n');
+        sink.accept(builder.toString());
+        builder.setLength(0);
+    }
+
+    private void printOpened(TraceConsumer sink, List<Object> tuple, long timestamp, long timepoint)
+            throws IOException {
+        builder.append('@').append(timestamp).append(" (time point ").append(timepoint).append("): opened ");
+        printTuple(tuple);
+        printLine(sink);
+    }
+
+    private void printClosed(TraceConsumer sink, List<Object> tuple, Interval interval) throws IOException {
+        builder.append('@').append(interval.firstTimestamp).append("..").append(interval.lastTimestamp)
+                .append(" (time points ").append(interval.firstTimepoint).append("..").append(interval.lastTimepoint)
+                .append("): closed ");
+        printTuple(tuple);
+        printLine(sink);
+    }
+
+    // Closes the open intervals that have not been extended to the given time-point, or all of them if it is -1.
+    private void closeIntervals(TraceConsumer sink, long timepoint) throws IOException {
+        final Iterator<Map.Entry<List<Object>, Interval>> iterator = openIntervals.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<List<Object>, Interval> entry = iterator.next();
+            if (entry.getValue().lastTimepoint != timepoint) {
+                printClosed(sink, entry.getKey(), entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    private void finishVerdict(TraceConsumer sink, long timestamp, long timepoint) throws IOException {
+        if (timepoint != previousTimepoint + 1) {
+            closeIntervals(sink, -1);
+        }
+        for (List<Object> tuple : tuples) {
+            final Interval interval = openIntervals.get(tuple);
+            if (interval == null) {
+                openIntervals.put(tuple, new Interval(timestamp, timepoint));
+                openedTuples.add(tuple);
+            } else {
+                interval.lastTimestamp = timestamp;
+                interval.lastTimepoint = timepoint;
+            }
+        }
+        closeIntervals(sink, timepoint);
+        for (List<Object> tuple : openedTuples) {
+            printOpened(sink, tuple, timestamp, timepoint);
+        }
+        tuples.clear();
+        openedTuples.clear();
+        previousTimepoint = timepoint;
+    }
+
+    @Override
+    public void printFact(TraceConsumer sink, Fact fact) throws IOException {
+        if (fact.isTerminator()) {
+            finishVerdict(sink, fact.getTimestamp(), fact.getTimepoint());
+        } else {
+            assert fact.getName().equals("");
+            // The arguments are copied because pooled facts reuse them.
+            tuples.add(new ArrayList<>(fact.getArguments()));
+        }
+    }
+
+    @Override
+    public void endOfOutput(TraceConsumer sink) throws IOException {
+        closeIntervals(sink, -1);
+        previousTimepoint = -1;
+    }
+
+    @Override
+    public boolean getMarkDatabaseEnd() {
+        return true;
+    }
+
+    @Override
+    public void setMarkDatabaseEnd(boolean markDatabaseEnd) {
+        // ignored: there are no databases in verdicts
+    }
+
+    @Override
+    public boolean inInitialState() {
+        return tuples.isEmpty();
+    }
+}
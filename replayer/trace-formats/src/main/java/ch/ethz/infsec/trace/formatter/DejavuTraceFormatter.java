@@ -49,4 +49,3 @@ public class DejavuTraceFormatter implements TraceFormatter, Serializable {
         return builder.length() == 0;
     }
 }
-
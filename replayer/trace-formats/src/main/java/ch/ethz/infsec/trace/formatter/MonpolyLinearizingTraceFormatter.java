@@ -1,6 +1,7 @@
 package ch.ethz.infsec.trace.formatter;
 
 import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactBatch;
 
 import java.io.IOException;
 import java.util.List;
@@ -12,6 +13,13 @@ public class MonpolyLinearizingTraceFormatter extends MonpolyTraceFormatter {
         super(lazyQuotes);
     }
 
+    @Override
+    public void printBatch(TraceConsumer sink, FactBatch batch) throws IOException {
+        for (Fact fact : batch.toFacts()) {
+            printFact(sink, fact);
+        }
+    }
+
     @Override
     public void printFact(TraceConsumer sink, Fact fact) throws IOException {
         if (!fact.isTerminator()) {
@@ -1,6 +1,7 @@
 package ch.ethz.infsec.trace.formatter;
 
 import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactBatch;
 
 import java.io.IOException;
 import java.io.Serializable;
@@ -57,6 +58,52 @@ public class MonpolyTraceFormatter extends AbstractMonpolyFormatter implements T
         initialState = true;
     }
 
+    private void printTuples(FactBatch batch, int relation) {
+        final int arity = batch.getArity(relation);
+        builder.append(' ');
+        builder.append(batch.getRelationName(relation));
+        for (int row = 0; row < batch.getSize(relation); ++row) {
+            builder.append('(');
+            for (int i = 0; i < arity; ++i) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                printArgument(batch.getColumn(relation, i)[row], builder);
+            }
+            builder.append(')');
+        }
+    }
+
+    // Relations are printed in the same order as by printFact, namely the order in which they first occurred.
+    @Override
+    public void printBatch(TraceConsumer sink, FactBatch batch) throws IOException {
+        builder.append('@');
+        builder.append(batch.getTimestamp());
+        int printed = 0;
+        for (String name : currentDatabase.keySet()) {
+            final int relation = batch.getRelationIndex(name);
+            if (relation >= 0) {
+                printTuples(batch, relation);
+                ++printed;
+            }
+        }
+        if (printed < batch.getRelationCount()) {
+            for (int relation = 0; relation < batch.getRelationCount(); ++relation) {
+                final String name = batch.getRelationName(relation);
+                if (!currentDatabase.containsKey(name)) {
+                    currentDatabase.put(name, new ArrayList<>());
+                    printTuples(batch, relation);
+                }
+            }
+        }
+        if (markDatabaseEnd) {
+            builder.append(';');
+        }
+        builder.append('\n');
+        sink.accept(builder.toString());
+        builder.setLength(0);
+    }
+
     @Override
     public void printFact(TraceConsumer sink, Fact fact) throws IOException {
         if (fact.isMeta()) {
@@ -1,6 +1,8 @@
 package ch.ethz.infsec.trace.formatter;
 
 import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactBatch;
+import ch.ethz.infsec.monitor.SymbolTable;
 
 import java.io.IOException;
 import java.io.Serializable;
@@ -13,9 +15,31 @@ public interface TraceFormatter extends Serializable {
 
     void printFact(TraceConsumer sink, Fact fact) throws IOException;
 
+    /**
+     * Prints a complete database. The formatter must be in its initial state. Formatters may override this to print
+     * the batch without converting it into facts.
+     */
+    default void printBatch(TraceConsumer sink, FactBatch batch) throws IOException {
+        for (Fact fact : batch.toFacts()) {
+            printFact(sink, fact);
+        }
+    }
+
+    /**
+     * Prints any trailing output once all facts have been printed, e.g., an index of the output.
+     */
+    default void endOfOutput(TraceConsumer sink) throws IOException {
+    }
+
     boolean getMarkDatabaseEnd();
 
     void setMarkDatabaseEnd(boolean markDatabaseEnd);
 
     boolean inInitialState();
+
+    /**
+     * Lets the formatter cache the encoding of the table's symbols (if supported). A null table disables caching.
+     */
+    default void setSymbolTable(SymbolTable symbolTable) {
+    }
 }
@@ -0,0 +1,147 @@
+package ch.ethz.infsec.trace.formatter;
+
+import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactBatch;
+import ch.ethz.infsec.monitor.FactSerializer;
+
+import java.util.HashMap;
+
+/**
+ * Encodes a stream of fact batches into the compact binary wire format, which is read by
+ * {@link ch.ethz.infsec.trace.parser.WireDecoder}.
+ * <p>
+ * The stream is a sequence of frames. Every frame starts with the length of its body as a four-byte big-endian
+ * integer, followed by the body, whose first byte is the frame kind:
+ * <ul>
+ *     <li>{@link #BATCH_FRAME}: the time-stamp and time-point as zig-zag varint differences to the previous batch
+ *     (initially 0), the number of relations, and for every relation its name, arity, and number of tuples, followed
+ *     by the values column by column.</li>
+ *     <li>{@link #META_FRAME}: the name of a meta-fact, the number of arguments, and the arguments.</li>
+ *     <li>{@link #TEXT_FRAME}: a string that is passed through verbatim, e.g., a command.</li>
+ * </ul>
+ * Values start with one of {@link FactSerializer}'s type tags. Integers are zig-zag varints and floats have eight
+ * bytes. Strings and relation names are written once as UTF-8 with their length and added to a per-stream
+ * dictionary (up to {@link #DICTIONARY_CAPACITY} strings of at most {@link #MAX_DICTIONARY_LENGTH} characters);
+ * repetitions are written as {@link #STRING_REFERENCE_TYPE} and the dictionary index.
+ * <p>
+ * The encoder is stateful and must be used for a single stream only.
+ */
+public class WireEncoder {
+    public static final byte BATCH_FRAME = 1;
+    public static final byte META_FRAME = 2;
+    public static final byte TEXT_FRAME = 3;
+
+    public static final byte STRING_REFERENCE_TYPE = 5;
+
+    public static final int DICTIONARY_CAPACITY = 1 << 16;
+    public static final int MAX_DICTIONARY_LENGTH = 256;
+
+    static final int HEADER_LENGTH = 4;
+
+    private final HashMap<String, Integer> dictionary = new HashMap<>();
+    private final ByteOutput output = new ByteOutput(4096);
+    private long previousTimestamp = 0;
+    private long previousTimepoint = 0;
+
+    /**
+     * Returns the buffer holding the last encoded frame, starting at index 0. The buffer is reused by the next call.
+     */
+    public byte[] getBuffer() {
+        return output.getBuffer();
+    }
+
+    /**
+     * Encodes the batch and returns the length of the frame.
+     */
+    public int encodeBatch(FactBatch batch) {
+        beginFrame(BATCH_FRAME);
+        output.writeZigZag(batch.getTimestamp() - previousTimestamp);
+        output.writeZigZag(batch.getTimepoint() - previousTimepoint);
+        previousTimestamp = batch.getTimestamp();
+        previousTimepoint = batch.getTimepoint();
+        final int relationCount = batch.getRelationCount();
+        output.writeVarInt(relationCount);
+        for (int relation = 0; relation < relationCount; ++relation) {
+            final int arity = batch.getArity(relation);
+            final int size = batch.getSize(relation);
+            writeString(batch.getRelationName(relation));
+            output.writeVarInt(arity);
+            output.writeVarInt(size);
+            for (int column = 0; column < arity; ++column) {
+                final Object[] values = batch.getColumn(relation, column);
+                for (int row = 0; row < size; ++row) {
+                    writeValue(values[row]);
+                }
+            }
+        }
+        return endFrame();
+    }
+
+    /**
+     * Encodes a meta-fact and returns the length of the frame.
+     */
+    public int encodeMeta(Fact fact) {
+        if (!fact.isMeta()) {
+            throw new IllegalArgumentException("Not a meta-fact: " + fact);
+        }
+        beginFrame(META_FRAME);
+        writeString(fact.getName());
+        output.writeVarInt(fact.getArity());
+        for (Object argument : fact.getArguments()) {
+            writeValue(argument);
+        }
+        return endFrame();
+    }
+
+    /**
+     * Encodes a string that is passed through verbatim and returns the length of the frame.
+     */
+    public int encodeText(String text) {
+        beginFrame(TEXT_FRAME);
+        output.writeUtf8(text);
+        return endFrame();
+    }
+
+    private void beginFrame(byte kind) {
+        output.clear();
+        output.skip(HEADER_LENGTH);
+        output.writeByte(kind);
+    }
+
+    private int endFrame() {
+        output.setInt(0, output.size() - HEADER_LENGTH);
+        return output.size();
+    }
+
+    private void writeString(String value) {
+        final Integer index = dictionary.get(value);
+        if (index != null) {
+            output.writeByte(STRING_REFERENCE_TYPE);
+            output.writeVarInt(index);
+            return;
+        }
+        output.writeByte(FactSerializer.STRING_TYPE);
+        output.writeUtf8(value);
+        if (dictionary.size() < DICTIONARY_CAPACITY && value.length() <= MAX_DICTIONARY_LENGTH) {
+            dictionary.put(value, dictionary.size());
+        }
+    }
+
+    private void writeValue(Object value) {
+        if (value instanceof String) {
+            writeString((String) value);
+        } else if (value instanceof Long) {
+            output.writeByte(FactSerializer.LONG_TYPE);
+            output.writeZigZag((Long) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(FactSerializer.INT_TYPE);
+            output.writeZigZag((Integer) value);
+        } else if (value instanceof Double) {
+            output.writeByte(FactSerializer.DOUBLE_TYPE);
+            output.writeDouble((Double) value);
+        } else {
+            throw new IllegalArgumentException("Cannot serialize argument type: " +
+                    (value == null ? "null" : value.getClass().getCanonicalName()));
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package ch.ethz.infsec.trace.parser;
+
+import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactBatch;
+import ch.ethz.infsec.monitor.FactSerializer;
+import ch.ethz.infsec.monitor.SymbolTable;
+import ch.ethz.infsec.trace.formatter.BinaryTraceFormatter;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads traces in the block-structured binary trace format written by {@link BinaryTraceFormatter}.
+ * <p>
+ * The input may be split arbitrarily; incomplete records are buffered until the rest arrives. Strings passed to
+ * {@link #parseLine(Consumer, String)} are interpreted as ISO-8859-1 encoded bytes and are not separated by line
+ * breaks. The parser emits the facts of every database followed by a terminator. Concatenated files are accepted.
+ */
+public class BinaryTraceParser implements TraceParser, Serializable {
+    private static final long serialVersionUID = 4528139902437781051L;
+
+    private static final int HEADER_LENGTH = BinaryTraceFormatter.MAGIC.length + 1;
+
+    /**
+     * An entry of the block directory.
+     */
+    public static final class BlockInfo {
+        private final long offset;
+        private final long firstTimestamp;
+        private final long lastTimestamp;
+        private final long firstTimepoint;
+        private final long databaseCount;
+
+        BlockInfo(long offset, long firstTimestamp, long lastTimestamp, long firstTimepoint, long databaseCount) {
+            this.offset = offset;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+            this.firstTimepoint = firstTimepoint;
+            this.databaseCount = databaseCount;
+        }
+
+        /**
+         * Returns the position of the block record in the file.
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Returns the time-stamp of the block's first database, or -1 if the block has no databases.
+         */
+        public long getFirstTimestamp() {
+            return firstTimestamp;
+        }
+
+        /**
+         * Returns the time-stamp of the block's last database, or -1 if the block has no databases.
+         */
+        public long getLastTimestamp() {
+            return lastTimestamp;
+        }
+
+        public long getFirstTimepoint() {
+            return firstTimepoint;
+        }
+
+        public long getDatabaseCount() {
+            return databaseCount;
+        }
+    }
+
+    private final ByteInput input = new ByteInput();
+    private byte[] pending = new byte[1 << 16];
+    private int pendingLength = 0;
+    private boolean expectHeader = true;
+    private boolean expectFooter = false;
+    private final ArrayList<String> dictionary = new ArrayList<>();
+    private Object[][] columns = new Object[0][];
+    private transient SymbolTable symbolTable;
+
+    /**
+     * Parses the next part of the input.
+     */
+    public void parse(Consumer<Fact> sink, byte[] bytes, int offset, int length) throws ParseException {
+        append(bytes, offset, length);
+        consume(sink, null);
+    }
+
+    @Override
+    public void parseLine(Consumer<Fact> sink, String line) throws ParseException {
+        final byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+        parse(sink, bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void parseBatches(FactBatchCollector collector, String line) throws ParseException {
+        final byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+        append(bytes, 0, bytes.length);
+        consume(collector, collector);
+    }
+
+    @Override
+    public void endOfInput(Consumer<Fact> sink) throws ParseException {
+        if (pendingLength > 0) {
+            reset();
+            throw new ParseException("truncated input");
+        }
+    }
+
+    @Override
+    public void endOfBatches(FactBatchCollector collector) throws ParseException {
+        endOfInput(collector);
+    }
+
+    /**
+     * Makes the parser expect a record instead of the file header, e.g., if the input starts at the offset of a
+     * block taken from the directory.
+     */
+    public void skipFileHeader() {
+        expectHeader = false;
+    }
+
+    private void append(byte[] bytes, int offset, int length) {
+        if (pending.length - pendingLength < length) {
+            pending = Arrays.copyOf(pending, Math.max(2 * pending.length, pendingLength + length));
+        }
+        System.arraycopy(bytes, offset, pending, pendingLength, length);
+        pendingLength += length;
+    }
+
+    private void reset() {
+        pendingLength = 0;
+        expectHeader = true;
+        expectFooter = false;
+        dictionary.clear();
+        input.release();
+    }
+
+    private void consume(Consumer<Fact> sink, FactBatchCollector collector) throws ParseException {
+        int position = 0;
+        try {
+            while (true) {
+                final int available = pendingLength - position;
+                if (expectHeader) {
+                    if (available < HEADER_LENGTH) {
+                        break;
+                    }
+                    checkMagic(pending, position);
+                    if (pending[position + HEADER_LENGTH - 1] != BinaryTraceFormatter.VERSION) {
+                        throw new ParseException("unsupported version " + pending[position + HEADER_LENGTH - 1]);
+                    }
+                    position += HEADER_LENGTH;
+                    expectHeader = false;
+                } else if (expectFooter) {
+                    if (available < BinaryTraceFormatter.FOOTER_LENGTH) {
+                        break;
+                    }
+                    checkMagic(pending, position + 8);
+                    position += BinaryTraceFormatter.FOOTER_LENGTH;
+                    expectFooter = false;
+                    expectHeader = true;
+                } else {
+                    if (available < BinaryTraceFormatter.RECORD_HEADER_LENGTH) {
+                        break;
+                    }
+                    final byte kind = pending[position];
+                    final int length = ByteInput.getInt(pending, position + 1);
+                    if (length < 0) {
+                        throw new ParseException("record length " + length);
+                    }
+                    if (available - BinaryTraceFormatter.RECORD_HEADER_LENGTH < length) {
+                        break;
+                    }
+                    final int body = position + BinaryTraceFormatter.RECORD_HEADER_LENGTH;
+                    if (kind == BinaryTraceFormatter.BLOCK_RECORD) {
+                        readBlock(pending, body, length, sink, collector);
+                    } else if (kind == BinaryTraceFormatter.DIRECTORY_RECORD) {
+                        expectFooter = true;
+                    } else {
+                        throw new ParseException("record kind " + kind);
+                    }
+                    position = body + length;
+                }
+            }
+        } catch (ParseException e) {
+            reset();
+            if (collector != null) {
+                collector.discard();
+            }
+            throw e;
+        }
+        System.arraycopy(pending, position, pending, 0, pendingLength - position);
+        pendingLength -= position;
+    }
+
+    private static void checkMagic(byte[] bytes, int offset) throws ParseException {
+        for (int i = 0; i < BinaryTraceFormatter.MAGIC.length; ++i) {
+            if (bytes[offset + i] != BinaryTraceFormatter.MAGIC[i]) {
+                throw new ParseException("not a binary trace");
+            }
+        }
+    }
+
+    private void readBlock(byte[] bytes, int offset, int length, Consumer<Fact> sink, FactBatchCollector collector)
+            throws ParseException {
+        input.reset(bytes, offset, length);
+        try {
+            long timestamp = input.readLong();
+            input.readLong();
+            long timepoint = input.readZigZag();
+            final int entryCount = input.readCount();
+            dictionary.clear();
+            final int dictionarySize = input.readCount();
+            for (int i = 0; i < dictionarySize; ++i) {
+                final String value = input.readUtf8();
+                dictionary.add(symbolTable == null ? value : symbolTable.intern(value));
+            }
+            for (int entry = 0; entry < entryCount; ++entry) {
+                final byte kind = input.readByte();
+                if (kind == BinaryTraceFormatter.DATABASE_ENTRY) {
+                    timestamp += input.readZigZag();
+                    final FactBatch batch = collector == null ? new FactBatch(timestamp, timepoint) :
+                            collector.current(timestamp, timepoint);
+                    readDatabase(batch);
+                    if (collector == null) {
+                        batch.toFacts().forEach(sink);
+                    } else {
+                        collector.finishDatabase(timestamp, timepoint);
+                    }
+                    ++timepoint;
+                } else if (kind == BinaryTraceFormatter.META_ENTRY) {
+                    final String name = readString();
+                    final int arity = input.readCount();
+                    final ArrayList<Object> arguments = new ArrayList<>(arity);
+                    for (int i = 0; i < arity; ++i) {
+                        arguments.add(readValue(input.readByte()));
+                    }
+                    sink.accept(Fact.meta(name, arguments));
+                } else {
+                    throw new ParseException("entry kind " + kind);
+                }
+            }
+            if (!input.atEnd()) {
+                throw new ParseException("trailing bytes in block");
+            }
+        } finally {
+            input.release();
+        }
+    }
+
+    private void readDatabase(FactBatch batch) throws ParseException {
+        final int relationCount = input.readCount();
+        for (int relation = 0; relation < relationCount; ++relation) {
+            final String name = readString();
+            final int arity = input.readCount();
+            final int size = input.readCount();
+            if (columns.length < arity) {
+                columns = Arrays.copyOf(columns, arity);
+            }
+            for (int column = 0; column < arity; ++column) {
+                if (columns[column] == null || columns[column].length < size) {
+                    columns[column] = new Object[Math.max(size, 16)];
+                }
+                final Object[] values = columns[column];
+                final byte type = input.readByte();
+                if (type == BinaryTraceFormatter.MIXED_COLUMN) {
+                    for (int row = 0; row < size; ++row) {
+                        values[row] = readValue(input.readByte());
+                    }
+                } else {
+                    for (int row = 0; row < size; ++row) {
+                        values[row] = readValue(type);
+                    }
+                }
+            }
+            final Object[] arguments = new Object[arity];
+            final List<Object> tuple = Arrays.asList(arguments);
+            for (int row = 0; row < size; ++row) {
+                for (int column = 0; column < arity; ++column) {
+                    arguments[column] = columns[column][row];
+                }
+                batch.add(name, tuple);
+            }
+        }
+    }
+
+    private String readString() throws ParseException {
+        final long index = input.readVarLong();
+        if (index < 0 || index >= dictionary.size()) {
+            throw new ParseException("dictionary index " + index);
+        }
+        return dictionary.get((int) index);
+    }
+
+    private Object readValue(byte type) throws ParseException {
+        switch (type) {
+            case FactSerializer.STRING_TYPE:
+                return readString();
+            case FactSerializer.LONG_TYPE:
+                return input.readZigZag();
+            case FactSerializer.INT_TYPE:
+                return (int) input.readZigZag();
+            case FactSerializer.DOUBLE_TYPE:
+                return input.readDouble();
+            default:
+                throw new ParseException("type tag " + type);
+        }
+    }
+
+    /**
+     * Reads the block directory from the end of a binary trace file.
+     *
+     * @throws ParseException if the file does not end with a directory
+     */
+    public static List<BlockInfo> readDirectory(Path path) throws IOException, ParseException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_LENGTH + BinaryTraceFormatter.FOOTER_LENGTH) {
+                throw new ParseException("not a binary trace");
+            }
+            final ByteBuffer footer = ByteBuffer.allocate(BinaryTraceFormatter.FOOTER_LENGTH);
+            readFully(channel, footer, size - BinaryTraceFormatter.FOOTER_LENGTH);
+            checkMagic(footer.array(), 8);
+            final long directoryOffset = footer.getLong(0);
+            final long directoryLength = size - BinaryTraceFormatter.FOOTER_LENGTH - directoryOffset;
+            if (directoryOffset < HEADER_LENGTH || directoryLength < BinaryTraceFormatter.RECORD_HEADER_LENGTH ||
+                    directoryLength > Integer.MAX_VALUE) {
+                throw new ParseException("directory offset " + directoryOffset);
+            }
+            final ByteBuffer record = ByteBuffer.allocate((int) directoryLength);
+            readFully(channel, record, directoryOffset);
+            final byte[] bytes = record.array();
+            if (bytes[0] != BinaryTraceFormatter.DIRECTORY_RECORD ||
+                    ByteInput.getInt(bytes, 1) != bytes.length - BinaryTraceFormatter.RECORD_HEADER_LENGTH) {
+                throw new ParseException("directory record");
+            }
+            final ByteInput input = new ByteInput();
+            input.reset(bytes, BinaryTraceFormatter.RECORD_HEADER_LENGTH,
+                    bytes.length - BinaryTraceFormatter.RECORD_HEADER_LENGTH);
+            final int blockCount = input.readCount();
+            final ArrayList<BlockInfo> blocks = new ArrayList<>(blockCount);
+            for (int i = 0; i < blockCount; ++i) {
+                blocks.add(new BlockInfo(input.readVarLong(), input.readZigZag(), input.readZigZag(),
+                        input.readZigZag(), input.readVarLong()));
+            }
+            return blocks;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    @Override
+    public void setTerminatorMode(TerminatorMode mode) {
+        // ignore
+    }
+
+    @Override
+    public void setTraceId(int id, int numTraces) {
+        // ignore
+    }
+
+    @Override
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+}
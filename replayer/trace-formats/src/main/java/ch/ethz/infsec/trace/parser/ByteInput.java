@@ -0,0 +1,108 @@
+package ch.ethz.infsec.trace.parser;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the primitive encodings of the binary formats from a byte array (see
+ * {@link ch.ethz.infsec.trace.formatter.WireEncoder}). Reading past the limit raises a {@link ParseException}.
+ */
+final class ByteInput {
+    private byte[] input;
+    private int position;
+    private int limit;
+
+    void reset(byte[] input, int offset, int length) {
+        this.input = input;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    void release() {
+        input = null;
+    }
+
+    int position() {
+        return position;
+    }
+
+    boolean atEnd() {
+        return position == limit;
+    }
+
+    void require(int bytes) throws ParseException {
+        if (limit - position < bytes) {
+            throw new ParseException("truncated input");
+        }
+    }
+
+    byte peekByte() throws ParseException {
+        require(1);
+        return input[position];
+    }
+
+    byte readByte() throws ParseException {
+        require(1);
+        return input[position++];
+    }
+
+    static int getInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) |
+                ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    int readInt() throws ParseException {
+        require(4);
+        final int value = getInt(input, position);
+        position += 4;
+        return value;
+    }
+
+    long readLong() throws ParseException {
+        require(8);
+        long value = 0;
+        for (int i = 0; i < 8; ++i) {
+            value = (value << 8) | (input[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    double readDouble() throws ParseException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    long readVarLong() throws ParseException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new ParseException("malformed varint");
+    }
+
+    long readZigZag() throws ParseException {
+        final long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads a non-negative varint that fits into an int.
+     */
+    int readCount() throws ParseException {
+        final long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new ParseException("count " + value);
+        }
+        return (int) value;
+    }
+
+    String readUtf8() throws ParseException {
+        final int length = readCount();
+        require(length);
+        final String value = new String(input, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+}
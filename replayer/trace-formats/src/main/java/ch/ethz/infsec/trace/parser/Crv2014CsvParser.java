@@ -1,33 +1,32 @@
 package ch.ethz.infsec.trace.parser;
 
-import ch.ethz.infsec.monitor.DataType;
 import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.Numbers;
 import ch.ethz.infsec.monitor.Signature;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.List;
 import java.util.function.Consumer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class Crv2014CsvParser implements TraceParser, Serializable {
     private static final long serialVersionUID = -919182766017476946L;
 
-    private final Signature signature;
+    private final SignatureDecoder decoder;
     private Long lastTimePoint;
     private Long lastTimestamp;
     private boolean alreadyTerminated;
     private boolean genTermsforTp;
     private boolean genTermsforTs;
+    private final ArrayList<Object> fields;
 
     public Crv2014CsvParser(Signature signature) {
-        this.signature = signature;
+        this.decoder = signature == null ? null : new SignatureDecoder(signature);
         this.lastTimePoint = null;
         this.lastTimestamp = null;
         this.alreadyTerminated = false;
         this.genTermsforTp = true;
         this.genTermsforTs = true;
+        this.fields = new ArrayList<>();
     }
 
     private void terminateEvent(Consumer<Fact> sink) {
@@ -64,107 +63,176 @@ public class Crv2014CsvParser implements TraceParser, Serializable {
         beginNewEvent(sink, null, null);
     }
 
-    private static final Pattern commandArgumentPattern = Pattern.compile("\\s*(<|[^<\" ]+|\"[^\"]*\")");
+    // Like String.trim, but on a range of the line.
+    private static int trimStart(String line, int start, int end) {
+        while (start < end && line.charAt(start) <= ' ') {
+            ++start;
+        }
+        return start;
+    }
+
+    private static int trimEnd(String line, int start, int end) {
+        while (end > start && line.charAt(end - 1) <= ' ') {
+            --end;
+        }
+        return end;
+    }
+
+    // Returns the position of the character within the range, or the end of the range if there is none.
+    private static int find(String line, char c, int start, int end) {
+        final int i = line.indexOf(c, start);
+        return i < 0 || i > end ? end : i;
+    }
+
+    private static long parseLong(String line, int start, int end) throws ParseException {
+        final int valueStart = trimStart(line, start, end);
+        try {
+            return Numbers.parseLong(line, valueStart, trimEnd(line, valueStart, end));
+        } catch (NumberFormatException e) {
+            throw new ParseException(line);
+        }
+    }
+
+    // The whitespace matched by \s in regular expressions.
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Scans the next argument of a command, which is either "<", a string without spaces, quotes and "<", or a quoted
+     * string. Returns the end of the argument, or -1 if there is none.
+     */
+    private static int scanCommandArgument(String line, int start, int end) {
+        if (start == end) {
+            return -1;
+        }
+        final char first = line.charAt(start);
+        if (first == '<') {
+            return start + 1;
+        }
+        if (first == '"') {
+            final int quote = find(line, '"', start + 1, end);
+            return quote == end ? -1 : quote + 1;
+        }
+        int i = start;
+        while (i < end && line.charAt(i) != '<' && line.charAt(i) != '"' && line.charAt(i) != ' ') {
+            ++i;
+        }
+        return i;
+    }
+
+    private void parseCommand(Consumer<Fact> sink, String line, int start, int end) throws ParseException {
+        int argumentStart = start;
+        while (argumentStart < end && isSpace(line.charAt(argumentStart))) {
+            ++argumentStart;
+        }
+        int argumentEnd = scanCommandArgument(line, argumentStart, end);
+        if (argumentEnd < 0) {
+            throw new ParseException(line.substring(start - 1, end));
+        }
+        final String name = line.substring(argumentStart, argumentEnd);
+        final ArrayList<Object> arguments = new ArrayList<>();
+        while (true) {
+            argumentStart = argumentEnd;
+            while (argumentStart < end && isSpace(line.charAt(argumentStart))) {
+                ++argumentStart;
+            }
+            argumentEnd = scanCommandArgument(line, argumentStart, end);
+            if (argumentEnd < 0 || line.charAt(argumentStart) == '<') {
+                break;
+            }
+            if (line.charAt(argumentStart) == '"') {
+                arguments.add(line.substring(argumentStart + 1, argumentEnd - 1));
+            } else {
+                arguments.add(line.substring(argumentStart, argumentEnd));
+            }
+        }
+        sink.accept(Fact.meta(name, arguments));
+    }
 
+    /**
+     * Parses a line in a single pass from left to right. Event lines consist of the relation name, the time-point, the
+     * time-stamp, and the arguments, separated by commas; all but the name are preceded by a key and "=", which is
+     * ignored. Values are decoded from their range of the line.
+     */
     @Override
     public void parseLine(Consumer<Fact> sink, String line) throws ParseException {
-        final String trimmed = line.trim();
-        if (trimmed.isEmpty()) {
+        final int lineEnd = trimEnd(line, 0, line.length());
+        final int lineStart = trimStart(line, 0, lineEnd);
+        if (lineStart == lineEnd) {
             return;
         }
 
-        if (trimmed.equals(";;")) {
+        if (lineEnd - lineStart == 2 && line.startsWith(";;", lineStart)) {
             terminateEvent(sink);
             alreadyTerminated = true;
             return;
         }
-        if (trimmed.startsWith(">")) {
+        if (line.charAt(lineStart) == '>') {
             terminateEvent(sink);
             alreadyTerminated = true;
-            final Matcher matcher = commandArgumentPattern.matcher(trimmed.substring(1));
-            String name;
-            if (matcher.lookingAt()) {
-                name = matcher.group(1);
-                matcher.region(matcher.end(), trimmed.length() - 1);
-            } else {
-                throw new ParseException(trimmed);
-            }
-            final ArrayList<Object> arguments = new ArrayList<>();
-            while (matcher.lookingAt() && !matcher.group(1).equals("<")) {
-                final String matched = matcher.group(1);
-                if (matched.startsWith("\"")) {
-                    arguments.add(matched.substring(1, matched.length() - 1));
-                } else {
-                    arguments.add(matched);
-                }
-                matcher.region(matcher.end(), trimmed.length() - 1);
-            }
-
-            sink.accept(Fact.meta(name, arguments));
+            parseCommand(sink, line, lineStart + 1, lineEnd);
             return;
         }
 
-        int start;
-        int end;
-
-        start = 0;
-        end = line.indexOf(',', start);
-        if (end < 0) {
+        int end = find(line, ',', lineStart, lineEnd);
+        if (end == lineEnd) {
             throw new ParseException(line);
         }
-        final String factName = line.substring(start, end).trim();
-        final List<DataType> types = signature == null ? null : signature.getTypes(factName);
+        final String relationName = line.substring(lineStart, trimEnd(line, lineStart, end));
+        final SignatureDecoder.RelationDecoder relation = decoder == null ? null : decoder.get(relationName);
 
-        start = line.indexOf('=', end + 1) + 1;
-        if (start <= 0) {
+        int start = find(line, '=', end + 1, lineEnd) + 1;
+        if (start > lineEnd) {
             throw new ParseException(line);
         }
-        end = line.indexOf(',', start);
-        if (end < 0) {
+        end = find(line, ',', start, lineEnd);
+        if (end == lineEnd) {
             throw new ParseException(line);
         }
-        final Long timePoint = Long.valueOf(line.substring(start, end).trim());
+        final long timePoint = parseLong(line, start, end);
 
-        start = line.indexOf('=', end + 1) + 1;
-        if (start <= 0) {
+        start = find(line, '=', end + 1, lineEnd) + 1;
+        if (start > lineEnd) {
             throw new ParseException(line);
         }
-        end = line.indexOf(',', start);
-        if (end < 0) {
-            end = line.length();
-        }
-        final Long timestamp = Long.valueOf(line.substring(start, end).trim());
+        end = find(line, ',', start, lineEnd);
+        final long timestamp = parseLong(line, start, end);
 
-        final ArrayList<Object> arguments = new ArrayList<>();
-        while (end < line.length()) {
-            start = line.indexOf('=', end + 1) + 1;
-            if (start <= 0) {
+        fields.clear();
+        while (end < lineEnd) {
+            start = find(line, '=', end + 1, lineEnd) + 1;
+            if (start > lineEnd) {
                 throw new ParseException(line);
             }
-            end = line.indexOf(',', start);
-            if (end < 0) {
-                end = line.length();
-            }
-            final String value = line.substring(start, end).trim();
-            if (types == null) {
-                arguments.add(value);
+            end = find(line, ',', start, lineEnd);
+            final int valueStart = trimStart(line, start, end);
+            final int valueEnd = trimEnd(line, valueStart, end);
+            if (relation == null) {
+                fields.add(line.substring(valueStart, valueEnd));
+            } else if (fields.size() >= relation.getArity()) {
+                throw new ParseException(line);
             } else {
-                DataType type = types.get(arguments.size());
-                arguments.add(type.parse(value));
+                try {
+                    fields.add(relation.decode(fields.size(), line, valueStart, valueEnd));
+                } catch (NumberFormatException e) {
+                    throw new ParseException(line);
+                }
             }
         }
 
         if (genTermsforTs) {
             boolean check = false;
-            if (!timestamp.equals(lastTimestamp)) {
+            if (lastTimestamp == null || timestamp != lastTimestamp) {
                 beginNewEvent(sink, timePoint, timestamp);
                 check = true;
             }
-            if (!timePoint.equals(lastTimePoint) && genTermsforTp && !check) {
+            if ((lastTimePoint == null || timePoint != lastTimePoint) && genTermsforTp && !check) {
                 beginNewEvent(sink, timePoint, timestamp);
             }
         }
-        Fact fact = Fact.make(factName, timestamp, arguments);
+        Fact fact = Fact.make(relationName, timestamp, new ArrayList<>(fields));
+        fields.clear();
         fact.setTimepoint(timePoint);
         sink.accept(fact);
     }
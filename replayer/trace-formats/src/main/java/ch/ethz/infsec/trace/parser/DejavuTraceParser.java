@@ -1,23 +1,58 @@
 package ch.ethz.infsec.trace.parser;
 
 import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.Numbers;
+import ch.ethz.infsec.monitor.Signature;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.function.Consumer;
 
-// TODO(JS): Add signature support.
+/**
+ * Parses DejaVu traces, in which every line holds a single event: the relation name followed by the arguments,
+ * separated by commas. In the timed variant, the last field is the time-stamp. A line that consists of the time-stamp
+ * only is read as an event without arguments whose relation name is the time-stamp, as in earlier versions.
+ * <p>
+ * By default, every event is a time-point of its own. With {@link TerminatorMode#ONLY_TIMESTAMPS}, consecutive events
+ * of the timed variant that have the same time-stamp are grouped into one time-point, whose terminator is emitted once
+ * a different time-stamp (or the end of the input) is seen.
+ */
 public class DejavuTraceParser implements TraceParser, Serializable {
+    private static final long serialVersionUID = -2268310853162040375L;
 
-    private boolean timed=false;
-    private long lastTimePoint=0l;
-    private Long lastTimeStamp;
+    private final SignatureDecoder decoder;
+    private final boolean timed;
+    private boolean genTermsforTp;
+    private boolean genTermsforTs;
+    private long lastTimePoint;
+    private long lastTimeStamp;
+    private boolean pendingTerminator;
 
-    public DejavuTraceParser(){
+    public DejavuTraceParser(Signature signature, boolean timed) {
+        this.decoder = signature == null ? null : new SignatureDecoder(signature);
+        this.timed = timed;
+        this.genTermsforTp = true;
+        this.genTermsforTs = true;
+        this.lastTimePoint = 0;
+        this.lastTimeStamp = 0;
+        this.pendingTerminator = false;
+    }
 
+    public DejavuTraceParser(boolean timed) {
+        this(null, timed);
     }
-    public DejavuTraceParser(boolean timed){
-        this.timed = timed;
+
+    public DejavuTraceParser() {
+        this(null, false);
+    }
+
+    @Override
+    public void setTerminatorMode(TerminatorMode mode) {
+        switch (mode) {
+            case ALL_TERMINATORS: genTermsforTs = true; genTermsforTp = true; break;
+            case ONLY_TIMESTAMPS: genTermsforTs = true; genTermsforTp = false; break;
+            case NO_TERMINATORS: genTermsforTs = false; genTermsforTp = false; break;
+        }
     }
 
     @Override
@@ -25,47 +60,103 @@ public class DejavuTraceParser implements TraceParser, Serializable {
         // ignore
     }
 
+    private void terminate(Consumer<Fact> sink) {
+        if (pendingTerminator) {
+            Fact fact = Fact.terminator(lastTimeStamp);
+            fact.setTimepoint(lastTimePoint);
+            sink.accept(fact);
+            ++lastTimePoint;
+            pendingTerminator = false;
+        }
+    }
+
+    // Like String.trim, but on a range of the line.
+    private static int trimStart(String line, int start, int end) {
+        while (start < end && line.charAt(start) <= ' ') {
+            ++start;
+        }
+        return start;
+    }
+
+    private static int trimEnd(String line, int start, int end) {
+        while (end > start && line.charAt(end - 1) <= ' ') {
+            --end;
+        }
+        return end;
+    }
+
+    // Returns the position of the character within the range, or the end of the range if there is none.
+    private static int find(String line, char c, int start, int end) {
+        final int i = line.indexOf(c, start);
+        return i < 0 || i > end ? end : i;
+    }
+
+    /**
+     * Parses a line in a single pass from left to right. The fields are located with {@link String#indexOf(int, int)}
+     * and decoded from their range of the line, according to the signature if there is one.
+     */
     @Override
     public void parseLine(Consumer<Fact> sink, String line) throws ParseException {
-        final String trimmed = line.trim();
-        if (trimmed.isEmpty()) {
+        final int lineEnd = trimEnd(line, 0, line.length());
+        final int lineStart = trimStart(line, 0, lineEnd);
+        if (lineStart == lineEnd) {
             return;
         }
 
-        String[] elems = line.split(",");
-        String name = elems[0].trim();
-        int n = elems.length;
-        lastTimeStamp = 0l;
+        int argumentsEnd = lineEnd;
+        long timestamp = 0;
         if (timed) {
+            final int comma = line.lastIndexOf(',', lineEnd - 1);
+            argumentsEnd = comma < lineStart ? lineEnd : comma;
+            final int timestampStart = comma < lineStart ? lineStart : trimStart(line, comma + 1, lineEnd);
             try {
-                lastTimeStamp = Long.valueOf(elems[elems.length - 1].trim());
-            } catch (NumberFormatException e){
-                throw new ParseException("Timestamp format: "+line);
+                timestamp = Numbers.parseLong(line, timestampStart, lineEnd);
+            } catch (NumberFormatException e) {
+                throw new ParseException("Timestamp format: " + line);
             }
+        }
 
-            n=n-1;
+        int end = find(line, ',', lineStart, argumentsEnd);
+        final String name = line.substring(lineStart, trimEnd(line, lineStart, end));
+        final SignatureDecoder.RelationDecoder relation = decoder == null ? null : decoder.get(name);
+        final ArrayList<Object> arguments = new ArrayList<>(relation == null ? 4 : relation.getArity());
+        while (end < argumentsEnd) {
+            final int valueStart = trimStart(line, end + 1, argumentsEnd);
+            end = find(line, ',', valueStart, argumentsEnd);
+            final int valueEnd = trimEnd(line, valueStart, end);
+            if (relation != null && arguments.size() >= relation.getArity()) {
+                throw new ParseException(line);
+            }
+            if (relation == null || relation.isString(arguments.size())) {
+                arguments.add(line.substring(valueStart, valueEnd));
+            } else {
+                try {
+                    arguments.add(relation.decode(arguments.size(), line, valueStart, valueEnd));
+                } catch (NumberFormatException e) {
+                    throw new ParseException(line);
+                }
+            }
         }
-        final ArrayList<Object> arguments = new ArrayList<>();
-        for (int i = 1; i < n ; i++) {
-            arguments.add(elems[i].trim());
+
+        if (pendingTerminator && (genTermsforTp || timestamp != lastTimeStamp)) {
+            terminate(sink);
         }
-        Fact ret = Fact.make(name,lastTimeStamp,arguments);
-        ret.setTimepoint(this.lastTimePoint);
-        sink.accept(ret);
-        Fact fact = Fact.terminator(lastTimeStamp);
+        lastTimeStamp = timestamp;
+        Fact fact = Fact.make(name, timestamp, arguments);
         fact.setTimepoint(lastTimePoint);
         sink.accept(fact);
-        this.lastTimePoint=lastTimePoint+1;
-
+        if (genTermsforTs) {
+            pendingTerminator = true;
+            if (genTermsforTp || !timed) {
+                terminate(sink);
+            }
+        } else {
+            ++lastTimePoint;
+        }
     }
 
     @Override
     public void endOfInput(Consumer<Fact> sink) throws ParseException {
-
-    }
-
-    @Override
-    public void setTerminatorMode(TerminatorMode mode) {
-        // ignore
+        terminate(sink);
     }
 }
@@ -0,0 +1,74 @@
+package ch.ethz.infsec.trace.parser;
+
+import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactBatch;
+
+import java.util.function.Consumer;
+
+/**
+ * Groups the facts emitted by a {@link TraceParser} into one {@link FactBatch} per time-point.
+ * <p>
+ * A batch is passed to the batch sink when its terminator arrives, or when a fact with a different time-stamp or
+ * time-point arrives (for parsers without terminators). Meta-facts are passed to the meta sink unchanged. Parsers
+ * that support batches natively use {@link #current(long, long)} and {@link #finishDatabase(long, long)} directly.
+ */
+public class FactBatchCollector implements Consumer<Fact> {
+    private final Consumer<FactBatch> batchSink;
+    private final Consumer<Fact> metaSink;
+    private FactBatch batch = null;
+
+    public FactBatchCollector(Consumer<FactBatch> batchSink, Consumer<Fact> metaSink) {
+        this.batchSink = batchSink;
+        this.metaSink = metaSink;
+    }
+
+    /**
+     * Returns the open batch for the given time-point, passing on any other open batch first.
+     */
+    public FactBatch current(long timestamp, long timepoint) {
+        if (batch != null && (batch.getTimestamp() != timestamp || batch.getTimepoint() != timepoint)) {
+            flush();
+        }
+        if (batch == null) {
+            batch = new FactBatch(timestamp, timepoint);
+        }
+        return batch;
+    }
+
+    /**
+     * Passes on the batch for the given time-point, which may be empty.
+     */
+    public void finishDatabase(long timestamp, long timepoint) {
+        current(timestamp, timepoint);
+        flush();
+    }
+
+    /**
+     * Passes on the open batch, if any.
+     */
+    public void flush() {
+        if (batch != null) {
+            FactBatch finished = batch;
+            batch = null;
+            batchSink.accept(finished);
+        }
+    }
+
+    /**
+     * Drops the open batch, e.g., after a parse error.
+     */
+    public void discard() {
+        batch = null;
+    }
+
+    @Override
+    public void accept(Fact fact) {
+        if (fact.isMeta()) {
+            metaSink.accept(fact);
+        } else if (fact.isTerminator()) {
+            finishDatabase(fact.getTimestamp(), fact.getTimepoint());
+        } else {
+            current(fact.getTimestamp(), fact.getTimepoint()).add(fact);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package ch.ethz.infsec.trace.parser;
 
+import ch.ethz.infsec.monitor.DataType;
 import ch.ethz.infsec.monitor.Fact;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonFactoryBuilder;
@@ -7,12 +8,21 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 
 import java.io.IOException;
-import java.time.Instant;
+import java.io.Serializable;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.function.Consumer;
 
+/**
+ * Parses JSON documents, one per line.
+ * <p>
+ * By default, every document is translated into a graph of facts with one fact per node. Alternatively, a
+ * {@link Projection} selects values by their paths, and every document becomes a single fact of the projected relation.
+ * Both modes terminate the time-point after each document.
+ */
 public class JsonTraceParser implements TraceParser {
     private static final long serialVersionUID = 1863404104242214316L;
 
@@ -24,7 +34,63 @@ public class JsonTraceParser implements TraceParser {
     public static final String TRUE = "true";
     public static final String NULL = "null";
 
+    /**
+     * Maps the values at some paths of a document to the arguments of a relation. A path is a sequence of object field
+     * names starting at the document's root; arrays are not entered.
+     */
+    public static final class Projection implements Serializable {
+        private static final long serialVersionUID = -4930567211706368422L;
+
+        private final String relation;
+        private final List<List<String>> paths;
+        private final List<DataType> types;
+
+        public Projection(String relation, List<List<String>> paths, List<DataType> types) {
+            if (paths.size() != types.size()) {
+                throw new IllegalArgumentException("Number of paths and types differ");
+            }
+            this.relation = relation;
+            this.paths = paths;
+            this.types = types;
+        }
+
+        /**
+         * Splits a path at dots, e.g., {@code _source.@timestamp}.
+         */
+        public static List<String> path(String dottedPath) {
+            return Arrays.asList(dottedPath.split("\\."));
+        }
+
+        public String getRelation() {
+            return relation;
+        }
+
+        public List<List<String>> getPaths() {
+            return paths;
+        }
+
+        public List<DataType> getTypes() {
+            return types;
+        }
+    }
+
+    // A node of the tree formed by the projected paths and the timestamp path.
+    private static final class PathNode implements Serializable {
+        private static final long serialVersionUID = 2243725301390405417L;
+
+        final HashMap<String, PathNode> children = new HashMap<>();
+        int argument = -1;
+        boolean timestamp = false;
+
+        PathNode child(String name) {
+            return children.computeIfAbsent(name, key -> new PathNode());
+        }
+    }
+
     private final List<String> timestampPath;
+    private final Projection projection;
+    private final PathNode projectionRoot;
+    private final int projectedPaths;
 
     // These are used to enforce disjoint IDs across parallel traces.
     private int traceId;
@@ -40,9 +106,44 @@ public class JsonTraceParser implements TraceParser {
     private transient int nestingLevel;
     private transient int timestampPrefix;
     private transient String rawTimestamp;
+    private transient TimestampDecoder timestampDecoder;
+    private transient Object[] projectedValues;
+    private transient int missingPaths;
 
     public JsonTraceParser(List<String> timestampPath) {
+        this(timestampPath, null);
+    }
+
+    /**
+     * Creates a parser in projection mode, unless the projection is null.
+     */
+    public JsonTraceParser(List<String> timestampPath, Projection projection) {
         this.timestampPath = timestampPath;
+        this.projection = projection;
+        if (projection == null) {
+            this.projectionRoot = null;
+            this.projectedPaths = 0;
+        } else {
+            this.projectionRoot = new PathNode();
+            for (int i = 0; i < projection.getPaths().size(); ++i) {
+                PathNode node = projectionRoot;
+                for (String name : projection.getPaths().get(i)) {
+                    node = node.child(name);
+                }
+                if (node == projectionRoot || node.argument >= 0) {
+                    throw new IllegalArgumentException("Invalid or duplicate path " + projection.getPaths().get(i));
+                }
+                node.argument = i;
+            }
+            if (!timestampPath.isEmpty()) {
+                PathNode node = projectionRoot;
+                for (String name : timestampPath) {
+                    node = node.child(name);
+                }
+                node.timestamp = true;
+            }
+            this.projectedPaths = projection.getPaths().size() + (timestampPath.isEmpty() ? 0 : 1);
+        }
         this.traceId = 0;
         this.numTraces = 1;
         this.nextId = traceId;
@@ -53,6 +154,7 @@ public class JsonTraceParser implements TraceParser {
         if (jsonFactory == null) {
             jsonFactory = new JsonFactoryBuilder().build();
             factBuffer = new ArrayList<>(1024);
+            timestampDecoder = new TimestampDecoder();
         }
         currentInput = input;
         jsonParser = jsonFactory.createParser(input);
@@ -192,15 +294,20 @@ public class JsonTraceParser implements TraceParser {
         return arrayId;
     }
 
-    private void endParse(Consumer<Fact> sink) throws ParseException {
+    private long parseTimestamp() throws ParseException {
         long timestamp = 0;
         if (rawTimestamp != null) {
             try {
-                timestamp = Instant.parse(rawTimestamp).toEpochMilli();
+                timestamp = timestampDecoder.parseMillis(rawTimestamp);
             } catch (DateTimeParseException e) {
                 fail();
             }
         }
+        return timestamp;
+    }
+
+    private void endParse(Consumer<Fact> sink) throws ParseException {
+        long timestamp = parseTimestamp();
         for (Fact fact : factBuffer) {
             fact.setTimestamp(timestamp);
             fact.setTimepoint(currentTimepoint);
@@ -210,10 +317,111 @@ public class JsonTraceParser implements TraceParser {
         ++currentTimepoint;
     }
 
+    private void projectValue(PathNode node, JsonToken token) throws IOException, ParseException {
+        if (node.timestamp && token == JsonToken.VALUE_STRING && rawTimestamp == null) {
+            rawTimestamp = jsonParser.getText();
+            --missingPaths;
+        }
+        if (node.argument < 0 || projectedValues[node.argument] != null) {
+            return;
+        }
+        Object value;
+        try {
+            switch (projection.getTypes().get(node.argument)) {
+                case INTEGRAL:
+                    value = token == JsonToken.VALUE_NUMBER_INT
+                            ? jsonParser.getLongValue()
+                            : Long.parseLong(jsonParser.getText());
+                    break;
+                case FLOAT:
+                    value = token.isNumeric() ? jsonParser.getDoubleValue() : Double.parseDouble(jsonParser.getText());
+                    break;
+                default:
+                    value = jsonParser.getText();
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            fail();
+            return;
+        }
+        projectedValues[node.argument] = value;
+        --missingPaths;
+    }
+
+    private void parseProjectedValue(PathNode node) throws IOException, ParseException {
+        JsonToken token = jsonParser.nextToken();
+        if (token == null) {
+            fail();
+        } else if (token == JsonToken.START_OBJECT && !node.children.isEmpty()) {
+            parseProjectedObject(node);
+        } else if (token.isStructStart()) {
+            jsonParser.skipChildren();
+        } else if (token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+            projectValue(node, token);
+        } else if (token != JsonToken.VALUE_NULL) {
+            fail();
+        }
+    }
+
+    // Stops reading as soon as all paths have been found.
+    private void parseProjectedObject(PathNode node) throws IOException, ParseException {
+        while (missingPaths > 0) {
+            JsonToken token = jsonParser.nextToken();
+            if (token == JsonToken.FIELD_NAME) {
+                PathNode child = node.children.get(jsonParser.getCurrentName());
+                if (child == null) {
+                    jsonParser.nextToken();
+                    jsonParser.skipChildren();
+                } else {
+                    parseProjectedValue(child);
+                }
+            } else if (token == JsonToken.END_OBJECT) {
+                break;
+            } else {
+                fail();
+            }
+        }
+    }
+
+    /**
+     * Emits the projected fact, provided that all of its arguments have been found, and the terminator.
+     */
+    private void parseProjected(Consumer<Fact> sink) throws IOException, ParseException {
+        if (projectedValues == null) {
+            projectedValues = new Object[projection.getPaths().size()];
+        }
+        Arrays.fill(projectedValues, null);
+        missingPaths = projectedPaths;
+        JsonToken token = jsonParser.nextToken();
+        if (token == null) {
+            return;
+        }
+        if (token == JsonToken.START_OBJECT) {
+            parseProjectedObject(projectionRoot);
+        } else {
+            jsonParser.skipChildren();
+        }
+
+        long timestamp = parseTimestamp();
+        if (!Arrays.asList(projectedValues).contains(null)) {
+            Fact fact = Fact.make(projection.getRelation(), timestamp, projectedValues.clone());
+            fact.setTimepoint(currentTimepoint);
+            sink.accept(fact);
+        }
+        Fact terminator = Fact.terminator(timestamp);
+        terminator.setTimepoint(currentTimepoint);
+        sink.accept(terminator);
+        ++currentTimepoint;
+    }
+
     @Override
     public void parseLine(Consumer<Fact> sink, String line) throws ParseException {
         try {
             beginParse(line);
+            if (projection != null) {
+                parseProjected(sink);
+                return;
+            }
             Long rootId = parseValue(false);
             if (rootId != null) {
                 factBuffer.add(Fact.make(ROOT, 0, rootId));
@@ -235,6 +443,13 @@ public class JsonTraceParser implements TraceParser {
         // ignore
     }
 
+    /**
+     * Returns the time-point of the next document.
+     */
+    long getTimepoint() {
+        return currentTimepoint;
+    }
+
     /**
      * Warning: resets the trace-local object ID allocation!
      *
@@ -0,0 +1,378 @@
+package ch.ethz.infsec.trace.parser;
+
+import ch.ethz.infsec.monitor.DataType;
+import ch.ethz.infsec.monitor.Numbers;
+import ch.ethz.infsec.monitor.SymbolTable;
+import ch.ethz.infsec.trace.parser.MonpolyLexer.TokenType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A lexer for MonPoly's formats that reads UTF-8 bytes and accepts exactly the same tokens as {@link MonpolyLexer}.
+ * <p>
+ * Tokens are returned as ranges of the input array and are only copied if they span multiple inputs or contain a
+ * synthesized line break. Quoted strings and comments are scanned for their few delimiters only, which are ASCII and
+ * thus never part of a multi-byte UTF-8 sequence. Numbers are parsed from the range, and ASCII strings are looked up in
+ * the symbol table without decoding them.
+ */
+final class MonpolyByteLexer implements MonpolyTokenizer {
+    private static final long serialVersionUID = -6420843384624097215L;
+
+    private enum LexerState {
+        INITIAL,
+        SIMPLE_STRING,
+        QUOTED_STRING,
+        QUOTED_STRING_ESCAPED,
+        LINE_COMMENT
+    }
+
+    private static final byte[] EMPTY = new byte[0];
+    private static final byte[] LINE_END = {'\n'};
+
+    private static final boolean[] SIMPLE_STRING_CHARS = new boolean[256];
+
+    static {
+        for (int c = 0; c < 128; ++c) {
+            SIMPLE_STRING_CHARS[c] = (c >= '0' && c <= '9') ||
+                    (c >= 'A' && c <= 'Z') ||
+                    (c >= 'a' && c <= 'z') ||
+                    c == '_' || c == '[' || c == ']' || c == '/' ||
+                    c == ':' || c == '-' || c == '.' || c == '!' ||
+                    c == '+';
+        }
+    }
+
+    private transient byte[] input = EMPTY;
+    private transient int inputStart;
+    private transient int inputEnd;
+    private transient int position;
+    private transient boolean synthesizeLineEnd;
+    private transient boolean isEnd;
+    private LexerState lexerState;
+
+    // The part of the current token that belongs to previous inputs.
+    private byte[] carry;
+    private int carryLength;
+
+    private transient int tokenStart;
+    private transient byte[] tokenBytes;
+    private transient int tokenOffset;
+    private transient int tokenLength;
+    private transient AsciiToken tokenView;
+    private transient char[] chars;
+
+    MonpolyByteLexer() {
+        this.lexerState = LexerState.INITIAL;
+        this.carry = new byte[64];
+        this.carryLength = 0;
+    }
+
+    private void setInput(byte[] input, int offset, int length, boolean isEnd) {
+        this.input = input;
+        this.inputStart = offset;
+        this.inputEnd = offset + length;
+        this.position = offset;
+        this.synthesizeLineEnd = false;
+        this.isEnd = isEnd;
+        this.tokenStart = offset;
+    }
+
+    void setPartialInput(byte[] input, int offset, int length) {
+        setInput(input, offset, length, false);
+    }
+
+    void setCompleteInput(byte[] input, int offset, int length) {
+        setInput(input, offset, length, true);
+    }
+
+    @Override
+    public void atEnd() {
+        setInput(EMPTY, 0, 0, true);
+    }
+
+    @Override
+    public void appendLineEnd() {
+        synthesizeLineEnd = true;
+    }
+
+    @Override
+    public String currentInput() {
+        return new String(input, inputStart, inputEnd - inputStart, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void reset() {
+        lexerState = LexerState.INITIAL;
+        carryLength = 0;
+    }
+
+    @Override
+    public boolean inInitialState() {
+        return lexerState == LexerState.INITIAL;
+    }
+
+    private void appendToCarry(byte[] bytes, int start, int end) {
+        final int length = end - start;
+        if (carryLength + length > carry.length) {
+            carry = Arrays.copyOf(carry, Math.max(carry.length * 2, carryLength + length));
+        }
+        System.arraycopy(bytes, start, carry, carryLength, length);
+        carryLength += length;
+    }
+
+    private TokenType finishToken(int tokenEnd) {
+        if (carryLength == 0) {
+            tokenBytes = input;
+            tokenOffset = tokenStart;
+            tokenLength = tokenEnd - tokenStart;
+        } else {
+            appendToCarry(input, tokenStart, tokenEnd);
+            tokenBytes = carry;
+            tokenOffset = 0;
+            tokenLength = carryLength;
+            carryLength = 0;
+        }
+        return TokenType.STRING;
+    }
+
+    private static int findQuoteOrBackslash(byte[] bytes, int i, int end) {
+        while (i < end && bytes[i] != '"' && bytes[i] != '\\') {
+            ++i;
+        }
+        return i;
+    }
+
+    private static int findLineEnd(byte[] bytes, int i, int end) {
+        while (i < end && bytes[i] != '\n' && bytes[i] != '\r') {
+            ++i;
+        }
+        return i;
+    }
+
+    @Override
+    public TokenType nextToken() throws ParseException {
+        final byte[] bytes = input;
+        final int end = inputEnd;
+        int i = position;
+        scan:
+        while (true) {
+            switch (lexerState) {
+                case INITIAL:
+                    while (i < end) {
+                        final int c = bytes[i++] & 0xff;
+                        switch (c) {
+                            case ' ':
+                            case '\t':
+                            case '\n':
+                            case '\r':
+                                break;
+                            case '@':
+                                position = i;
+                                return TokenType.AT;
+                            case '(':
+                                position = i;
+                                return TokenType.LEFT_PAREN;
+                            case ')':
+                                position = i;
+                                return TokenType.RIGHT_PAREN;
+                            case '<':
+                                position = i;
+                                return TokenType.LEFT_ANGLE;
+                            case '>':
+                                position = i;
+                                return TokenType.RIGHT_ANGLE;
+                            case ',':
+                                position = i;
+                                return TokenType.COMMA;
+                            case ';':
+                                position = i;
+                                return TokenType.SEMICOLON;
+                            case '#':
+                                lexerState = LexerState.LINE_COMMENT;
+                                continue scan;
+                            case '"':
+                                carryLength = 0;
+                                tokenStart = i;
+                                lexerState = LexerState.QUOTED_STRING;
+                                continue scan;
+                            default:
+                                if (SIMPLE_STRING_CHARS[c]) {
+                                    carryLength = 0;
+                                    tokenStart = i - 1;
+                                    lexerState = LexerState.SIMPLE_STRING;
+                                    continue scan;
+                                }
+                                position = i;
+                                throw new ParseException(currentInput());
+                        }
+                    }
+                    break;
+                case SIMPLE_STRING:
+                    while (i < end && SIMPLE_STRING_CHARS[bytes[i] & 0xff]) {
+                        ++i;
+                    }
+                    if (i < end) {
+                        lexerState = LexerState.INITIAL;
+                        position = i;
+                        return finishToken(i);
+                    }
+                    break;
+                case QUOTED_STRING:
+                    i = findQuoteOrBackslash(bytes, i, end);
+                    if (i < end) {
+                        if (bytes[i] == '"') {
+                            lexerState = LexerState.INITIAL;
+                            position = i + 1;
+                            return finishToken(i);
+                        }
+                        lexerState = LexerState.QUOTED_STRING_ESCAPED;
+                        ++i;
+                        continue scan;
+                    }
+                    break;
+                case QUOTED_STRING_ESCAPED:
+                    if (i < end) {
+                        lexerState = LexerState.QUOTED_STRING;
+                        ++i;
+                        continue scan;
+                    }
+                    break;
+                case LINE_COMMENT:
+                    i = findLineEnd(bytes, i, end);
+                    if (i < end) {
+                        lexerState = LexerState.INITIAL;
+                        ++i;
+                        continue scan;
+                    }
+                    break;
+            }
+
+            // The input is exhausted.
+            position = i;
+            if (synthesizeLineEnd) {
+                synthesizeLineEnd = false;
+                switch (lexerState) {
+                    case SIMPLE_STRING:
+                        lexerState = LexerState.INITIAL;
+                        return finishToken(i);
+                    case QUOTED_STRING:
+                    case QUOTED_STRING_ESCAPED:
+                        appendToCarry(bytes, tokenStart, i);
+                        appendToCarry(LINE_END, 0, 1);
+                        tokenStart = i;
+                        lexerState = LexerState.QUOTED_STRING;
+                        break;
+                    case LINE_COMMENT:
+                        lexerState = LexerState.INITIAL;
+                        break;
+                    default:
+                        break;
+                }
+                continue;
+            }
+            if (isEnd) {
+                switch (lexerState) {
+                    case INITIAL:
+                    case LINE_COMMENT:
+                        lexerState = LexerState.INITIAL;
+                        return TokenType.END;
+                    case SIMPLE_STRING:
+                        lexerState = LexerState.INITIAL;
+                        return finishToken(i);
+                    default:
+                        throw new ParseException(currentInput());
+                }
+            }
+            if (lexerState != LexerState.INITIAL && lexerState != LexerState.LINE_COMMENT) {
+                appendToCarry(bytes, tokenStart, i);
+                tokenStart = i;
+            }
+            return TokenType.INCOMPLETE;
+        }
+    }
+
+    private boolean isAsciiToken() {
+        int bits = 0;
+        for (int i = tokenOffset; i < tokenOffset + tokenLength; ++i) {
+            bits |= tokenBytes[i];
+        }
+        return bits >= 0;
+    }
+
+    // ASCII tokens are widened through a reusable buffer: on Java 8, decoding with a Charset creates a new decoder for
+    // every string.
+    private String decodeToken(boolean ascii) {
+        if (!ascii) {
+            return new String(tokenBytes, tokenOffset, tokenLength, StandardCharsets.UTF_8);
+        }
+        if (chars == null || chars.length < tokenLength) {
+            chars = new char[Math.max(64, tokenLength)];
+        }
+        for (int i = 0; i < tokenLength; ++i) {
+            chars[i] = (char) tokenBytes[tokenOffset + i];
+        }
+        return new String(chars, 0, tokenLength);
+    }
+
+    @Override
+    public String takeTokenValue() {
+        return decodeToken(isAsciiToken());
+    }
+
+    @Override
+    public String takeTokenValue(SymbolTable symbolTable) {
+        final boolean ascii = isAsciiToken();
+        if (symbolTable == null) {
+            return decodeToken(ascii);
+        }
+        if (!ascii) {
+            return symbolTable.intern(decodeToken(false));
+        }
+        if (tokenView == null) {
+            tokenView = new AsciiToken();
+        }
+        return symbolTable.intern(tokenView);
+    }
+
+    @Override
+    public long takeTokenLong() {
+        return Numbers.parseLong(tokenBytes, tokenOffset, tokenOffset + tokenLength);
+    }
+
+    @Override
+    public Object takeTokenValue(SignatureDecoder.RelationDecoder relation, int field) {
+        return relation.decode(field, tokenBytes, tokenOffset, tokenOffset + tokenLength);
+    }
+
+    @Override
+    public Object takeTokenValue(DataType type) {
+        return type.parse(tokenBytes, tokenOffset, tokenOffset + tokenLength);
+    }
+
+    /**
+     * A view of the current token as characters, such that an ASCII token can be looked up in the symbol table without
+     * decoding it.
+     */
+    private final class AsciiToken implements CharSequence {
+        @Override
+        public int length() {
+            return tokenLength;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) tokenBytes[tokenOffset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return decodeToken(true);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package ch.ethz.infsec.trace.parser;
 
-import java.io.Serializable;
+import ch.ethz.infsec.monitor.DataType;
+import ch.ethz.infsec.monitor.Numbers;
+import ch.ethz.infsec.monitor.SymbolTable;
 
-class MonpolyLexer implements Serializable {
+class MonpolyLexer implements MonpolyTokenizer {
     private static final long serialVersionUID = 3735158732427625889L;
 
     private enum LexerState {
@@ -52,22 +54,26 @@ class MonpolyLexer implements Serializable {
         this.isEnd = true;
     }
 
-    void atEnd() {
+    @Override
+    public void atEnd() {
         this.input = "";
         this.position = 0;
         this.synthesizeLineEnd = false;
         this.isEnd = true;
     }
 
-    void appendLineEnd() {
+    @Override
+    public void appendLineEnd() {
         synthesizeLineEnd = true;
     }
 
-    String currentInput() {
+    @Override
+    public String currentInput() {
         return input;
     }
 
-    void reset() {
+    @Override
+    public void reset() {
         lexerState = LexerState.INITIAL;
         tokenValue.setLength(0);
     }
@@ -81,7 +87,8 @@ class MonpolyLexer implements Serializable {
                 c == '+';
     }
 
-    TokenType nextToken() throws ParseException {
+    @Override
+    public TokenType nextToken() throws ParseException {
         while (position < input.length() || synthesizeLineEnd) {
             char c;
             if (position >= input.length()) {
@@ -194,13 +201,52 @@ class MonpolyLexer implements Serializable {
         return TokenType.INCOMPLETE;
     }
 
-    String takeTokenValue() {
+    @Override
+    public String takeTokenValue() {
         final String value = tokenValue.toString();
         tokenValue.setLength(0);
         return value;
     }
 
-    boolean inInitialState() {
+    @Override
+    public String takeTokenValue(SymbolTable symbolTable) {
+        if (symbolTable == null) {
+            return takeTokenValue();
+        }
+        final String value = symbolTable.intern(tokenValue);
+        tokenValue.setLength(0);
+        return value;
+    }
+
+    @Override
+    public long takeTokenLong() {
+        try {
+            return Numbers.parseLong(tokenValue, 0, tokenValue.length());
+        } finally {
+            tokenValue.setLength(0);
+        }
+    }
+
+    @Override
+    public Object takeTokenValue(SignatureDecoder.RelationDecoder relation, int field) {
+        try {
+            return relation.decode(field, tokenValue, 0, tokenValue.length());
+        } finally {
+            tokenValue.setLength(0);
+        }
+    }
+
+    @Override
+    public Object takeTokenValue(DataType type) {
+        try {
+            return type.parse(tokenValue, 0, tokenValue.length());
+        } finally {
+            tokenValue.setLength(0);
+        }
+    }
+
+    @Override
+    public boolean inInitialState() {
         return lexerState == LexerState.INITIAL;
     }
 }
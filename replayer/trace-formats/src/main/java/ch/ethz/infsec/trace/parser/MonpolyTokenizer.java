@@ -0,0 +1,47 @@
+package ch.ethz.infsec.trace.parser;
+
+import ch.ethz.infsec.monitor.DataType;
+import ch.ethz.infsec.monitor.SymbolTable;
+import ch.ethz.infsec.trace.parser.MonpolyLexer.TokenType;
+
+import java.io.Serializable;
+
+/**
+ * The tokens of MonPoly's trace and verdict formats, independent of whether the input is given as strings
+ * ({@link MonpolyLexer}) or as UTF-8 bytes ({@link MonpolyByteLexer}).
+ * <p>
+ * The value of a {@link TokenType#STRING} token must be taken with one of the {@code takeToken} methods before the
+ * next call to {@link #nextToken()}.
+ */
+interface MonpolyTokenizer extends Serializable {
+    TokenType nextToken() throws ParseException;
+
+    /**
+     * Marks the end of the input. The next calls to {@link #nextToken()} finish the current token, if any.
+     */
+    void atEnd();
+
+    /**
+     * Lets the current input end with a line break that is not part of it.
+     */
+    void appendLineEnd();
+
+    /**
+     * Returns the current input for error messages.
+     */
+    String currentInput();
+
+    void reset();
+
+    boolean inInitialState();
+
+    String takeTokenValue();
+
+    String takeTokenValue(SymbolTable symbolTable);
+
+    long takeTokenLong();
+
+    Object takeTokenValue(SignatureDecoder.RelationDecoder relation, int field);
+
+    Object takeTokenValue(DataType type);
+}
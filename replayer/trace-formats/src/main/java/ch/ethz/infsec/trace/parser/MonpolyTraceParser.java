@@ -1,13 +1,14 @@
 package ch.ethz.infsec.trace.parser;
 
-import ch.ethz.infsec.monitor.DataType;
 import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactBatch;
+import ch.ethz.infsec.monitor.FactPool;
 import ch.ethz.infsec.monitor.Signature;
+import ch.ethz.infsec.monitor.SymbolTable;
 import ch.ethz.infsec.trace.parser.MonpolyLexer.TokenType;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.List;
 import java.util.function.Consumer;
 
 public class MonpolyTraceParser implements TraceParser, Serializable {
@@ -25,58 +26,85 @@ public class MonpolyTraceParser implements TraceParser, Serializable {
         COMMAND_ARG_N
     }
 
-    private final Signature signature;
-    private final MonpolyLexer lexer;
+    private final SignatureDecoder decoder;
+    private final MonpolyLexer stringLexer;
+    private MonpolyByteLexer byteLexer;
+    // The lexer of the current input, which is either given as strings or as UTF-8 bytes.
+    private MonpolyTokenizer lexer;
     private ParserState parserState;
     private long timepoint;
-    private String timestamp;
+    private long timestamp;
     private String relationName;
-    private List<DataType> relationTypes;
+    private SignatureDecoder.RelationDecoder relationDecoder;
     private final ArrayList<Object> fields;
     private final ArrayList<Fact> factBuffer;
+    private boolean streaming;
+    private transient FactPool factPool;
+    private transient SymbolTable symbolTable;
+    // Set while parsing into batches; tuples are then added to the batch directly, without creating facts.
+    private transient FactBatchCollector batches;
+    private transient FactBatch batch;
 
     public MonpolyTraceParser(Signature signature) {
-        this.signature = signature;
-        this.lexer = new MonpolyLexer();
+        this.decoder = signature == null ? null : new SignatureDecoder(signature);
+        this.stringLexer = new MonpolyLexer();
+        this.byteLexer = null;
+        this.lexer = stringLexer;
         this.parserState = ParserState.INITIAL;
         this.timepoint = 0;
-        this.timestamp = null;
+        this.timestamp = 0;
         this.relationName = null;
-        this.relationTypes = null;
+        this.relationDecoder = null;
         this.fields = new ArrayList<>();
         this.factBuffer = new ArrayList<>();
+        this.streaming = false;
     }
 
     private void setRelationName(String name) {
         relationName = name;
-        relationTypes = name == null || signature == null ? null : signature.getTypes(name);
+        relationDecoder = name == null || decoder == null ? null : decoder.get(name);
     }
 
     private void error() throws ParseException {
         lexer.reset();
         parserState = ParserState.INITIAL;
-        timestamp = null;
+        timestamp = 0;
         setRelationName(null);
         fields.clear();
         factBuffer.clear();
+        if (batches != null) {
+            batches.discard();
+        }
+        batch = null;
         throw new ParseException(lexer.currentInput());
     }
 
     private void beginDatabase() {
-        timestamp = null;
+        timestamp = 0;
         setRelationName(null);
         fields.clear();
         factBuffer.clear();
+        batch = null;
     }
 
     private void finishDatabase(Consumer<Fact> sink) {
+        final long terminatorTimestamp = timestamp;
+        if (batches != null) {
+            batches.finishDatabase(terminatorTimestamp, timepoint);
+            batch = null;
+            ++timepoint;
+            timestamp = 0;
+            setRelationName(null);
+            return;
+        }
         factBuffer.forEach(sink);
-        Fact terminator = Fact.terminator(Long.parseLong(timestamp));
+        Fact terminator = factPool == null ? Fact.terminator(terminatorTimestamp) :
+                factPool.acquire(null, terminatorTimestamp);
         terminator.setTimepoint(timepoint);
         sink.accept(terminator);
 
         ++timepoint;
-        timestamp = null;
+        timestamp = 0;
         setRelationName(null);
         factBuffer.clear();
     }
@@ -85,19 +113,54 @@ public class MonpolyTraceParser implements TraceParser, Serializable {
         fields.clear();
     }
 
-    private void addField(String s) {
-        if (relationTypes == null) {
-            fields.add(s);
-        } else {
-            DataType type = relationTypes.get(fields.size());
-            fields.add(type.parse(s));
+    // Numeric fields are parsed from the lexer's buffer, without creating a string first.
+    private Object takeValue() throws ParseException {
+        if (relationDecoder != null) {
+            if (fields.size() >= relationDecoder.getArity()) {
+                error();
+            }
+            if (!relationDecoder.isString(fields.size())) {
+                try {
+                    return lexer.takeTokenValue(relationDecoder, fields.size());
+                } catch (NumberFormatException e) {
+                    error();
+                }
+            }
         }
+        return lexer.takeTokenValue(symbolTable);
     }
 
-    private void finishTuple() {
-        Fact fact = Fact.make(relationName, Long.parseLong(timestamp), new ArrayList<>(fields));
+    private void addField(Object value) {
+        fields.add(value);
+    }
+
+    private void finishTuple(Consumer<Fact> sink) throws ParseException {
+        if (batches != null) {
+            if (batch == null) {
+                batch = batches.current(timestamp, timepoint);
+            }
+            // A batch cannot hold tuples of different arities for the same relation.
+            try {
+                batch.add(relationName, fields);
+            } catch (IllegalArgumentException e) {
+                error();
+            }
+            fields.clear();
+            return;
+        }
+        Fact fact;
+        if (factPool == null) {
+            fact = Fact.make(relationName, timestamp, new ArrayList<>(fields));
+        } else {
+            fact = factPool.acquire(relationName, timestamp);
+            fact.getArguments().addAll(fields);
+        }
         fact.setTimepoint(timepoint);
-        factBuffer.add(fact);
+        if (streaming) {
+            sink.accept(fact);
+        } else {
+            factBuffer.add(fact);
+        }
         fields.clear();
     }
 
@@ -139,7 +202,11 @@ public class MonpolyTraceParser implements TraceParser, Serializable {
                     break;
                 case TIMESTAMP:
                     if (tokenType == TokenType.STRING) {
-                        timestamp = lexer.takeTokenValue();
+                        try {
+                            timestamp = lexer.takeTokenLong();
+                        } catch (NumberFormatException e) {
+                            error();
+                        }
                         parserState = ParserState.TABLE;
                     } else {
                         error();
@@ -147,7 +214,7 @@ public class MonpolyTraceParser implements TraceParser, Serializable {
                     break;
                 case TABLE:
                     if (tokenType == TokenType.STRING) {
-                        setRelationName(lexer.takeTokenValue());
+                        setRelationName(lexer.takeTokenValue(symbolTable));
                         parserState = ParserState.TUPLE;
                     } else if (tokenType == TokenType.AT) {
                         finishDatabase(sink);
@@ -171,7 +238,7 @@ public class MonpolyTraceParser implements TraceParser, Serializable {
                         beginTuple();
                         parserState = ParserState.FIELD_1;
                     } else if (tokenType == TokenType.STRING) {
-                        setRelationName(lexer.takeTokenValue());
+                        setRelationName(lexer.takeTokenValue(symbolTable));
                     } else if (tokenType == TokenType.AT) {
                         finishDatabase(sink);
                         parserState = ParserState.TIMESTAMP;
@@ -191,10 +258,10 @@ public class MonpolyTraceParser implements TraceParser, Serializable {
                     break;
                 case FIELD_1:
                     if (tokenType == TokenType.STRING) {
-                        addField(lexer.takeTokenValue());
+                        addField(takeValue());
                         parserState = ParserState.AFTER_FIELD;
                     } else if (tokenType == TokenType.RIGHT_PAREN) {
-                        finishTuple();
+                        finishTuple(sink);
                         parserState = ParserState.TUPLE;
                     } else {
                         error();
@@ -204,7 +271,7 @@ public class MonpolyTraceParser implements TraceParser, Serializable {
                     if (tokenType == TokenType.COMMA) {
                         parserState = ParserState.FIELD_N;
                     } else if (tokenType == TokenType.RIGHT_PAREN) {
-                        finishTuple();
+                        finishTuple(sink);
                         parserState = ParserState.TUPLE;
                     } else {
                         error();
@@ -212,7 +279,7 @@ public class MonpolyTraceParser implements TraceParser, Serializable {
                     break;
                 case FIELD_N:
                     if (tokenType == TokenType.STRING) {
-                        addField(lexer.takeTokenValue());
+                        addField(takeValue());
                         parserState = ParserState.AFTER_FIELD;
                     } else {
                         error();
@@ -220,7 +287,7 @@ public class MonpolyTraceParser implements TraceParser, Serializable {
                     break;
                 case COMMAND_ARG_1:
                     if (tokenType == TokenType.STRING) {
-                        setRelationName(lexer.takeTokenValue());
+                        setRelationName(lexer.takeTokenValue(symbolTable));
                         parserState = ParserState.COMMAND_ARG_N;
                     } else {
                         error();
@@ -228,7 +295,7 @@ public class MonpolyTraceParser implements TraceParser, Serializable {
                     break;
                 case COMMAND_ARG_N:
                     if (tokenType == TokenType.STRING) {
-                        addField(lexer.takeTokenValue());
+                        addField(takeValue());
                     } else if (tokenType == TokenType.LEFT_ANGLE) {
                         finishCommand(sink);
                         parserState = ParserState.INITIAL;
@@ -246,6 +313,27 @@ public class MonpolyTraceParser implements TraceParser, Serializable {
         runParser(sink);
     }
 
+    @Override
+    public void parseBatches(FactBatchCollector collector, String line) throws ParseException {
+        batches = collector;
+        try {
+            parseLine(collector, line);
+        } finally {
+            batches = null;
+        }
+    }
+
+    @Override
+    public void endOfBatches(FactBatchCollector collector) throws ParseException {
+        batches = collector;
+        try {
+            endOfInput(collector);
+        } finally {
+            batches = null;
+        }
+        collector.flush();
+    }
+
     @Override
     public void setTerminatorMode(TerminatorMode mode) {
         // ignore
@@ -256,15 +344,76 @@ public class MonpolyTraceParser implements TraceParser, Serializable {
         // ignore
     }
 
+    /**
+     * Selects whether tuples are emitted as soon as they have been parsed. By default, the tuples of a database are
+     * buffered until the database is complete and are discarded if it is malformed. In streaming mode, the memory used
+     * by the parser does not depend on the size of the databases, but if a database is malformed, its preceding tuples
+     * have already been emitted (without a terminator). The mode can only be changed between databases.
+     */
+    public void setStreaming(boolean streaming) {
+        // The fact buffer is always empty in streaming mode.
+        if (!inInitialState()) {
+            throw new IllegalStateException("Cannot change the streaming mode within a database");
+        }
+        this.streaming = streaming;
+    }
+
+    @Override
+    public boolean inInitialState() {
+        return lexer.inInitialState() && parserState == ParserState.INITIAL;
+    }
+
+    @Override
+    public void setFactPool(FactPool pool) {
+        this.factPool = pool;
+    }
+
+    @Override
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    private void switchLexer(MonpolyTokenizer next) {
+        if (lexer != next) {
+            if (!lexer.inInitialState()) {
+                throw new IllegalStateException("Cannot switch between string and byte input within a token");
+            }
+            lexer = next;
+        }
+    }
+
+    private MonpolyLexer useStringLexer() {
+        switchLexer(stringLexer);
+        return stringLexer;
+    }
+
+    private MonpolyByteLexer useByteLexer() {
+        if (byteLexer == null) {
+            byteLexer = new MonpolyByteLexer();
+        }
+        switchLexer(byteLexer);
+        return byteLexer;
+    }
+
     public void parse(Consumer<Fact> sink, String input) throws ParseException {
-        lexer.setPartialInput(input);
+        useStringLexer().setPartialInput(input);
+        runParser(sink);
+    }
+
+    /**
+     * Parses the next part of the input given as UTF-8 bytes. Tokens may span consecutive parts, which may also
+     * alternate with string input between tokens.
+     */
+    public void parse(Consumer<Fact> sink, byte[] input, int offset, int length) throws ParseException {
+        useByteLexer().setPartialInput(input, offset, length);
         runParser(sink);
     }
 
     @Override
     public void parseLine(Consumer<Fact> sink, String line) throws ParseException {
-        lexer.setPartialInput(line);
-        lexer.appendLineEnd();
+        final MonpolyLexer stringLexer = useStringLexer();
+        stringLexer.setPartialInput(line);
+        stringLexer.appendLineEnd();
         runParser(sink);
     }
 }
@@ -2,6 +2,7 @@ package ch.ethz.infsec.trace.parser;
 
 import ch.ethz.infsec.monitor.DataType;
 import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.SymbolTable;
 import ch.ethz.infsec.trace.parser.MonpolyLexer.TokenType;
 
 import java.io.Serializable;
@@ -28,15 +29,21 @@ public class MonpolyVerdictParser implements TraceParser, Serializable {
     }
 
     private final List<DataType> types;
-    private final MonpolyLexer lexer;
+    private final MonpolyLexer stringLexer;
+    private MonpolyByteLexer byteLexer;
+    // The lexer of the current line, which is either given as a string or as UTF-8 bytes.
+    private MonpolyTokenizer lexer;
     private ParserState parserState;
     private long timestamp;
     private long timepoint;
     private final ArrayList<Object> fields;
+    private transient SymbolTable symbolTable;
 
     public MonpolyVerdictParser(List<DataType> types) {
         this.types = types;
-        this.lexer = new MonpolyLexer();
+        this.stringLexer = new MonpolyLexer();
+        this.byteLexer = null;
+        this.lexer = stringLexer;
         this.parserState = ParserState.INITIAL;
         this.timestamp = 0;
         this.timepoint = 0;
@@ -71,9 +78,17 @@ public class MonpolyVerdictParser implements TraceParser, Serializable {
         fields.clear();
     }
 
-    private void addField(String s) {
-        DataType type = types.get(fields.size());
-        fields.add(type.parse(s));
+    // Numeric fields are parsed from the lexer's buffer, without creating a string first.
+    private Object takeValue() {
+        final DataType type = types.get(fields.size());
+        if (type != DataType.STRING) {
+            return lexer.takeTokenValue(type);
+        }
+        return lexer.takeTokenValue(symbolTable);
+    }
+
+    private void addField(Object value) {
+        fields.add(value);
     }
 
     private void finishTuple(Consumer<Fact> sink) {
@@ -108,7 +123,7 @@ public class MonpolyVerdictParser implements TraceParser, Serializable {
                 case TIMESTAMP:
                     if (tokenType == TokenType.STRING) {
                         try {
-                            timestamp = Long.parseLong(lexer.takeTokenValue());
+                            timestamp = lexer.takeTokenLong();
                         } catch (NumberFormatException e) {
                             error();
                         }
@@ -140,7 +155,7 @@ public class MonpolyVerdictParser implements TraceParser, Serializable {
                     break;
                 case TIMEPOINT_3:
                     if (tokenType == TokenType.STRING) {
-                        timepoint = Long.parseLong(lexer.takeTokenValue());
+                        timepoint = lexer.takeTokenLong();
                         parserState = ParserState.TIMEPOINT_4;
                     } else {
                         error();
@@ -182,7 +197,7 @@ public class MonpolyVerdictParser implements TraceParser, Serializable {
                     break;
                 case FIELD_1:
                     if (tokenType == TokenType.STRING) {
-                        addField(lexer.takeTokenValue());
+                        addField(takeValue());
                         parserState = ParserState.AFTER_FIELD;
                     } else if (tokenType == TokenType.RIGHT_PAREN) {
                         finishTuple(sink);
@@ -203,7 +218,7 @@ public class MonpolyVerdictParser implements TraceParser, Serializable {
                     break;
                 case FIELD_N:
                     if (tokenType == TokenType.STRING) {
-                        addField(lexer.takeTokenValue());
+                        addField(takeValue());
                         parserState = ParserState.AFTER_FIELD;
                     } else {
                         error();
@@ -215,8 +230,22 @@ public class MonpolyVerdictParser implements TraceParser, Serializable {
 
     @Override
     public void parseLine(Consumer<Fact> sink, String line) throws ParseException {
-        lexer.setCompleteInput(line);
-        lexer.appendLineEnd();
+        stringLexer.setCompleteInput(line);
+        stringLexer.appendLineEnd();
+        lexer = stringLexer;
+        runParser(sink);
+    }
+
+    /**
+     * Parses a verdict line given as UTF-8 bytes.
+     */
+    public void parseLine(Consumer<Fact> sink, byte[] line, int offset, int length) throws ParseException {
+        if (byteLexer == null) {
+            byteLexer = new MonpolyByteLexer();
+        }
+        byteLexer.setCompleteInput(line, offset, length);
+        byteLexer.appendLineEnd();
+        lexer = byteLexer;
         runParser(sink);
     }
 
@@ -235,6 +264,12 @@ public class MonpolyVerdictParser implements TraceParser, Serializable {
         // ignore
     }
 
+    @Override
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    @Override
     public boolean inInitialState() {
         return lexer.inInitialState() && parserState == ParserState.INITIAL;
     }
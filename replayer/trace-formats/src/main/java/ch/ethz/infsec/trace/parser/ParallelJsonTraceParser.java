@@ -0,0 +1,223 @@
+package ch.ethz.infsec.trace.parser;
+
+import ch.ethz.infsec.monitor.Fact;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Parses JSON documents on several threads, with the same output as a single {@link JsonTraceParser} except for the
+ * object IDs in graph mode.
+ * <p>
+ * Lines are grouped into batches, which are assigned round-robin to one {@link JsonTraceParser} per worker. Every
+ * worker owns its parser and runs on its own thread, so each parser sees its batches in input order. The workers'
+ * parsers allocate disjoint object IDs through {@link TraceParser#setTraceId(int, int)}. The resulting facts are passed
+ * to the sink in input order on the caller's thread, and their time-points are renumbered as if a single parser had
+ * read all lines. At most two batches per worker are in flight; the caller waits for the oldest batch if necessary.
+ * <p>
+ * A line that cannot be parsed raises its {@link ParseException} when the merge reaches it, i.e., during a later call.
+ * The following lines are emitted by the next calls, as with a sequential parser. {@link #endOfInput(Consumer)} emits
+ * all remaining lines before it throws the first of their errors; their later errors are not reported.
+ */
+public class ParallelJsonTraceParser implements TraceParser {
+    private static final long serialVersionUID = -6128530915520147347L;
+
+    // The facts of a batch, and for every line the end of its facts, the number of time-points it advanced the parser
+    // by, and its error, if any.
+    private static final class Batch {
+        final ArrayList<Fact> facts = new ArrayList<>();
+        final int[] factEnds;
+        final long[] timepoints;
+        final ParseException[] errors;
+
+        Batch(int lines) {
+            this.factEnds = new int[lines];
+            this.timepoints = new long[lines];
+            this.errors = new ParseException[lines];
+        }
+    }
+
+    private final JsonTraceParser[] parsers;
+    private final int batchSize;
+
+    private long nextTimepoint;
+    private int nextWorker;
+
+    private transient ArrayList<String> lines;
+    private transient ExecutorService[] executors;
+    private transient ArrayDeque<Future<Batch>> pending;
+
+    // The batch that is being emitted, which has been interrupted by an error.
+    private transient Batch current;
+    private transient int currentLine;
+    private transient int currentFact;
+
+    public ParallelJsonTraceParser(List<String> timestampPath, JsonTraceParser.Projection projection, int numWorkers,
+                                   int batchSize) {
+        if (numWorkers < 1) {
+            throw new IllegalArgumentException("numWorkers");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize");
+        }
+        this.parsers = new JsonTraceParser[numWorkers];
+        for (int i = 0; i < numWorkers; ++i) {
+            parsers[i] = new JsonTraceParser(timestampPath, projection);
+            parsers[i].setTraceId(i, numWorkers);
+        }
+        this.batchSize = batchSize;
+        this.nextTimepoint = 0;
+        this.nextWorker = 0;
+    }
+
+    private void start() {
+        lines = new ArrayList<>(batchSize);
+        executors = new ExecutorService[parsers.length];
+        for (int i = 0; i < parsers.length; ++i) {
+            executors[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "json-parser");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pending = new ArrayDeque<>(2 * parsers.length);
+    }
+
+    private static Batch parseBatch(JsonTraceParser parser, List<String> lines) {
+        Batch batch = new Batch(lines.size());
+        for (int i = 0; i < lines.size(); ++i) {
+            final long timepoint = parser.getTimepoint();
+            try {
+                parser.parseLine(batch.facts::add, lines.get(i));
+            } catch (ParseException e) {
+                batch.errors[i] = e;
+            }
+            batch.factEnds[i] = batch.facts.size();
+            batch.timepoints[i] = parser.getTimepoint() - timepoint;
+        }
+        return batch;
+    }
+
+    private void submitBatch() {
+        JsonTraceParser parser = parsers[nextWorker];
+        List<String> batchLines = lines;
+        pending.add(executors[nextWorker].submit(() -> parseBatch(parser, batchLines)));
+        nextWorker = (nextWorker + 1) % parsers.length;
+        lines = new ArrayList<>(batchSize);
+    }
+
+    private void takeBatch() {
+        try {
+            current = pending.remove().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the JSON parser", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("JSON parser failed", e.getCause());
+        }
+        currentLine = 0;
+        currentFact = 0;
+    }
+
+    /**
+     * Emits the rest of the current batch. The batch's errors are thrown in order, one per call.
+     */
+    private void emitBatch(Consumer<Fact> sink) throws ParseException {
+        final Batch batch = current;
+        while (currentLine < batch.factEnds.length) {
+            final int line = currentLine++;
+            for (; currentFact < batch.factEnds[line]; ++currentFact) {
+                final Fact fact = batch.facts.get(currentFact);
+                fact.setTimepoint(nextTimepoint);
+                sink.accept(fact);
+            }
+            nextTimepoint += batch.timepoints[line];
+            if (batch.errors[line] != null) {
+                throw batch.errors[line];
+            }
+        }
+        current = null;
+    }
+
+    @Override
+    public void parseLine(Consumer<Fact> sink, String line) throws ParseException {
+        if (executors == null) {
+            start();
+        }
+        // The line is queued first, such that it is not lost if an earlier line's error is thrown.
+        lines.add(line);
+        if (current != null) {
+            emitBatch(sink);
+        }
+        if (lines.size() < batchSize) {
+            return;
+        }
+        submitBatch();
+        while (pending.size() >= 2 * parsers.length || (!pending.isEmpty() && pending.peek().isDone())) {
+            takeBatch();
+            emitBatch(sink);
+        }
+    }
+
+    /**
+     * Parses and emits all remaining lines, stops the worker threads, and then throws the first error of these lines,
+     * if any.
+     */
+    @Override
+    public void endOfInput(Consumer<Fact> sink) throws ParseException {
+        if (executors == null) {
+            return;
+        }
+        ParseException error = null;
+        try {
+            if (!lines.isEmpty()) {
+                submitBatch();
+            }
+            while (current != null || !pending.isEmpty()) {
+                if (current == null) {
+                    takeBatch();
+                }
+                try {
+                    emitBatch(sink);
+                } catch (ParseException e) {
+                    if (error == null) {
+                        error = e;
+                    }
+                }
+            }
+        } finally {
+            for (ExecutorService executor : executors) {
+                executor.shutdownNow();
+            }
+            executors = null;
+            current = null;
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    @Override
+    public void setTerminatorMode(TerminatorMode mode) {
+        // ignore
+    }
+
+    /**
+     * Warning: resets the trace-local object ID allocation of all workers!
+     */
+    @Override
+    public void setTraceId(int id, int numTraces) {
+        if (numTraces < 1) {
+            throw new IllegalArgumentException("numTraces");
+        }
+        for (int i = 0; i < parsers.length; ++i) {
+            parsers[i].setTraceId(id * parsers.length + i, numTraces * parsers.length);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package ch.ethz.infsec.trace.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads the raw IC logs, which are a Python literal holding an array of Elasticsearch documents, and returns one
+ * document at a time as a single line of JSON, e.g., for {@link JsonTraceParser#parseLine}.
+ * <p>
+ * The input is read incrementally through a fixed buffer, so only the current document is held in memory. Strings in
+ * single or double quotes are converted to JSON strings, including Python's {@code \x} and {@code \U} escapes, and
+ * {@code None}, {@code True} and {@code False} become {@code null}, {@code true} and {@code false}. Line breaks outside
+ * of strings are dropped.
+ */
+public class RawLogReader implements Closeable {
+    private final Reader reader;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+    private boolean started;
+    private boolean finished;
+    private final StringBuilder document;
+
+    public RawLogReader(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[1 << 16];
+        this.position = 0;
+        this.limit = 0;
+        this.started = false;
+        this.finished = false;
+        this.document = new StringBuilder();
+    }
+
+    // Makes at least the given number of characters available, unless the input ends before.
+    private boolean fill(int count) throws IOException {
+        if (limit - position >= count) {
+            return true;
+        }
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+        while (limit < count) {
+            final int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+
+    private boolean startsWith(String prefix) throws IOException {
+        if (!fill(prefix.length())) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); ++i) {
+            if (buffer[position + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean replace(String literal, String json) throws IOException {
+        if (startsWith(literal)) {
+            document.append(json);
+            position += literal.length();
+            return true;
+        }
+        return false;
+    }
+
+    private ParseException unterminatedString() {
+        finished = true;
+        return new ParseException(takeDocument());
+    }
+
+    private void convertString() throws IOException, ParseException {
+        final char quote = buffer[position++];
+        document.append('"');
+        while (true) {
+            if (!fill(1)) {
+                throw unterminatedString();
+            }
+            // Copy the run of characters that need no conversion at once.
+            int end = position;
+            while (end < limit && buffer[end] != quote && buffer[end] != '\\' && buffer[end] != '"') {
+                ++end;
+            }
+            document.append(buffer, position, end - position);
+            position = end;
+            if (position == limit) {
+                continue;
+            }
+            final char c = buffer[position];
+            if (c == quote) {
+                ++position;
+                break;
+            } else if (c == '"') {
+                document.append("\\\"");
+                ++position;
+            } else {
+                if (!fill(2)) {
+                    throw unterminatedString();
+                }
+                final char escaped = buffer[position + 1];
+                if (escaped == '\'') {
+                    document.append('\'');
+                    position += 2;
+                } else if (escaped == 'x') {
+                    if (!fill(4)) {
+                        throw unterminatedString();
+                    }
+                    document.append("\\u00").append(buffer, position + 2, 2);
+                    position += 4;
+                } else if (escaped == 'U') {
+                    if (!fill(10)) {
+                        throw unterminatedString();
+                    }
+                    try {
+                        document.append(Character.toChars(Integer.parseInt(new String(buffer, position + 2, 8), 16)));
+                    } catch (IllegalArgumentException e) {
+                        finished = true;
+                        throw new ParseException(new String(buffer, position, 10));
+                    }
+                    position += 10;
+                } else {
+                    document.append(c).append(escaped);
+                    position += 2;
+                }
+            }
+        }
+        document.append('"');
+    }
+
+    private String takeDocument() {
+        final String json = document.toString().trim();
+        document.setLength(0);
+        return json;
+    }
+
+    /**
+     * Returns the next document, or null at the end of the array.
+     */
+    public String nextDocument() throws IOException, ParseException {
+        if (finished) {
+            return null;
+        }
+        if (!started) {
+            while (fill(1) && buffer[position] != '[') {
+                ++position;
+            }
+            if (!fill(1)) {
+                finished = true;
+                return null;
+            }
+            ++position;
+            started = true;
+        }
+
+        int depth = 0;
+        while (true) {
+            if (!fill(1)) {
+                finished = true;
+                final String json = takeDocument();
+                return json.isEmpty() ? null : json;
+            }
+            final char c = buffer[position];
+            switch (c) {
+                case '\'':
+                case '"':
+                    convertString();
+                    continue;
+                case '[':
+                case '{':
+                    ++depth;
+                    break;
+                case ']':
+                case '}':
+                    if (depth == 0) {
+                        ++position;
+                        finished = true;
+                        final String json = takeDocument();
+                        return json.isEmpty() ? null : json;
+                    }
+                    --depth;
+                    break;
+                case ',':
+                    if (depth == 0) {
+                        ++position;
+                        final String json = takeDocument();
+                        if (json.isEmpty()) {
+                            continue;
+                        }
+                        return json;
+                    }
+                    break;
+                case '\n':
+                case '\r':
+                    ++position;
+                    continue;
+                case 'N':
+                    if (replace("None", "null")) {
+                        continue;
+                    }
+                    break;
+                case 'T':
+                    if (replace("True", "true")) {
+                        continue;
+                    }
+                    break;
+                case 'F':
+                    if (replace("False", "false")) {
+                        continue;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            document.append(c);
+            ++position;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,257 @@
+package ch.ethz.infsec.trace.parser;
+
+import ch.ethz.infsec.monitor.Fact;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads a snapshot of the IC registry in JSON, as written by ic-regedit, and emits the initial state of the
+ * {@code originally_in_ic}, {@code original_subnet_type}, and {@code originally_in_subnet} relations as a single
+ * time-point with time-stamp 0.
+ * <p>
+ * The snapshot may be split into lines arbitrarily. It is tokenized incrementally by Jackson's non-blocking parser, and
+ * only the nodes' addresses and the subnets' types and members are kept; the facts are emitted at the end of the input.
+ * Node addresses are written in the canonical IPv6 text representation (RFC 5952).
+ */
+public class RegistrySnapshotParser implements TraceParser {
+    private static final long serialVersionUID = 4630715298361945071L;
+
+    public static final String ORIGINALLY_IN_IC = "originally_in_ic";
+    public static final String ORIGINAL_SUBNET_TYPE = "original_subnet_type";
+    public static final String ORIGINALLY_IN_SUBNET = "originally_in_subnet";
+
+    private static final String NODE_RECORD = "node_record_";
+    private static final String SUBNET_RECORD = "subnet_record_";
+    private static final String SUBNET_LIST = "subnet_list";
+    private static final String PRINCIPAL_ID = "(principal-id)";
+
+    // Only the field names of the outermost levels are needed to locate the values.
+    private static final int MAX_DEPTH = 3;
+
+    private transient JsonParser jsonParser;
+    private transient ByteArrayFeeder feeder;
+    private transient int depth;
+    private transient String[] fieldNames;
+    private transient String currentLine;
+
+    private transient LinkedHashMap<String, String> nodeAddresses;
+    private transient ArrayList<String> subnets;
+    private transient HashMap<String, Integer> subnetTypes;
+    private transient LinkedHashMap<String, ArrayList<String>> subnetMembers;
+
+    private void begin() throws IOException {
+        if (jsonParser != null) {
+            return;
+        }
+        JsonFactory jsonFactory = new JsonFactoryBuilder().build();
+        jsonParser = jsonFactory.createNonBlockingByteArrayParser();
+        feeder = (ByteArrayFeeder) jsonParser.getNonBlockingInputFeeder();
+        depth = 0;
+        fieldNames = new String[MAX_DEPTH + 1];
+        nodeAddresses = new LinkedHashMap<>();
+        subnets = new ArrayList<>();
+        subnetTypes = new HashMap<>();
+        subnetMembers = new LinkedHashMap<>();
+    }
+
+    private static String stripPrincipal(String id) {
+        return id.startsWith(PRINCIPAL_ID) ? id.substring(PRINCIPAL_ID.length()) : id;
+    }
+
+    private void processValue(JsonToken token) throws IOException {
+        final String record = fieldNames[1];
+        if (record == null) {
+            return;
+        }
+        if (depth == 3 && token == JsonToken.VALUE_STRING && record.startsWith(NODE_RECORD)
+                && "http".equals(fieldNames[2]) && "ip_addr".equals(fieldNames[3])) {
+            nodeAddresses.put(record.substring(NODE_RECORD.length()), jsonParser.getText());
+        } else if (depth == 3 && token == JsonToken.VALUE_STRING && record.equals(SUBNET_LIST)
+                && "subnets".equals(fieldNames[2]) && fieldNames[3] == null) {
+            subnets.add(stripPrincipal(jsonParser.getText()));
+        } else if (depth == 2 && token == JsonToken.VALUE_NUMBER_INT && record.startsWith(SUBNET_RECORD)
+                && "subnet_type".equals(fieldNames[2])) {
+            subnetTypes.put(record.substring(SUBNET_RECORD.length()), jsonParser.getIntValue());
+        } else if (depth == 3 && token == JsonToken.VALUE_STRING && record.startsWith(SUBNET_RECORD)
+                && "membership".equals(fieldNames[2]) && fieldNames[3] == null) {
+            subnetMembers.computeIfAbsent(record.substring(SUBNET_RECORD.length()), key -> new ArrayList<>())
+                    .add(stripPrincipal(jsonParser.getText()));
+        }
+    }
+
+    private void processTokens() throws IOException {
+        JsonToken token;
+        while ((token = jsonParser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case FIELD_NAME:
+                    if (depth <= MAX_DEPTH) {
+                        fieldNames[depth] = jsonParser.getCurrentName();
+                    }
+                    break;
+                case START_OBJECT:
+                case START_ARRAY:
+                    ++depth;
+                    if (depth <= MAX_DEPTH) {
+                        fieldNames[depth] = null;
+                    }
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    --depth;
+                    break;
+                default:
+                    processValue(token);
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public void parseLine(Consumer<Fact> sink, String line) throws ParseException {
+        try {
+            begin();
+            currentLine = line;
+            byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+            feeder.feedInput(bytes, 0, bytes.length);
+            processTokens();
+        } catch (IOException e) {
+            throw new ParseException(line);
+        }
+    }
+
+    private static String canonicalAddress(String address) throws ParseException {
+        // Only literals are passed to getByName, which would otherwise resolve host names.
+        if (address.indexOf(':') < 0) {
+            throw new ParseException(address);
+        }
+        final byte[] bytes;
+        try {
+            InetAddress inetAddress = InetAddress.getByName(address);
+            if (!(inetAddress instanceof Inet6Address)) {
+                throw new ParseException(address);
+            }
+            bytes = inetAddress.getAddress();
+        } catch (UnknownHostException e) {
+            throw new ParseException(address);
+        }
+
+        // The longest run of at least two zero groups is abbreviated, the first one if there are several.
+        final int[] groups = new int[8];
+        int bestStart = -1;
+        int bestLength = 1;
+        for (int i = 0, runLength = 0; i < 8; ++i) {
+            groups[i] = ((bytes[2 * i] & 0xff) << 8) | (bytes[2 * i + 1] & 0xff);
+            runLength = groups[i] == 0 ? runLength + 1 : 0;
+            if (runLength > bestLength) {
+                bestStart = i - runLength + 1;
+                bestLength = runLength;
+            }
+        }
+        final StringBuilder builder = new StringBuilder(39);
+        for (int i = 0; i < 8; ++i) {
+            if (i == bestStart) {
+                builder.append("::");
+                i += bestLength - 1;
+                continue;
+            }
+            if (builder.length() > 0 && builder.charAt(builder.length() - 1) != ':') {
+                builder.append(':');
+            }
+            builder.append(Integer.toHexString(groups[i]));
+        }
+        return builder.toString();
+    }
+
+    private static String subnetTypeName(int type, String subnet) throws ParseException {
+        switch (type) {
+            case 1:
+                return "SecureApplication";
+            case 2:
+                return "System";
+            case 4:
+                return "Application";
+            default:
+                throw new ParseException(SUBNET_RECORD + subnet);
+        }
+    }
+
+    /**
+     * Emits the initial state. Every node of the snapshot is in the IC; only the subnets in the subnet list are
+     * considered, and each node may belong to at most one of them.
+     */
+    @Override
+    public void endOfInput(Consumer<Fact> sink) throws ParseException {
+        if (jsonParser == null) {
+            return;
+        }
+        try {
+            feeder.endOfInput();
+            processTokens();
+        } catch (IOException e) {
+            throw new ParseException(currentLine);
+        }
+        if (depth != 0) {
+            throw new ParseException(currentLine);
+        }
+
+        final HashMap<String, String> addresses = new HashMap<>();
+        for (Map.Entry<String, String> node : nodeAddresses.entrySet()) {
+            addresses.put(node.getKey(), canonicalAddress(node.getValue()));
+        }
+        final ArrayList<Fact> facts = new ArrayList<>();
+        for (Map.Entry<String, String> node : nodeAddresses.entrySet()) {
+            facts.add(Fact.make(ORIGINALLY_IN_IC, 0, node.getKey(), addresses.get(node.getKey())));
+        }
+        final HashMap<String, String> memberships = new HashMap<>();
+        for (String subnet : subnets) {
+            final Integer type = subnetTypes.get(subnet);
+            if (type == null) {
+                throw new ParseException(SUBNET_RECORD + subnet);
+            }
+            facts.add(Fact.make(ORIGINAL_SUBNET_TYPE, 0, subnet, subnetTypeName(type, subnet)));
+            for (String node : subnetMembers.getOrDefault(subnet, new ArrayList<>())) {
+                final String address = addresses.get(node);
+                if (address == null || memberships.put(node, subnet) != null) {
+                    throw new ParseException(NODE_RECORD + node);
+                }
+                facts.add(Fact.make(ORIGINALLY_IN_SUBNET, 0, node, address, subnet));
+            }
+        }
+        facts.add(Fact.terminator(0));
+
+        jsonParser = null;
+        feeder = null;
+        nodeAddresses = null;
+        subnets = null;
+        subnetTypes = null;
+        subnetMembers = null;
+        for (Fact fact : facts) {
+            fact.setTimepoint(0);
+            sink.accept(fact);
+        }
+    }
+
+    @Override
+    public void setTerminatorMode(TerminatorMode mode) {
+        // ignore
+    }
+
+    @Override
+    public void setTraceId(int id, int numTraces) {
+        // ignore
+    }
+}
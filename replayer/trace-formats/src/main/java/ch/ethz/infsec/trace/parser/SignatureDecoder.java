@@ -0,0 +1,109 @@
+package ch.ethz.infsec.trace.parser;
+
+import ch.ethz.infsec.monitor.DataType;
+import ch.ethz.infsec.monitor.Numbers;
+import ch.ethz.infsec.monitor.RelationLayout;
+import ch.ethz.infsec.monitor.Signature;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * A signature compiled for parsing. Every relation is resolved once to a {@link RelationDecoder}, which is looked up
+ * by name and decodes fields by position, without consulting the signature or its type lists per tuple.
+ */
+final class SignatureDecoder implements Serializable {
+    private static final long serialVersionUID = -3611260370816374825L;
+
+    private static final byte STRING = 0;
+    private static final byte INTEGRAL = 1;
+    private static final byte FLOAT = 2;
+
+    /**
+     * The field decoders of a single relation.
+     */
+    static final class RelationDecoder implements Serializable {
+        private static final long serialVersionUID = 4709324419567281203L;
+
+        private final RelationLayout layout;
+        private final byte[] kinds;
+
+        private RelationDecoder(RelationLayout layout) {
+            this.layout = layout;
+            this.kinds = new byte[layout.getArity()];
+            for (int i = 0; i < kinds.length; ++i) {
+                final DataType type = layout.getType(i);
+                kinds[i] = type == DataType.INTEGRAL ? INTEGRAL : type == DataType.FLOAT ? FLOAT : STRING;
+            }
+        }
+
+        RelationLayout getLayout() {
+            return layout;
+        }
+
+        int getArity() {
+            return kinds.length;
+        }
+
+        /**
+         * Returns whether the field is a string. Callers must reject tuples with more fields than the arity first.
+         */
+        boolean isString(int field) {
+            return kinds[field] == STRING;
+        }
+
+        /**
+         * Decodes a range of the character sequence. Numbers are parsed without creating a string.
+         */
+        Object decode(int field, CharSequence value, int start, int end) {
+            switch (kinds[field]) {
+                case INTEGRAL:
+                    return Numbers.parseLong(value, start, end);
+                case FLOAT:
+                    return Numbers.parseDouble(value, start, end);
+                default:
+                    return value.subSequence(start, end).toString();
+            }
+        }
+
+        /**
+         * Decodes a range of UTF-8 bytes.
+         */
+        Object decode(int field, byte[] value, int start, int end) {
+            switch (kinds[field]) {
+                case INTEGRAL:
+                    return Numbers.parseLong(value, start, end);
+                case FLOAT:
+                    return Numbers.parseDouble(value, start, end);
+                default:
+                    return new String(value, start, end - start, StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    private final HashMap<String, RelationDecoder> relations = new HashMap<>();
+    private transient RelationDecoder last;
+
+    SignatureDecoder(Signature signature) {
+        for (RelationLayout layout : RelationLayout.forSignature(signature).values()) {
+            relations.put(layout.getName(), new RelationDecoder(layout));
+        }
+    }
+
+    /**
+     * Returns the decoder of the relation, or null if it is not part of the signature. Consecutive lookups of the
+     * same relation are answered without hashing.
+     */
+    RelationDecoder get(String name) {
+        final RelationDecoder cached = last;
+        if (cached != null && cached.getLayout().getName().equals(name)) {
+            return cached;
+        }
+        final RelationDecoder relation = relations.get(name);
+        if (relation != null) {
+            last = relation;
+        }
+        return relation;
+    }
+}
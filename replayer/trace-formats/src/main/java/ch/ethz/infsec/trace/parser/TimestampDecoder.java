@@ -0,0 +1,106 @@
+package ch.ethz.infsec.trace.parser;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Converts ISO-8601 instants, e.g., {@code 2022-09-05T16:28:04.271Z}, to milliseconds since the epoch, with the same
+ * results as {@code Instant.parse(text).toEpochMilli()}.
+ * <p>
+ * Instants in the fixed layout {@code yyyy-MM-ddTHH:mm:ss[.f...]Z} are decoded in place. The epoch of the date and hour
+ * is cached, so only the minutes, seconds, and fraction are parsed as long as consecutive instants fall into the same
+ * hour. All other layouts, as well as the first instant of every hour, are passed to {@link Instant#parse}, which also
+ * validates the date. A decoder must not be shared by multiple threads.
+ */
+public final class TimestampDecoder {
+    // The length of "yyyy-MM-ddTHH".
+    private static final int PREFIX_LENGTH = 13;
+    // The length of "yyyy-MM-ddTHH:mm:ssZ".
+    private static final int MIN_LENGTH = 20;
+    private static final int MAX_FRACTION_DIGITS = 9;
+
+    private String cachedPrefix;
+    private long cachedHourMillis;
+
+    public TimestampDecoder() {
+        this.cachedPrefix = null;
+        this.cachedHourMillis = 0;
+    }
+
+    private static boolean isDigits(String text, int start, int end) {
+        for (int i = start; i < end; ++i) {
+            final char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the milliseconds of the instant since the start of its hour, or -1 if the part after the hour is not in
+     * the fixed layout or has a leap second. The length of the text must be in the range of the layout.
+     */
+    private static long millisOfHour(String text) {
+        final int length = text.length();
+        final int minutes1 = text.charAt(14) - '0';
+        final int minutes0 = text.charAt(15) - '0';
+        final int seconds1 = text.charAt(17) - '0';
+        final int seconds0 = text.charAt(18) - '0';
+        // Characters below '0' make the disjunction negative.
+        if (text.charAt(13) != ':' || text.charAt(16) != ':' || text.charAt(length - 1) != 'Z'
+                || (minutes1 | minutes0 | seconds1 | seconds0) < 0
+                || minutes1 > 5 || minutes0 > 9 || seconds1 > 5 || seconds0 > 9) {
+            return -1;
+        }
+        long millis = 0;
+        if (length > MIN_LENGTH) {
+            // At least one fraction digit; only the first three are significant for milliseconds.
+            if (text.charAt(19) != '.' || length == MIN_LENGTH + 1) {
+                return -1;
+            }
+            if (!isDigits(text, 20, length - 1)) {
+                return -1;
+            }
+            millis = (text.charAt(20) - '0') * 100;
+            if (length > MIN_LENGTH + 2) {
+                millis += (text.charAt(21) - '0') * 10;
+            }
+            if (length > MIN_LENGTH + 3) {
+                millis += text.charAt(22) - '0';
+            }
+        }
+        return ((minutes1 * 10 + minutes0) * 60L + seconds1 * 10 + seconds0) * 1000L + millis;
+    }
+
+    private static boolean isHourPrefix(String text) {
+        return text.charAt(4) == '-' && text.charAt(7) == '-' && text.charAt(10) == 'T' && isDigits(text, 0, 4)
+                && isDigits(text, 5, 7) && isDigits(text, 8, 10) && isDigits(text, 11, 13);
+    }
+
+    /**
+     * Returns the milliseconds since the epoch.
+     *
+     * @throws DateTimeParseException if the text is not an ISO-8601 instant
+     */
+    public long parseMillis(String text) {
+        final int length = text.length();
+        if (length < MIN_LENGTH || length > MIN_LENGTH + 1 + MAX_FRACTION_DIGITS) {
+            return Instant.parse(text).toEpochMilli();
+        }
+        // The cached prefix has been validated already.
+        final String prefix = cachedPrefix;
+        final boolean cached = prefix != null && text.regionMatches(0, prefix, 0, PREFIX_LENGTH);
+        final long millisOfHour = cached || isHourPrefix(text) ? millisOfHour(text) : -1;
+        if (millisOfHour < 0) {
+            return Instant.parse(text).toEpochMilli();
+        }
+        if (cached) {
+            return cachedHourMillis + millisOfHour;
+        }
+        final long millis = Instant.parse(text).toEpochMilli();
+        cachedPrefix = text.substring(0, PREFIX_LENGTH);
+        cachedHourMillis = millis - millisOfHour;
+        return millis;
+    }
+}
@@ -1,6 +1,8 @@
 package ch.ethz.infsec.trace.parser;
 
 import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactPool;
+import ch.ethz.infsec.monitor.SymbolTable;
 
 import java.io.Serializable;
 import java.util.function.Consumer;
@@ -13,6 +15,50 @@ public interface TraceParser extends Serializable {
     }
     void parseLine(Consumer<Fact> sink, String line) throws ParseException;
     void endOfInput(Consumer<Fact> sink) throws ParseException;
+
+    /**
+     * Like {@link #parseLine(Consumer, String)}, but groups the facts into one batch per time-point. Parsers may
+     * override this to fill the collector's batches without creating facts. A fact whose relation already has facts
+     * with a different number of arguments in the same time-point is rejected with a {@link ParseException}.
+     */
+    default void parseBatches(FactBatchCollector collector, String line) throws ParseException {
+        try {
+            parseLine(collector, line);
+        } catch (IllegalArgumentException e) {
+            throw new ParseException(line);
+        }
+    }
+
+    /**
+     * Like {@link #endOfInput(Consumer)}, but also passes on the last open batch.
+     */
+    default void endOfBatches(FactBatchCollector collector) throws ParseException {
+        endOfInput(collector);
+        collector.flush();
+    }
+
+    /**
+     * Returns whether the input parsed so far ends between databases and commands, i.e., whether the next line starts a
+     * new one. This is always the case for formats with one event or command per line.
+     */
+    default boolean inInitialState() {
+        return true;
+    }
+
     void setTerminatorMode(TerminatorMode mode);
     void setTraceId(int id, int numTraces);
+
+    /**
+     * Makes the parser take the facts it emits from the pool (if supported). The caller is responsible for returning
+     * facts to the pool once they are no longer used. A null pool disables pooling.
+     */
+    default void setFactPool(FactPool pool) {
+    }
+
+    /**
+     * Makes the parser take relation names and string arguments from the symbol table (if supported). A null table
+     * disables interning.
+     */
+    default void setSymbolTable(SymbolTable symbolTable) {
+    }
 }
@@ -0,0 +1,193 @@
+package ch.ethz.infsec.trace.parser;
+
+import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactBatch;
+import ch.ethz.infsec.monitor.FactSerializer;
+import ch.ethz.infsec.trace.formatter.WireEncoder;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Decodes a stream in the binary wire format written by {@link WireEncoder}. Frames can be read from an
+ * {@link InputStream} (e.g., a socket) or decoded from byte arrays holding one frame each (e.g., Kafka records).
+ * <p>
+ * The decoder is stateful and must be used for a single stream only.
+ */
+public class WireDecoder {
+    public interface Sink {
+        void acceptBatch(FactBatch batch);
+
+        void acceptMeta(Fact fact);
+
+        void acceptText(String text);
+    }
+
+    private final ArrayList<String> dictionary = new ArrayList<>();
+    private final ByteInput input = new ByteInput();
+    private byte[] frame = new byte[4096];
+    private long previousTimestamp = 0;
+    private long previousTimepoint = 0;
+    private Object[][] columns = new Object[0][];
+
+    /**
+     * Reads and decodes the next frame.
+     *
+     * @return false if the stream ended before the frame
+     * @throws ParseException if the frame is malformed
+     * @throws IOException if the stream ends within the frame
+     */
+    public boolean readFrame(InputStream stream, Sink sink) throws IOException, ParseException {
+        final int first = stream.read();
+        if (first < 0) {
+            return false;
+        }
+        final byte[] header = new byte[]{(byte) first, 0, 0, 0};
+        readFully(stream, header, 1, 3);
+        final int bodyLength = bodyLength(header, 0);
+        if (frame.length < bodyLength) {
+            frame = new byte[Math.max(bodyLength, 2 * frame.length)];
+        }
+        readFully(stream, frame, 0, bodyLength);
+        decodeBody(frame, 0, bodyLength, sink);
+        return true;
+    }
+
+    /**
+     * Decodes a frame, including its length header.
+     *
+     * @throws ParseException if the frame is malformed or its length does not match
+     */
+    public void decodeFrame(byte[] bytes, int offset, int length, Sink sink) throws ParseException {
+        if (length < 4 || bodyLength(bytes, offset) != length - 4) {
+            throw new ParseException("frame of " + length + " bytes");
+        }
+        decodeBody(bytes, offset + 4, length - 4, sink);
+    }
+
+    private static void readFully(InputStream stream, byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            final int read = stream.read(bytes, offset, length);
+            if (read < 0) {
+                throw new EOFException("Incomplete frame");
+            }
+            offset += read;
+            length -= read;
+        }
+    }
+
+    private static int bodyLength(byte[] bytes, int offset) throws ParseException {
+        final int length = ByteInput.getInt(bytes, offset);
+        if (length < 1) {
+            throw new ParseException("frame length " + length);
+        }
+        return length;
+    }
+
+    private void decodeBody(byte[] bytes, int offset, int length, Sink sink) throws ParseException {
+        input.reset(bytes, offset, length);
+        try {
+            final byte kind = input.readByte();
+            switch (kind) {
+                case WireEncoder.BATCH_FRAME:
+                    sink.acceptBatch(readBatch());
+                    break;
+                case WireEncoder.META_FRAME:
+                    final String name = readString();
+                    final int arity = input.readCount();
+                    final ArrayList<Object> arguments = new ArrayList<>(arity);
+                    for (int i = 0; i < arity; ++i) {
+                        arguments.add(readValue());
+                    }
+                    sink.acceptMeta(Fact.meta(name, arguments));
+                    break;
+                case WireEncoder.TEXT_FRAME:
+                    sink.acceptText(input.readUtf8());
+                    break;
+                default:
+                    throw new ParseException("frame kind " + kind);
+            }
+            if (!input.atEnd()) {
+                throw new ParseException("trailing bytes in frame");
+            }
+        } finally {
+            input.release();
+        }
+    }
+
+    private FactBatch readBatch() throws ParseException {
+        final long timestamp = previousTimestamp + input.readZigZag();
+        final long timepoint = previousTimepoint + input.readZigZag();
+        previousTimestamp = timestamp;
+        previousTimepoint = timepoint;
+        final FactBatch batch = new FactBatch(timestamp, timepoint);
+        final int relationCount = input.readCount();
+        for (int relation = 0; relation < relationCount; ++relation) {
+            final String name = readString();
+            final int arity = input.readCount();
+            final int size = input.readCount();
+            if (columns.length < arity) {
+                columns = Arrays.copyOf(columns, arity);
+            }
+            for (int column = 0; column < arity; ++column) {
+                if (columns[column] == null || columns[column].length < size) {
+                    columns[column] = new Object[Math.max(size, 16)];
+                }
+                for (int i = 0; i < size; ++i) {
+                    columns[column][i] = readValue();
+                }
+            }
+            final Object[] arguments = new Object[arity];
+            for (int i = 0; i < size; ++i) {
+                for (int column = 0; column < arity; ++column) {
+                    arguments[column] = columns[column][i];
+                }
+                batch.add(name, Arrays.asList(arguments));
+            }
+        }
+        return batch;
+    }
+
+    private String readString() throws ParseException {
+        final byte type = input.readByte();
+        if (type == WireEncoder.STRING_REFERENCE_TYPE) {
+            final long index = input.readVarLong();
+            if (index < 0 || index >= dictionary.size()) {
+                throw new ParseException("dictionary index " + index);
+            }
+            return dictionary.get((int) index);
+        }
+        if (type != FactSerializer.STRING_TYPE) {
+            throw new ParseException("type tag " + type + " for a string");
+        }
+        final String value = input.readUtf8();
+        if (dictionary.size() < WireEncoder.DICTIONARY_CAPACITY &&
+                value.length() <= WireEncoder.MAX_DICTIONARY_LENGTH) {
+            dictionary.add(value);
+        }
+        return value;
+    }
+
+    private Object readValue() throws ParseException {
+        final byte type = input.peekByte();
+        switch (type) {
+            case FactSerializer.STRING_TYPE:
+            case WireEncoder.STRING_REFERENCE_TYPE:
+                return readString();
+            case FactSerializer.LONG_TYPE:
+                input.readByte();
+                return input.readZigZag();
+            case FactSerializer.INT_TYPE:
+                input.readByte();
+                return (int) input.readZigZag();
+            case FactSerializer.DOUBLE_TYPE:
+                input.readByte();
+                return input.readDouble();
+            default:
+                throw new ParseException("type tag " + type);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ch.ethz.infsec.trace.formatter;
+
+import ch.ethz.infsec.monitor.DataType;
+import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.trace.parser.MonpolyVerdictParser;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class CompactVerdictFormatterTest {
+    private StringBuilder sink;
+    private MonpolyVerdictParser parser;
+    private CompactVerdictFormatter formatter;
+
+    @Before
+    public void setUp() {
+        sink = new StringBuilder();
+        parser = new MonpolyVerdictParser(Arrays.asList(DataType.STRING, DataType.INTEGRAL));
+        formatter = new CompactVerdictFormatter();
+    }
+
+    private void print(Fact fact) {
+        try {
+            formatter.printFact(sink::append, fact);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void parse(String... lines) throws Exception {
+        for (String line : lines) {
+            parser.parseLine(this::print, line);
+        }
+    }
+
+    @Test
+    public void testIntervals() throws Exception {
+        parse("@10 (time point 3): (a,1)(b,2)",
+                "@11 (time point 4): (b,2)(a,1)",
+                "@11 (time point 5): (a,1)(c,3)");
+        assertEquals("@10 (time point 3): opened (a,1)\n" +
+                "@10 (time point 3): opened (b,2)\n" +
+                "@10..11 (time points 3..4): closed (b,2)\n" +
+                "@11 (time point 5): opened (c,3)\n", sink.toString());
+
+        sink.setLength(0);
+        parse("@12 (time point 6): (c,3)",
+                "@20 (time point 8): (c,3)(\"foo bar\",4)",
+                "@21 (time point 9): (c,3)(c,3)");
+        assertEquals("@10..11 (time points 3..5): closed (a,1)\n" +
+                "@11..12 (time points 5..6): closed (c,3)\n" +
+                "@20 (time point 8): opened (c,3)\n" +
+                "@20 (time point 8): opened (\"foo bar\",4)\n" +
+                "@20..20 (time points 8..8): closed (\"foo bar\",4)\n", sink.toString());
+
+        sink.setLength(0);
+        formatter.endOfOutput(sink::append);
+        assertEquals("@20..21 (time points 8..9): closed (c,3)\n", sink.toString());
+
+        sink.setLength(0);
+        formatter.endOfOutput(sink::append);
+        assertEquals("", sink.toString());
+    }
+
+    @Test
+    public void testPropositional() throws Exception {
+        for (int i = 0; i < 1000; ++i) {
+            print(Fact.make("", 100L + i).withTimepoint(i));
+            print(Fact.terminator(100L + i).withTimepoint(i));
+        }
+        formatter.endOfOutput(sink::append);
+        assertEquals("@100 (time point 0): opened true\n" +
+                "@100..1099 (time points 0..999): closed true\n", sink.toString());
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        parse("@10 (time point 3): (a,1)");
+        sink.setLength(0);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ObjectOutputStream objectOut = new ObjectOutputStream(out);
+        objectOut.writeObject(formatter);
+
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        final ObjectInputStream objectIn = new ObjectInputStream(in);
+        formatter = (CompactVerdictFormatter) objectIn.readObject();
+
+        parse("@11 (time point 4): (a,1)", "@12 (time point 5): (b,2)");
+        assertEquals("@10..11 (time points 3..4): closed (a,1)\n" +
+                "@12 (time point 5): opened (b,2)\n", sink.toString());
+    }
+}
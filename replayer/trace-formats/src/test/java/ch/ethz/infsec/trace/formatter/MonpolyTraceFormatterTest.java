@@ -1,6 +1,8 @@
 package ch.ethz.infsec.trace.formatter;
 
 import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactBatch;
+import ch.ethz.infsec.monitor.SymbolTable;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -10,6 +12,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class MonpolyTraceFormatterTest {
     private StringBuilder sink;
@@ -43,6 +46,49 @@ public class MonpolyTraceFormatterTest {
         assertEquals("@456 abc()() def(uvw)(xyz) ghi(789)\n@456 def(\"()\",\"foo bar\")\n", sink.toString());
     }
 
+    @Test
+    public void testPrintBatch() throws Exception {
+        formatter.printFact(sink::append, Fact.make("def", 1L, "a"));
+        formatter.printFact(sink::append, Fact.make("abc", 1L));
+        formatter.printFact(sink::append, Fact.terminator(1L));
+
+        FactBatch batch = new FactBatch(456L, 1L);
+        batch.add(Fact.make("ghi", 456L, 789L));
+        batch.add(Fact.make("abc", 456L));
+        batch.add(Fact.make("def", 456L, "uvw"));
+        batch.add(Fact.make("def", 456L, "foo bar"));
+        formatter.printBatch(sink::append, batch);
+        formatter.printBatch(sink::append, new FactBatch(457L, 2L));
+        assertEquals("@1 def(a) abc()\n@456 def(uvw)(\"foo bar\") abc() ghi(789)\n@457\n", sink.toString());
+        assertTrue(formatter.inInitialState());
+
+        sink.setLength(0);
+        MonpolyTraceFormatter linearizing = new MonpolyLinearizingTraceFormatter(true);
+        linearizing.printBatch(sink::append, batch);
+        assertEquals("@456 ghi(789)\n@456 abc()\n@456 def(uvw)\n@456 def(\"foo bar\")\n", sink.toString());
+    }
+
+    @Test
+    public void testSymbolTable() throws Exception {
+        SymbolTable symbolTable = new SymbolTable(16);
+        for (int i = 0; i < 2; ++i) {
+            symbolTable.intern("uvw");
+            symbolTable.intern("foo bar");
+        }
+        formatter.setSymbolTable(symbolTable);
+        for (int i = 0; i < 2; ++i) {
+            formatter.printFact(sink::append, Fact.make("def", 456L, "uvw", "foo bar", 7L));
+            formatter.printFact(sink::append, Fact.terminator(456L));
+        }
+        assertEquals("@456 def(uvw,\"foo bar\",7)\n@456 def(uvw,\"foo bar\",7)\n", sink.toString());
+
+        sink.setLength(0);
+        formatter.setLazyQuotes(false);
+        formatter.printFact(sink::append, Fact.make("def", 456L, "uvw", "foo bar", 7L));
+        formatter.printFact(sink::append, Fact.terminator(456L));
+        assertEquals("@456 def(\"uvw\",\"foo bar\",7)\n", sink.toString());
+    }
+
     @Test
     public void testStringEscapes() throws Exception {
         formatter.printFact(sink::append, Fact.make("abc", 123L, "hello \\n\"world\\"));
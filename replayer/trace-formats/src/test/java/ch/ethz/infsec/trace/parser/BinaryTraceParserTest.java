@@ -0,0 +1,161 @@
+package ch.ethz.infsec.trace.parser;
+
+import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactBatch;
+import ch.ethz.infsec.trace.formatter.BinaryTraceFormatter;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class BinaryTraceParserTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ArrayList<Fact> sink;
+    private List<Fact> trace;
+
+    private static Fact withTimepoint(Fact fact, long timepoint) {
+        fact.setTimepoint(timepoint);
+        return fact;
+    }
+
+    @Before
+    public void setUp() {
+        sink = new ArrayList<>();
+        trace = new ArrayList<>();
+        for (long tp = 0; tp < 10; ++tp) {
+            final long ts = 100 + tp / 3;
+            if (tp == 4) {
+                trace.add(Fact.meta("set_slicer", "node-1", 5L));
+            }
+            if (tp % 2 == 0) {
+                trace.add(withTimepoint(Fact.make("a", ts, "node-" + tp, tp, 0.5 * tp), tp));
+                trace.add(withTimepoint(Fact.make("a", ts, "node-1", -tp, -1.0), tp));
+                trace.add(withTimepoint(Fact.make("b", ts), tp));
+            }
+            if (tp == 7) {
+                trace.add(withTimepoint(Fact.make("c", ts, 3, "ä€"), tp));
+                trace.add(withTimepoint(Fact.make("c", ts, "x", 4L), tp));
+            }
+            trace.add(withTimepoint(Fact.terminator(ts), tp));
+        }
+    }
+
+    private byte[] format(BinaryTraceFormatter formatter) throws Exception {
+        final StringBuilder output = new StringBuilder();
+        for (Fact fact : trace) {
+            formatter.printFact(output::append, fact);
+        }
+        formatter.endOfOutput(output::append);
+        return output.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final byte[] bytes = format(new BinaryTraceFormatter(4, 3));
+
+        BinaryTraceParser parser = new BinaryTraceParser();
+        parser.parse(sink::add, bytes, 0, bytes.length);
+        parser.endOfInput(sink::add);
+        assertEquals(trace, sink);
+        for (int i = 0; i < trace.size(); ++i) {
+            assertEquals(trace.get(i).getTimepoint(), sink.get(i).getTimepoint());
+        }
+
+        // Split the input at every position.
+        for (int split = 0; split <= bytes.length; ++split) {
+            sink.clear();
+            parser = new BinaryTraceParser();
+            parser.parse(sink::add, bytes, 0, split);
+            parser.parseLine(sink::add, new String(bytes, split, bytes.length - split, StandardCharsets.ISO_8859_1));
+            parser.endOfInput(sink::add);
+            assertEquals(trace, sink);
+        }
+    }
+
+    @Test
+    public void testBatches() throws Exception {
+        final byte[] bytes = format(new BinaryTraceFormatter());
+        final ArrayList<FactBatch> batches = new ArrayList<>();
+        final FactBatchCollector collector = new FactBatchCollector(batches::add, sink::add);
+        final BinaryTraceParser parser = new BinaryTraceParser();
+        parser.parseBatches(collector, new String(bytes, StandardCharsets.ISO_8859_1));
+        parser.endOfBatches(collector);
+
+        assertEquals(10, batches.size());
+        assertEquals(Collections.singletonList(Fact.meta("set_slicer", "node-1", 5L)), sink);
+        final ArrayList<Fact> facts = new ArrayList<>();
+        for (FactBatch batch : batches) {
+            facts.addAll(batch.toFacts());
+        }
+        final ArrayList<Fact> expected = new ArrayList<>(trace);
+        expected.removeIf(Fact::isMeta);
+        assertEquals(expected, facts);
+        assertEquals(7L, batches.get(7).getTimepoint());
+    }
+
+    @Test
+    public void testDirectory() throws Exception {
+        final byte[] bytes = format(new BinaryTraceFormatter(1000, 3));
+        final Path path = folder.newFile("trace.bin").toPath();
+        Files.write(path, bytes);
+
+        final List<BinaryTraceParser.BlockInfo> blocks = BinaryTraceParser.readDirectory(path);
+        assertEquals(4, blocks.size());
+        assertEquals(6L, blocks.get(2).getFirstTimepoint());
+        assertEquals(102L, blocks.get(2).getFirstTimestamp());
+        assertEquals(102L, blocks.get(2).getLastTimestamp());
+        assertEquals(3L, blocks.get(2).getDatabaseCount());
+        assertEquals(1L, blocks.get(3).getDatabaseCount());
+
+        // Resume reading at the third block.
+        final BinaryTraceParser parser = new BinaryTraceParser();
+        parser.skipFileHeader();
+        final int offset = (int) blocks.get(2).getOffset();
+        parser.parse(sink::add, bytes, offset, bytes.length - offset);
+        parser.endOfInput(sink::add);
+        assertEquals(withTimepoint(Fact.make("a", 102L, "node-6", 6L, 3.0), 6L), sink.get(0));
+        assertEquals(6L, sink.get(0).getTimepoint());
+        assertEquals(Fact.terminator(103L), sink.get(sink.size() - 1));
+        assertEquals(9L, sink.get(sink.size() - 1).getTimepoint());
+    }
+
+    @Test
+    public void testMalformedInput() throws Exception {
+        final byte[] bytes = format(new BinaryTraceFormatter());
+
+        BinaryTraceParser parser = new BinaryTraceParser();
+        parser.parse(sink::add, bytes, 0, bytes.length - 20);
+        try {
+            parser.endOfInput(sink::add);
+            fail("expected a ParseException");
+        } catch (ParseException ignored) {
+        }
+
+        parser = new BinaryTraceParser();
+        try {
+            parser.parseLine(sink::add, "@100 a(1)\n");
+            fail("expected a ParseException");
+        } catch (ParseException ignored) {
+        }
+
+        final byte[] corrupt = Arrays.copyOf(bytes, bytes.length);
+        corrupt[5] = 9;
+        parser = new BinaryTraceParser();
+        sink.clear();
+        try {
+            parser.parse(sink::add, corrupt, 0, corrupt.length);
+            fail("expected a ParseException");
+        } catch (ParseException ignored) {
+        }
+        assertTrue(sink.isEmpty());
+    }
+}
@@ -3,6 +3,7 @@ package ch.ethz.infsec.trace.parser;
 import ch.ethz.infsec.monitor.CustomSignature;
 import ch.ethz.infsec.monitor.DataType;
 import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactBatch;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -95,6 +96,28 @@ public class Crv2014CsvParserTest {
         ), sink);
     }
 
+    @Test
+    public void testWhitespace() throws Exception {
+        parser.parseLine(sink::add, "\tf\t,\ttp\t=\t3\t,\tts=\t13 ,x=\t y z \t, y = w,z = -5 \t");
+        assertEquals(Collections.singletonList(Fact.make("f", 13L, "y z", "w", -5L)), sink);
+    }
+
+    @Test
+    public void testEmptyArguments() throws Exception {
+        parser.parseLine(sink::add, "ab, tp=1, ts=1, x=");
+        parser.parseLine(sink::add, "f, tp=1, ts=1, x= , y=\t, z=1");
+        assertEquals(Arrays.asList(
+                Fact.make("ab", 1L, ""),
+                Fact.make("f", 1L, "", "", 1L)
+        ), sink);
+        assertParseFailure("f, tp=1, ts=1, x=a, y=b, z=");
+
+        sink.clear();
+        parser = new Crv2014CsvParser(null);
+        parser.parseLine(sink::add, "g, tp=1, ts=1, x=,y=  ");
+        assertEquals(Collections.singletonList(Fact.make("g", 1L, "", "")), sink);
+    }
+
     private void assertParseFailure(String line) {
         try {
             parser.parseLine(sink::add, line);
@@ -108,11 +131,51 @@ public class Crv2014CsvParserTest {
         assertParseFailure("ab");
         assertParseFailure("ab, foo=bar\n");
         assertParseFailure("f, tp=1, ts=1, foo, bar");
+        assertParseFailure("ab, tp=1, ts=1, x=y, z=w");
+        assertParseFailure("ab, tp=abc, ts=10, x0=a");
+        assertParseFailure("f, tp=1, ts=1, x=y, y=z, z=abc");
+
+        // Missing time-point or time-stamp.
+        assertParseFailure("ab, ts=1");
+        assertParseFailure("ab, tp=1");
+        assertParseFailure("ab, 1, 1, x=y");
+        assertParseFailure("ab, tp=, ts=1, x=y");
+        assertParseFailure("ab, tp=1, ts=, x=y");
+
+        // Non-numeric time-points and time-stamps.
+        assertParseFailure("ab, tp=1x, ts=1, x=y");
+        assertParseFailure("ab, tp=1.5, ts=1, x=y");
+        assertParseFailure("ab, tp=1, ts=abc, x=y");
+        assertParseFailure("ab, tp=1, ts=1 2, x=y");
+        assertParseFailure("a, tp=1, ts=99999999999999999999");
+        assertTrue(sink.isEmpty());
 
         parser.parseLine(sink::add, "ab, tp=1, ts=1, x=y");
         assertEquals(Collections.singletonList(Fact.make("ab", 1L, "y")), sink);
     }
 
+    @Test
+    public void testBatchesWithDifferentArities() throws Exception {
+        final ArrayList<FactBatch> batches = new ArrayList<>();
+        final FactBatchCollector collector = new FactBatchCollector(batches::add, sink::add);
+        parser = new Crv2014CsvParser(null);
+        parser.parseBatches(collector, "p, tp=1, ts=1, x=a");
+        try {
+            parser.parseBatches(collector, "p, tp=1, ts=1, x=a, y=b");
+            fail("expected a ParseException");
+        } catch (ParseException ignored) {
+        }
+        parser.parseBatches(collector, "p, tp=1, ts=1, x=c");
+        parser.endOfBatches(collector);
+
+        assertEquals(1, batches.size());
+        assertEquals(Arrays.asList(
+                Fact.make("p", 1L, "a"),
+                Fact.make("p", 1L, "c"),
+                Fact.terminator(1L)
+        ), batches.get(0).toFacts());
+    }
+
     @Test
     public void testSerialization() throws Exception {
         parser.parseLine(sink::add, "ab, tp=1, ts=1, uvw=xyz");
@@ -0,0 +1,141 @@
+package ch.ethz.infsec.trace.parser;
+
+import ch.ethz.infsec.monitor.CustomSignature;
+import ch.ethz.infsec.monitor.DataType;
+import ch.ethz.infsec.monitor.Fact;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DejavuTraceParserTest {
+    private ArrayList<Fact> sink;
+    private CustomSignature signature;
+
+    @Before
+    public void setUp() {
+        sink = new ArrayList<>();
+        HashMap<String, List<DataType>> types = new HashMap<>();
+        types.put("a", Collections.emptyList());
+        types.put("f", Arrays.asList(DataType.STRING, DataType.INTEGRAL, DataType.FLOAT));
+        signature = new CustomSignature(types);
+    }
+
+    private List<Long> timepoints() {
+        List<Long> timepoints = new ArrayList<>();
+        for (Fact fact : sink) {
+            timepoints.add(fact.getTimepoint());
+        }
+        return timepoints;
+    }
+
+    @Test
+    public void testUntyped() throws Exception {
+        DejavuTraceParser parser = new DejavuTraceParser();
+        parser.parseLine(sink::add, "");
+        parser.parseLine(sink::add, "  \t \r\n");
+        assertTrue(sink.isEmpty());
+
+        parser.parseLine(sink::add, "a");
+        parser.parseLine(sink::add, " f , x,12 , 1.5\r\n");
+        parser.parseLine(sink::add, "g,,y");
+        parser.endOfInput(sink::add);
+        assertEquals(Arrays.asList(
+                Fact.make("a", 0L),
+                Fact.terminator(0L),
+                Fact.make("f", 0L, "x", "12", "1.5"),
+                Fact.terminator(0L),
+                Fact.make("g", 0L, "", "y"),
+                Fact.terminator(0L)
+        ), sink);
+        assertEquals(Arrays.asList(0L, 0L, 1L, 1L, 2L, 2L), timepoints());
+    }
+
+    @Test
+    public void testTyped() throws Exception {
+        DejavuTraceParser parser = new DejavuTraceParser(signature, true);
+        parser.parseLine(sink::add, "f,x,12,1.5,10");
+        parser.parseLine(sink::add, "a, 11");
+        parser.parseLine(sink::add, "h,12,12");
+        assertEquals(Arrays.asList(
+                Fact.make("f", 10L, "x", 12L, 1.5),
+                Fact.terminator(10L),
+                Fact.make("a", 11L),
+                Fact.terminator(11L),
+                Fact.make("h", 12L, "12"),
+                Fact.terminator(12L)
+        ), sink);
+        assertEquals(Arrays.asList(0L, 0L, 1L, 1L, 2L, 2L), timepoints());
+    }
+
+    @Test
+    public void testGroupedTimestamps() throws Exception {
+        DejavuTraceParser parser = new DejavuTraceParser(signature, true);
+        parser.setTerminatorMode(TraceParser.TerminatorMode.ONLY_TIMESTAMPS);
+        parser.parseLine(sink::add, "a,10");
+        parser.parseLine(sink::add, "f,x,1,2,10");
+        assertEquals(2, sink.size());
+        parser.parseLine(sink::add, "a,11");
+        parser.parseLine(sink::add, "a,10");
+        parser.endOfInput(sink::add);
+        assertEquals(Arrays.asList(
+                Fact.make("a", 10L),
+                Fact.make("f", 10L, "x", 1L, 2.0),
+                Fact.terminator(10L),
+                Fact.make("a", 11L),
+                Fact.terminator(11L),
+                Fact.make("a", 10L),
+                Fact.terminator(10L)
+        ), sink);
+        assertEquals(Arrays.asList(0L, 0L, 0L, 1L, 1L, 2L, 2L), timepoints());
+
+        sink.clear();
+        parser.endOfInput(sink::add);
+        assertTrue(sink.isEmpty());
+    }
+
+    @Test
+    public void testNoTerminators() throws Exception {
+        DejavuTraceParser parser = new DejavuTraceParser(true);
+        parser.setTerminatorMode(TraceParser.TerminatorMode.NO_TERMINATORS);
+        parser.parseLine(sink::add, "a,10");
+        parser.parseLine(sink::add, "a,10");
+        parser.endOfInput(sink::add);
+        assertEquals(Arrays.asList(Fact.make("a", 10L), Fact.make("a", 10L)), sink);
+        assertEquals(Arrays.asList(0L, 1L), timepoints());
+    }
+
+    @Test
+    public void testTimestampOnly() throws Exception {
+        DejavuTraceParser parser = new DejavuTraceParser(signature, true);
+        parser.parseLine(sink::add, " 10 ");
+        parser.parseLine(sink::add, "a,11");
+        assertEquals(Arrays.asList(
+                Fact.make("10", 10L),
+                Fact.terminator(10L),
+                Fact.make("a", 11L),
+                Fact.terminator(11L)
+        ), sink);
+    }
+
+    private static void assertParseFailure(DejavuTraceParser parser, String line) {
+        try {
+            parser.parseLine(fact -> {}, line);
+            fail("expected a ParseException");
+        } catch (ParseException ignored) {
+        }
+    }
+
+    @Test
+    public void testParseFailure() {
+        DejavuTraceParser parser = new DejavuTraceParser(signature, true);
+        assertParseFailure(parser, "a");
+        assertParseFailure(parser, "a,x");
+        assertParseFailure(parser, "f,x,y,1.5,10");
+        assertParseFailure(parser, "f,x,1,z,10");
+        assertParseFailure(parser, "f,x,1,2,extra,10");
+        assertParseFailure(parser, "a,x,10");
+    }
+}
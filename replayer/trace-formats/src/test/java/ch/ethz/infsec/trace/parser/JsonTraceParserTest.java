@@ -1,5 +1,6 @@
 package ch.ethz.infsec.trace.parser;
 
+import ch.ethz.infsec.monitor.DataType;
 import ch.ethz.infsec.monitor.Fact;
 import org.junit.Before;
 import org.junit.Test;
@@ -10,6 +11,7 @@ import java.util.Collections;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class JsonTraceParserTest {
     private ArrayList<Fact> sink;
@@ -100,4 +102,44 @@ public class JsonTraceParserTest {
                 Fact.terminator(0L)
         ), sink);
     }
+
+    @Test
+    public void testProjection() throws Exception {
+        JsonTraceParser.Projection projection = new JsonTraceParser.Projection("p",
+                Arrays.asList(JsonTraceParser.Projection.path("a.x"), JsonTraceParser.Projection.path("a.y"),
+                        JsonTraceParser.Projection.path("b"), JsonTraceParser.Projection.path("time.stamp")),
+                Arrays.asList(DataType.STRING, DataType.INTEGRAL, DataType.FLOAT, DataType.STRING));
+        parser = new JsonTraceParser(Arrays.asList("time", "stamp"), projection);
+
+        parser.parseLine(sink::add, "");
+        assertTrue(sink.isEmpty());
+
+        parser.parseLine(sink::add, "{\"z\":[{\"a\":1}],\"a\":{\"x\":\"Hello\",\"q\":{\"x\":2},\"y\":-3}," +
+                "\"b\":1.5,\"time\":{\"stamp\":\"1970-01-01T00:00:00.456Z\"}}");
+        parser.parseLine(sink::add, "{\"time\":{\"stamp\":\"1970-01-01T00:00:00.789Z\"},\"b\":2," +
+                "\"a\":{\"y\":\"42\",\"x\":true}}");
+        assertEquals(Arrays.asList(
+                Fact.make("p", 456L, "Hello", -3L, 1.5, "1970-01-01T00:00:00.456Z"),
+                Fact.terminator(456L),
+                Fact.make("p", 789L, "true", 42L, 2.0, "1970-01-01T00:00:00.789Z"),
+                Fact.terminator(789L)
+        ), sink);
+        assertEquals(0L, sink.get(1).getTimepoint());
+        assertEquals(1L, sink.get(3).getTimepoint());
+
+        // Documents with missing or null values only terminate their time-point.
+        sink.clear();
+        parser.parseLine(sink::add, "{\"a\":{\"x\":\"Hello\",\"y\":null},\"b\":1}");
+        parser.parseLine(sink::add, "[{\"a\":{\"x\":\"Hello\",\"y\":1},\"b\":1}]");
+        assertEquals(Arrays.asList(Fact.terminator(0L), Fact.terminator(0L)), sink);
+
+        for (String invalid : Arrays.asList("{\"a\":{\"y\":\"foo\"}}", "{\"a\":{\"x\":\"Hello\"", "{\"a\":]}")) {
+            try {
+                parser.parseLine(sink::add, invalid);
+                fail("expected a ParseException");
+            } catch (ParseException e) {
+                assertEquals(invalid, e.getContext());
+            }
+        }
+    }
 }
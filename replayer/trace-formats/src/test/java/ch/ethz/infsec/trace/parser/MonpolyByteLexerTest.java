@@ -0,0 +1,169 @@
+package ch.ethz.infsec.trace.parser;
+
+import ch.ethz.infsec.monitor.SymbolTable;
+import ch.ethz.infsec.trace.parser.MonpolyLexer.TokenType;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MonpolyByteLexerTest {
+    private static final String[] INPUTS = {
+            "",
+            "@123 @ 456 a b () \n;",
+            "@ 456 abc()() def1(123)\n\n(foo) def2([foo],\"(bar\\\")\") ( a1 , \" 2b \")\r\n @789",
+            "@123 g (b,7)(c,-8) @456",
+            ">foo \"bar <\" 123<\n@1 a()",
+            "# a comment that never ends",
+            "@1 def1(2) #(3)\r@2 x(\"#\")",
+            "@123 (time point 1001): (42,\"bar\") (-42,1b)",
+            "@1 p(\"grüße, 世界\") q(\"a\\\"b\\\\\", \"\\ü\")",
+            "@1 p(\"a quoted string that is longer than a word, with \\\"escapes\\\" in the middle\")",
+            "@1 p(\"unterminated",
+            "@1 p(\"escape at the end\\",
+            "@1 p(ä)",
+            "@1 p(a=b)",
+    };
+
+    private static String describe(TokenType type, MonpolyTokenizer lexer) {
+        return type == TokenType.STRING ? "STRING " + lexer.takeTokenValue() : type.toString();
+    }
+
+    private static List<String> lexString(String input, boolean lineEnd) {
+        final MonpolyLexer lexer = new MonpolyLexer();
+        final ArrayList<String> tokens = new ArrayList<>();
+        try {
+            lexer.setPartialInput(input);
+            if (lineEnd) {
+                lexer.appendLineEnd();
+            }
+            TokenType type;
+            while ((type = lexer.nextToken()) != TokenType.INCOMPLETE) {
+                tokens.add(describe(type, lexer));
+            }
+            lexer.atEnd();
+            while ((type = lexer.nextToken()) != TokenType.END) {
+                tokens.add(describe(type, lexer));
+            }
+        } catch (ParseException e) {
+            tokens.add("ERROR");
+        }
+        return tokens;
+    }
+
+    private static List<String> lexBytes(byte[] input, int split, boolean lineEnd) {
+        final MonpolyByteLexer lexer = new MonpolyByteLexer();
+        final ArrayList<String> tokens = new ArrayList<>();
+        try {
+            // Surrounding bytes check that the lexer respects the given ranges.
+            final byte[] first = new byte[split + 2];
+            System.arraycopy(input, 0, first, 1, split);
+            first[0] = first[split + 1] = '"';
+            lexer.setPartialInput(first, 1, split);
+            TokenType type;
+            while ((type = lexer.nextToken()) != TokenType.INCOMPLETE) {
+                tokens.add(describe(type, lexer));
+            }
+            lexer.setPartialInput(input, split, input.length - split);
+            if (lineEnd) {
+                lexer.appendLineEnd();
+            }
+            while ((type = lexer.nextToken()) != TokenType.INCOMPLETE) {
+                tokens.add(describe(type, lexer));
+            }
+            lexer.atEnd();
+            while ((type = lexer.nextToken()) != TokenType.END) {
+                tokens.add(describe(type, lexer));
+            }
+        } catch (ParseException e) {
+            tokens.add("ERROR");
+        }
+        return tokens;
+    }
+
+    @Test
+    public void testSameTokensAsStringLexer() {
+        for (String input : INPUTS) {
+            final byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+            for (boolean lineEnd : new boolean[]{false, true}) {
+                final List<String> expected = lexString(input, lineEnd);
+                for (int split = 0; split <= bytes.length; ++split) {
+                    assertEquals(input + " split at " + split, expected, lexBytes(bytes, split, lineEnd));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLineEndInQuotedString() throws Exception {
+        final MonpolyByteLexer lexer = new MonpolyByteLexer();
+        final byte[] first = "@1 p(\"a".getBytes(StandardCharsets.UTF_8);
+        lexer.setPartialInput(first, 0, first.length);
+        lexer.appendLineEnd();
+        assertEquals(TokenType.AT, lexer.nextToken());
+        assertEquals(TokenType.STRING, lexer.nextToken());
+        assertEquals("1", lexer.takeTokenValue());
+        assertEquals(TokenType.STRING, lexer.nextToken());
+        assertEquals("p", lexer.takeTokenValue());
+        assertEquals(TokenType.LEFT_PAREN, lexer.nextToken());
+        assertEquals(TokenType.INCOMPLETE, lexer.nextToken());
+        assertFalse(lexer.inInitialState());
+
+        final byte[] second = "b\")".getBytes(StandardCharsets.UTF_8);
+        lexer.setPartialInput(second, 0, second.length);
+        assertEquals(TokenType.STRING, lexer.nextToken());
+        assertEquals("a\nb", lexer.takeTokenValue());
+        assertEquals(TokenType.RIGHT_PAREN, lexer.nextToken());
+        assertTrue(lexer.inInitialState());
+    }
+
+    @Test
+    public void testTokenValues() throws Exception {
+        final SymbolTable symbolTable = new SymbolTable(16);
+        final MonpolyByteLexer lexer = new MonpolyByteLexer();
+        final byte[] input = "x -42 x x \"ü\" \"ü\" \"ü\"".getBytes(StandardCharsets.UTF_8);
+        lexer.setCompleteInput(input, 0, input.length);
+        final List<String> values = new ArrayList<>();
+        assertEquals(TokenType.STRING, lexer.nextToken());
+        values.add(lexer.takeTokenValue(symbolTable));
+        assertEquals(TokenType.STRING, lexer.nextToken());
+        assertEquals(-42L, lexer.takeTokenLong());
+        for (int i = 0; i < 5; ++i) {
+            assertEquals(TokenType.STRING, lexer.nextToken());
+            values.add(lexer.takeTokenValue(symbolTable));
+        }
+        assertEquals(TokenType.END, lexer.nextToken());
+        assertEquals(Arrays.asList("x", "x", "x", "ü", "ü", "ü"), values);
+        assertSame(values.get(1), values.get(2));
+        assertSame(values.get(4), values.get(5));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        MonpolyByteLexer lexer = new MonpolyByteLexer();
+        final byte[] first = "abc \"de".getBytes(StandardCharsets.UTF_8);
+        lexer.setPartialInput(first, 0, first.length);
+        assertEquals(TokenType.STRING, lexer.nextToken());
+        assertEquals("abc", lexer.takeTokenValue());
+        assertEquals(TokenType.INCOMPLETE, lexer.nextToken());
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ObjectOutputStream objectOut = new ObjectOutputStream(out);
+        objectOut.writeObject(lexer);
+        final ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()));
+        lexer = (MonpolyByteLexer) objectIn.readObject();
+
+        final byte[] second = "f\"".getBytes(StandardCharsets.UTF_8);
+        lexer.setPartialInput(second, 0, second.length);
+        assertEquals(TokenType.STRING, lexer.nextToken());
+        assertEquals("def", lexer.takeTokenValue());
+    }
+}
@@ -3,6 +3,9 @@ package ch.ethz.infsec.trace.parser;
 import ch.ethz.infsec.monitor.CustomSignature;
 import ch.ethz.infsec.monitor.DataType;
 import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactBatch;
+import ch.ethz.infsec.monitor.FactPool;
+import ch.ethz.infsec.monitor.SymbolTable;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -10,6 +13,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static org.junit.Assert.*;
@@ -61,6 +65,101 @@ public class MonpolyTraceParserTest {
         ), sink);
     }
 
+    private void parseBytes(String input) throws ParseException {
+        final byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        parser.parse(sink::add, bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void testByteInput() throws Exception {
+        parseBytes("@123 @ 456 a b () \n;");
+        parseBytes("@ 456 abc()() def1(12");
+        parseBytes("3)\n\n(foo) def2([foo],\"(bar\\\")\") ( a1 , \" 2ü \")\r\n @789");
+        parser.endOfInput(sink::add);
+
+        assertEquals(Arrays.asList(
+                Fact.terminator(123L),
+                Fact.make("b", 456L),
+                Fact.terminator(456L),
+                Fact.make("abc", 456L),
+                Fact.make("abc", 456L),
+                Fact.make("def1", 456L, "123"),
+                Fact.make("def1", 456L, "foo"),
+                Fact.make("def2", 456L, "[foo]", "(bar\\\")"),
+                Fact.make("def2", 456L, "a1", " 2ü "),
+                Fact.terminator(456L),
+                Fact.terminator(789L)
+        ), sink);
+
+        sink.clear();
+        parseBytes("@123 g (b,7)");
+        parser.parse(sink::add, "(c,-8) @456 ");
+        parseBytes("g(d,9)");
+        parser.endOfInput(sink::add);
+        assertEquals(Arrays.asList(
+                Fact.make("g", 123L, "b", 7L),
+                Fact.make("g", 123L, "c", -8L),
+                Fact.terminator(123L),
+                Fact.make("g", 456L, "d", 9L),
+                Fact.terminator(456L)
+        ), sink);
+
+        parseBytes("@1 def1(\"x");
+        try {
+            parser.parse(sink::add, "y\")");
+            fail("expected an IllegalStateException");
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
+    @Test
+    public void testPooled() throws Exception {
+        FactPool pool = new FactPool(16);
+        parser.setFactPool(pool);
+        parser.parse(sink::add, "@123 g (b,7)(c,-8) @456 def1(x);");
+        assertEquals(Arrays.asList(
+                Fact.make("g", 123L, "b", 7L),
+                Fact.make("g", 123L, "c", -8L),
+                Fact.terminator(123L),
+                Fact.make("def1", 456L, "x"),
+                Fact.terminator(456L)
+        ), sink);
+
+        List<Fact> released = new ArrayList<>(sink);
+        released.forEach(pool::release);
+        sink.clear();
+        assertEquals(5, pool.size());
+        parser.parse(sink::add, "@789 def2(y,z);");
+        assertEquals(Arrays.asList(
+                Fact.make("def2", 789L, "y", "z"),
+                Fact.terminator(789L)
+        ), sink);
+        assertEquals(2L, sink.get(0).getTimepoint());
+        for (Fact fact : sink) {
+            assertTrue(released.stream().anyMatch(r -> r == fact));
+        }
+        assertEquals(3, pool.size());
+    }
+
+    @Test
+    public void testSymbolTable() throws Exception {
+        SymbolTable symbolTable = new SymbolTable(16);
+        parser.setSymbolTable(symbolTable);
+        parser.parse(sink::add, "@1 g(b,7) @2 g(b,7) @3 g(b,7) @4");
+        assertEquals(Arrays.asList(
+                Fact.make("g", 1L, "b", 7L),
+                Fact.terminator(1L),
+                Fact.make("g", 2L, "b", 7L),
+                Fact.terminator(2L),
+                Fact.make("g", 3L, "b", 7L),
+                Fact.terminator(3L)
+        ), sink);
+        assertSame(sink.get(2).getName(), sink.get(4).getName());
+        assertSame(sink.get(2).getArgument(0), sink.get(4).getArgument(0));
+        assertTrue(symbolTable.getCode("b") >= 0);
+        assertEquals(-1, symbolTable.getCode("7"));
+    }
+
     @Test
     public void testCommand() throws Exception {
         parser.parse(sink::add, ">foo<\n@1 a()");
@@ -80,6 +179,114 @@ public class MonpolyTraceParserTest {
         ), sink);
     }
 
+    @Test
+    public void testBatches() throws Exception {
+        final ArrayList<FactBatch> batches = new ArrayList<>();
+        final FactBatchCollector collector = new FactBatchCollector(batches::add, sink::add);
+        parser.parseBatches(collector, "@123 g(b,7) a() g(c,-8)");
+        parser.parseBatches(collector, ">foo<");
+        parser.parseBatches(collector, "@456 def1(x)");
+        parser.parseBatches(collector, "def1(y)");
+        parser.endOfBatches(collector);
+
+        assertEquals(Collections.singletonList(Fact.meta("foo")), sink);
+        assertEquals(2, batches.size());
+        final FactBatch first = batches.get(0);
+        assertEquals(123L, first.getTimestamp());
+        assertEquals(0L, first.getTimepoint());
+        assertEquals(2, first.getRelationCount());
+        assertEquals(3, first.getFactCount());
+        assertEquals("g", first.getRelationName(0));
+        assertEquals(2, first.getSize(0));
+        assertEquals(-8L, first.getValue(0, 1, 1));
+        assertEquals(Arrays.asList(
+                Fact.make("g", 123L, "b", 7L),
+                Fact.make("g", 123L, "c", -8L),
+                Fact.make("a", 123L),
+                Fact.terminator(123L)
+        ), first.toFacts());
+        assertEquals(Arrays.asList(
+                Fact.make("def1", 456L, "x"),
+                Fact.make("def1", 456L, "y"),
+                Fact.terminator(456L)
+        ), batches.get(1).toFacts());
+        assertEquals(1L, batches.get(1).getTimepoint());
+
+        batches.clear();
+        try {
+            parser.parseBatches(collector, "@789 a() def1(z)(");
+            parser.endOfBatches(collector);
+            fail("expected a ParseException");
+        } catch (ParseException ignored) {
+        }
+        parser.parseBatches(collector, "@790;");
+        assertEquals(1, batches.size());
+        assertEquals(790L, batches.get(0).getTimestamp());
+        assertEquals(0, batches.get(0).getFactCount());
+
+        // Without a signature, the arities of a relation may differ, which a batch cannot represent.
+        parser = new MonpolyTraceParser(null);
+        batches.clear();
+        try {
+            parser.parseBatches(collector, "@1 p(a) p(a,b);");
+            fail("expected a ParseException");
+        } catch (ParseException ignored) {
+        }
+        parser.parseBatches(collector, "@2 p(c);");
+        assertEquals(1, batches.size());
+        assertEquals(2L, batches.get(0).getTimestamp());
+        assertEquals(1, batches.get(0).getFactCount());
+    }
+
+    @Test
+    public void testStreaming() throws Exception {
+        parser.setStreaming(true);
+        parser.parse(sink::add, "@123 a() g(b,7)");
+        parser.parse(sink::add, "(c,-8) def1(");
+        assertEquals(Arrays.asList(
+                Fact.make("a", 123L),
+                Fact.make("g", 123L, "b", 7L),
+                Fact.make("g", 123L, "c", -8L)
+        ), sink);
+        parser.parse(sink::add, "x) @456 def1(y)");
+        parser.endOfInput(sink::add);
+        assertEquals(Arrays.asList(
+                Fact.make("a", 123L),
+                Fact.make("g", 123L, "b", 7L),
+                Fact.make("g", 123L, "c", -8L),
+                Fact.make("def1", 123L, "x"),
+                Fact.terminator(123L),
+                Fact.make("def1", 456L, "y"),
+                Fact.terminator(456L)
+        ), sink);
+        assertEquals(1L, sink.get(5).getTimepoint());
+
+        sink.clear();
+        try {
+            parser.parse(sink::add, "@789 a() def1(z)(");
+            parser.endOfInput(sink::add);
+            fail("expected a ParseException");
+        } catch (ParseException ignored) {
+        }
+        assertEquals(Arrays.asList(Fact.make("a", 789L), Fact.make("def1", 789L, "z")), sink);
+
+        parser.parse(sink::add, "@790 a()");
+        try {
+            parser.setStreaming(false);
+            fail("expected an IllegalStateException");
+        } catch (IllegalStateException ignored) {
+        }
+
+        parser.parse(sink::add, ";");
+        parser.setStreaming(false);
+        parser.parse(sink::add, "@791 a()");
+        try {
+            parser.setStreaming(true);
+            fail("expected an IllegalStateException");
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
     @Test
     public void testDatabaseTerminator() throws Exception {
         parser.parse(sink::add, "@123 a();");
@@ -89,6 +296,23 @@ public class MonpolyTraceParserTest {
         ), sink);
     }
 
+    @Test
+    public void testInInitialState() throws Exception {
+        assertTrue(parser.inInitialState());
+        parser.parseLine(sink::add, "@1 p(a)");
+        assertFalse(parser.inInitialState());
+        parser.parseLine(sink::add, "q(b);");
+        assertTrue(parser.inInitialState());
+        parser.parseLine(sink::add, "@2 p(c");
+        assertFalse(parser.inInitialState());
+        try {
+            parser.parseLine(sink::add, "@3");
+            fail("expected a parse exception");
+        } catch (ParseException ignored) {
+        }
+        assertTrue(parser.inInitialState());
+    }
+
     private void assertParseFailure(String input) {
         try {
             parser.parse(sink::add, input);
@@ -105,6 +329,10 @@ public class MonpolyTraceParserTest {
         assertParseFailure("@ @");
         assertParseFailure("@123 def2(,)");
         assertParseFailure("@123 def1(bar)(");
+        assertParseFailure("@12x def1(bar)");
+        assertParseFailure("@123 def1(bar,baz)");
+        assertParseFailure("@123 g(bar,24,abc)");
+        assertParseFailure("@123 g(bar,abc)");
 
         parser.parse(sink::add, "@123 def2 (b,c)(d,e) @456");
         assertEquals(Arrays.asList(
@@ -9,6 +9,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -64,6 +65,23 @@ public class MonpolyVerdictParserTest {
         assertEquals(sink.get(2).getTimepoint(), 1003L);
     }
 
+    @Test
+    public void testByteInput() throws Exception {
+        parser = new MonpolyVerdictParser(Arrays.asList(DataType.INTEGRAL, DataType.STRING));
+        final byte[] line = "x@789 (time point 1003): (42,\"bär\") (-42,1b)x".getBytes(StandardCharsets.UTF_8);
+        parser.parseLine(sink::add, line, 1, line.length - 2);
+        parser.parseLine(sink::add, "@790 (time point 1004): (1,a)");
+        assertEquals(Arrays.asList(
+                Fact.make("", 789L, 42L, "bär"),
+                Fact.make("", 789L, -42L, "1b"),
+                Fact.terminator(789L),
+                Fact.make("", 790L, 1L, "a"),
+                Fact.terminator(790L)
+        ), sink);
+        assertEquals(1003L, sink.get(0).getTimepoint());
+        assertTrue(parser.inInitialState());
+    }
+
     private void assertParseFailure(String input) {
         try {
             parser.parseLine(sink::add, input);
@@ -0,0 +1,154 @@
+package ch.ethz.infsec.trace.parser;
+
+import ch.ethz.infsec.monitor.DataType;
+import ch.ethz.infsec.monitor.Fact;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ParallelJsonTraceParserTest {
+    private static final List<String> TIMESTAMP_PATH = Arrays.asList("time", "stamp");
+
+    private static List<String> generateLines(int count) {
+        Random random = new Random(314159);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            switch (random.nextInt(10)) {
+                case 0:
+                    lines.add("");
+                    break;
+                case 1:
+                    lines.add("{\"a\":");
+                    break;
+                case 2:
+                    lines.add("{\"b\":[1,2," + i + "]}");
+                    break;
+                default:
+                    lines.add("{\"time\":{\"stamp\":\"1970-01-01T00:00:0" + random.nextInt(10) + "Z\"},\"a\":" + i +
+                            ",\"b\":[{\"c\":\"x\"}],\"d\":\"" + random.nextInt(100) + "\"}");
+                    break;
+            }
+        }
+        return lines;
+    }
+
+    // Records the facts and the errors in the order in which they are reported.
+    private static List<Object> parseAll(TraceParser parser, List<String> lines) {
+        List<Object> output = new ArrayList<>();
+        for (String line : lines) {
+            try {
+                parser.parseLine(output::add, line);
+            } catch (ParseException e) {
+                output.add(e.getContext());
+            }
+        }
+        try {
+            parser.endOfInput(output::add);
+        } catch (ParseException e) {
+            output.add(e.getContext());
+        }
+        return output;
+    }
+
+    private static List<Object> select(List<Object> output, boolean errors) {
+        List<Object> selected = new ArrayList<>();
+        for (Object item : output) {
+            if ((item instanceof Fact) != errors) {
+                selected.add(item);
+            }
+        }
+        return selected;
+    }
+
+    // The parallel parser reports only the first error of the lines that are left at the end of the input, after
+    // their facts. The facts must be the same, and the errors must be a prefix of the expected ones.
+    private static void assertSameOutput(List<Object> expected, List<Object> output, boolean withArguments) {
+        assertEquals(describe(select(expected, false), withArguments), describe(select(output, false), withArguments));
+        List<Object> errors = select(output, true);
+        List<Object> expectedErrors = select(expected, true);
+        assertTrue(errors.size() <= expectedErrors.size());
+        assertEquals(expectedErrors.subList(0, errors.size()), errors);
+        assertEquals(expectedErrors.isEmpty(), errors.isEmpty());
+    }
+
+    // Object IDs are omitted unless the arguments are included.
+    private static List<Object> describe(List<Object> output, boolean withArguments) {
+        List<Object> descriptions = new ArrayList<>();
+        for (Object item : output) {
+            if (item instanceof Fact) {
+                Fact fact = (Fact) item;
+                descriptions.add(fact.getName() + "@" + fact.getTimepoint() + "," + fact.getTimestamp() +
+                        (withArguments ? fact.getArguments().toString() : ""));
+            } else {
+                descriptions.add(item);
+            }
+        }
+        return descriptions;
+    }
+
+    @Test
+    public void testSameOutputAsSequentialProjection() {
+        JsonTraceParser.Projection projection = new JsonTraceParser.Projection("p",
+                Arrays.asList(JsonTraceParser.Projection.path("a"), JsonTraceParser.Projection.path("d")),
+                Arrays.asList(DataType.INTEGRAL, DataType.STRING));
+        List<String> lines = generateLines(1000);
+        List<Object> expected = parseAll(new JsonTraceParser(TIMESTAMP_PATH, projection), lines);
+        for (int numWorkers : new int[]{1, 3}) {
+            for (int batchSize : new int[]{1, 7, 2000}) {
+                List<Object> output = parseAll(
+                        new ParallelJsonTraceParser(TIMESTAMP_PATH, projection, numWorkers, batchSize), lines);
+                assertSameOutput(expected, output, true);
+            }
+        }
+    }
+
+    @Test
+    public void testEndOfInputEmitsAllLines() {
+        ParallelJsonTraceParser parser = new ParallelJsonTraceParser(TIMESTAMP_PATH, null, 2, 1000);
+        List<Object> output = new ArrayList<>();
+        try {
+            parser.parseLine(output::add, "{\"a\":");
+            parser.parseLine(output::add, "{\"time\":{\"stamp\":\"1970-01-01T00:00:01Z\"}}");
+            parser.parseLine(output::add, "{");
+            parser.parseLine(output::add, "{\"time\":{\"stamp\":\"1970-01-01T00:00:02Z\"}}");
+        } catch (ParseException e) {
+            fail("unexpected ParseException");
+        }
+        assertTrue(output.isEmpty());
+        try {
+            parser.endOfInput(output::add);
+            fail("expected a ParseException");
+        } catch (ParseException e) {
+            assertEquals("{\"a\":", e.getContext());
+        }
+        List<Long> timestamps = new ArrayList<>();
+        for (Object item : output) {
+            Fact fact = (Fact) item;
+            if (fact.isTerminator()) {
+                timestamps.add(fact.getTimestamp());
+            }
+        }
+        assertEquals(Arrays.asList(1000L, 2000L), timestamps);
+    }
+
+    @Test
+    public void testDisjointIdsInGraphMode() {
+        List<String> lines = generateLines(500);
+        List<Object> expected = parseAll(new JsonTraceParser(TIMESTAMP_PATH), lines);
+        ParallelJsonTraceParser parser = new ParallelJsonTraceParser(TIMESTAMP_PATH, null, 4, 5);
+        List<Object> output = parseAll(parser, lines);
+        assertSameOutput(expected, output, false);
+
+        Set<Object> ids = new HashSet<>();
+        int roots = 0;
+        for (Object item : output) {
+            if (item instanceof Fact && JsonTraceParser.ROOT.equals(((Fact) item).getName())) {
+                ids.add(((Fact) item).getArgument(0));
+                ++roots;
+            }
+        }
+        assertEquals(roots, ids.size());
+    }
+}
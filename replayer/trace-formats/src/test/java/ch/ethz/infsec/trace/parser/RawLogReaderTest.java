@@ -0,0 +1,83 @@
+package ch.ethz.infsec.trace.parser;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class RawLogReaderTest {
+    private static final String INPUT = "[{'_index': 'journal', '_score': None, '_source': {'@timestamp': " +
+            "'2022-09-05T16:28:04.271Z', 'args': ['a', \"it's\", True, False], 'n': 12},\n" +
+            " 'message': 'say \"hi\", {x} [y]\\n\\x41\\U0001f600\\''},\n" +
+            " {'empty': {}, 'list': [[], [None]]}]\n";
+
+    private static final List<String> DOCUMENTS = Arrays.asList(
+            "{\"_index\": \"journal\", \"_score\": null, \"_source\": {\"@timestamp\": " +
+                    "\"2022-09-05T16:28:04.271Z\", \"args\": [\"a\", \"it's\", true, false], \"n\": 12}, " +
+                    "\"message\": \"say \\\"hi\\\", {x} [y]\\n\\u0041😀'\"}",
+            "{\"empty\": {}, \"list\": [[], [null]]}");
+
+    // Returns a single character per read, such that every token spans buffer refills.
+    private static final class TrickleReader extends Reader {
+        private final String input;
+        private int position = 0;
+
+        TrickleReader(String input) {
+            this.input = input;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position == input.length()) {
+                return -1;
+            }
+            buffer[offset] = input.charAt(position++);
+            return 1;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static List<String> readAll(Reader input) throws IOException, ParseException {
+        List<String> documents = new ArrayList<>();
+        try (RawLogReader reader = new RawLogReader(input)) {
+            String document;
+            while ((document = reader.nextDocument()) != null) {
+                documents.add(document);
+            }
+        }
+        return documents;
+    }
+
+    @Test
+    public void testDocuments() throws Exception {
+        assertEquals(DOCUMENTS, readAll(new StringReader(INPUT)));
+        assertEquals(DOCUMENTS, readAll(new TrickleReader(INPUT)));
+        assertEquals(Collections.emptyList(), readAll(new StringReader("")));
+        assertEquals(Collections.emptyList(), readAll(new StringReader(" []\n")));
+    }
+
+    @Test
+    public void testUnterminatedString() throws Exception {
+        try (RawLogReader reader = new RawLogReader(new StringReader("[{'a': 1}, {'b': 'c"))) {
+            assertEquals("{\"a\": 1}", reader.nextDocument());
+            try {
+                reader.nextDocument();
+                fail("expected a ParseException");
+            } catch (ParseException e) {
+                assertEquals("{\"b\": \"c", e.getContext());
+            }
+            assertEquals(null, reader.nextDocument());
+        }
+    }
+}
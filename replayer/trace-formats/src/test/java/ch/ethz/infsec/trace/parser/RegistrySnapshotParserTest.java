@@ -0,0 +1,74 @@
+package ch.ethz.infsec.trace.parser;
+
+import ch.ethz.infsec.monitor.Fact;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RegistrySnapshotParserTest {
+    private static String snapshot(int subnetType, String secondMembers) {
+        return "{\n" +
+                "  \"_\": \"(binary-data)\",\n" +
+                "  \"node_record_n1\": {\"http\": {\"ip_addr\": \"2001:0DB8:0:0:0:0:0:1\", \"port\": 8080},\n" +
+                "    \"xnet\": {\"ip_addr\": \"::2\"}, \"p2p_flow_endpoints\": [{\"endpoint\": {\"ip_addr\": \"::3\"}}]},\n" +
+                "  \"node_record_n2\": {\"http\": {\"ip_addr\": \"1:0:0:1:0:0:1:1\"}},\n" +
+                "  \"node_record_n3\": {\"http\": {\"ip_addr\": \"2001:4d78:40d:0:50a7:1ff:fe3f:ce3f\"}},\n" +
+                "  \"subnet_list\": {\"subnets\": [\"(principal-id)s1\", \"(principal-id)s2\"]},\n" +
+                "  \"subnet_record_s1\": {\"membership\": [\"(principal-id)n1\", \"(principal-id)n2\"], \"subnet_type\": 2},\n" +
+                "  \"subnet_record_s2\": {\"subnet_type\": " + subnetType + ", \"membership\": [" + secondMembers + "]},\n" +
+                "  \"subnet_record_s3\": {\"subnet_type\": 4, \"membership\": [\"(principal-id)n1\"]}\n" +
+                "}\n";
+    }
+
+    private static List<Fact> parse(String input) throws ParseException {
+        RegistrySnapshotParser parser = new RegistrySnapshotParser();
+        List<Fact> sink = new ArrayList<>();
+        for (String line : input.split("\n")) {
+            parser.parseLine(sink::add, line);
+        }
+        assertTrue(sink.isEmpty());
+        parser.endOfInput(sink::add);
+        return sink;
+    }
+
+    @Test
+    public void testInitialState() throws Exception {
+        String input = snapshot(1, "\"(principal-id)n3\"");
+        List<Fact> expected = Arrays.asList(
+                Fact.make("originally_in_ic", 0L, "n1", "2001:db8::1"),
+                Fact.make("originally_in_ic", 0L, "n2", "1::1:0:0:1:1"),
+                Fact.make("originally_in_ic", 0L, "n3", "2001:4d78:40d:0:50a7:1ff:fe3f:ce3f"),
+                Fact.make("original_subnet_type", 0L, "s1", "System"),
+                Fact.make("originally_in_subnet", 0L, "n1", "2001:db8::1", "s1"),
+                Fact.make("originally_in_subnet", 0L, "n2", "1::1:0:0:1:1", "s1"),
+                Fact.make("original_subnet_type", 0L, "s2", "SecureApplication"),
+                Fact.make("originally_in_subnet", 0L, "n3", "2001:4d78:40d:0:50a7:1ff:fe3f:ce3f", "s2"),
+                Fact.terminator(0L));
+        assertEquals(expected, parse(input));
+        assertEquals(expected, parse(input.replace("\n", " ")));
+        assertEquals(expected, parse(input.replace(", ", ",\n").replace(": ", ":\n")));
+    }
+
+    private static void assertParseFailure(String input) {
+        try {
+            parse(input);
+            fail("expected a ParseException");
+        } catch (ParseException ignored) {
+        }
+    }
+
+    @Test
+    public void testParseFailure() {
+        assertParseFailure(snapshot(3, "\"(principal-id)n3\""));
+        assertParseFailure(snapshot(4, "\"(principal-id)n2\""));
+        assertParseFailure(snapshot(4, "\"(principal-id)n4\""));
+        assertParseFailure(snapshot(4, "\"(principal-id)n3\"").replace("\"::2\"}", "\"::2\""));
+        assertParseFailure(snapshot(4, "\"(principal-id)n3\"").replace("1:0:0:1:0:0:1:1", "10.0.0.1"));
+    }
+}
@@ -0,0 +1,35 @@
+package ch.ethz.infsec.trace.parser;
+
+import ch.ethz.infsec.monitor.CustomSignature;
+import ch.ethz.infsec.monitor.DataType;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SignatureDecoderTest {
+    @Test
+    public void testDecoders() {
+        LinkedHashMap<String, List<DataType>> signature = new LinkedHashMap<>();
+        signature.put("a", Collections.emptyList());
+        signature.put("f", Arrays.asList(DataType.STRING, DataType.INTEGRAL, DataType.FLOAT));
+        final SignatureDecoder decoder = new SignatureDecoder(new CustomSignature(signature));
+
+        assertNull(decoder.get("g"));
+
+        final SignatureDecoder.RelationDecoder f = decoder.get("f");
+        assertSame(f, decoder.get(new String("f")));
+        assertNull(decoder.get("g"));
+        assertSame(f, decoder.get("f"));
+        assertEquals("f", f.getLayout().getName());
+        assertEquals(3, f.getArity());
+        assertTrue(f.isString(0));
+        assertFalse(f.isString(1));
+        assertFalse(f.isString(2));
+        assertEquals("-12", f.decode(0, "(-12)", 1, 4));
+        assertEquals(-12L, f.decode(1, "(-12)", 1, 4));
+        assertEquals(-12.0, f.decode(2, "(-12)", 1, 4));
+        assertEquals(0, decoder.get("a").getArity());
+    }
+}
@@ -0,0 +1,74 @@
+package ch.ethz.infsec.trace.parser;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class TimestampDecoderTest {
+    private static void assertSameAsInstant(TimestampDecoder decoder, String text) {
+        assertEquals(text, Instant.parse(text).toEpochMilli(), decoder.parseMillis(text));
+    }
+
+    @Test
+    public void testFixedLayout() {
+        TimestampDecoder decoder = new TimestampDecoder();
+        assertEquals(1662395284271L, decoder.parseMillis("2022-09-05T16:28:04.271Z"));
+        assertEquals(1662395284271L, decoder.parseMillis("2022-09-05T16:28:04.271Z"));
+        assertSameAsInstant(decoder, "2022-09-05T16:59:59.999Z");
+        assertSameAsInstant(decoder, "2022-09-05T16:00:00Z");
+        assertSameAsInstant(decoder, "2022-09-05T16:00:00.5Z");
+        assertSameAsInstant(decoder, "2022-09-05T16:00:00.05Z");
+        assertSameAsInstant(decoder, "2022-09-05T16:00:00.123456789Z");
+        assertSameAsInstant(decoder, "2022-09-05T17:00:00.000Z");
+        assertSameAsInstant(decoder, "2022-09-05T16:28:04.271Z");
+        assertSameAsInstant(decoder, "1969-12-31T23:59:59.001Z");
+        assertSameAsInstant(decoder, "2016-02-29T00:00:00Z");
+    }
+
+    @Test
+    public void testRandomInstants() {
+        TimestampDecoder decoder = new TimestampDecoder();
+        Random random = new Random(271828);
+        long millis = 1600000000000L;
+        for (int i = 0; i < 10000; ++i) {
+            millis += random.nextInt(random.nextBoolean() ? 1000 : 10_000_000);
+            Instant instant = Instant.ofEpochMilli(millis).plusNanos(random.nextInt(1_000_000));
+            assertSameAsInstant(decoder, instant.toString());
+        }
+    }
+
+    @Test
+    public void testOtherLayouts() {
+        TimestampDecoder decoder = new TimestampDecoder();
+        assertSameAsInstant(decoder, "2022-09-05t16:28:04.271z");
+        assertSameAsInstant(decoder, "+12022-09-05T16:28:04.271Z");
+        assertSameAsInstant(decoder, "2016-12-31T23:59:60Z");
+        assertSameAsInstant(decoder, "2022-09-05T16:28:04.Z");
+    }
+
+    private static void assertParseFailure(TimestampDecoder decoder, String text) {
+        try {
+            decoder.parseMillis(text);
+            fail("expected a DateTimeParseException");
+        } catch (DateTimeParseException ignored) {
+        }
+    }
+
+    @Test
+    public void testParseFailure() {
+        TimestampDecoder decoder = new TimestampDecoder();
+        decoder.parseMillis("2022-02-28T16:28:04.271Z");
+        assertParseFailure(decoder, "2022-02-30T16:28:04.271Z");
+        assertParseFailure(decoder, "2022-02-28T16:28:04.2710000000Z");
+        assertParseFailure(decoder, "2022-02-28T16:28:04.27x1Z");
+        assertParseFailure(decoder, "2022-02-28T16:61:04.271Z");
+        assertParseFailure(decoder, "2022-02-28T16:28:04.271");
+        assertParseFailure(decoder, "2022-02-28 16:28:04.271Z");
+        assertParseFailure(decoder, "");
+    }
+}
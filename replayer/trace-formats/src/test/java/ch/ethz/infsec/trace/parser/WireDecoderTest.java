@@ -0,0 +1,133 @@
+package ch.ethz.infsec.trace.parser;
+
+import ch.ethz.infsec.monitor.Fact;
+import ch.ethz.infsec.monitor.FactBatch;
+import ch.ethz.infsec.trace.formatter.WireEncoder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class WireDecoderTest {
+    private ArrayList<Object> sink;
+    private WireDecoder.Sink decoderSink;
+
+    @Before
+    public void setUp() {
+        sink = new ArrayList<>();
+        decoderSink = new WireDecoder.Sink() {
+            @Override
+            public void acceptBatch(FactBatch batch) {
+                sink.add(batch);
+            }
+
+            @Override
+            public void acceptMeta(Fact fact) {
+                sink.add(fact);
+            }
+
+            @Override
+            public void acceptText(String text) {
+                sink.add(text);
+            }
+        };
+    }
+
+    private static FactBatch batch(long timestamp, long timepoint, Fact... facts) {
+        FactBatch batch = new FactBatch(timestamp, timepoint);
+        for (Fact fact : facts) {
+            batch.add(fact);
+        }
+        return batch;
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        final List<Object> expected = Arrays.asList(
+                batch(1000L, 0L,
+                        Fact.make("a", 1000L, "node-1", 42L, 1.5),
+                        Fact.make("b", 1000L),
+                        Fact.make("a", 1000L, "node-1", -7L, -0.0),
+                        Fact.make("c", 1000L, 3, "ä€")),
+                batch(999L, 1L),
+                Fact.meta("set_slicer", "node-1", 5L),
+                ">cmd<\n",
+                batch(Long.MAX_VALUE, 2L, Fact.make("a", Long.MAX_VALUE, "node-2", Long.MIN_VALUE, 0.25)));
+
+        final WireEncoder encoder = new WireEncoder();
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final List<byte[]> records = new ArrayList<>();
+        for (Object item : expected) {
+            int length;
+            if (item instanceof FactBatch) {
+                length = encoder.encodeBatch((FactBatch) item);
+            } else if (item instanceof Fact) {
+                length = encoder.encodeMeta((Fact) item);
+            } else {
+                length = encoder.encodeText((String) item);
+            }
+            stream.write(encoder.getBuffer(), 0, length);
+            records.add(Arrays.copyOf(encoder.getBuffer(), length));
+        }
+
+        final WireDecoder decoder = new WireDecoder();
+        final ByteArrayInputStream input = new ByteArrayInputStream(stream.toByteArray());
+        while (decoder.readFrame(input, decoderSink)) {
+        }
+        assertEquals(expected, sink);
+        final FactBatch first = (FactBatch) sink.get(0);
+        assertEquals(Arrays.asList("a", "b", "c"),
+                Arrays.asList(first.getRelationName(0), first.getRelationName(1), first.getRelationName(2)));
+        assertEquals(2L, ((FactBatch) sink.get(4)).getTimepoint());
+
+        sink.clear();
+        final WireDecoder recordDecoder = new WireDecoder();
+        for (byte[] record : records) {
+            recordDecoder.decodeFrame(record, 0, record.length, decoderSink);
+        }
+        assertEquals(expected, sink);
+    }
+
+    @Test
+    public void testDictionary() throws Exception {
+        final WireEncoder encoder = new WireEncoder();
+        final FactBatch batch = batch(1L, 0L, Fact.make("relation", 1L, "some long value"));
+        final int firstLength = encoder.encodeBatch(batch);
+        final byte[] first = Arrays.copyOf(encoder.getBuffer(), firstLength);
+        final int secondLength = encoder.encodeBatch(batch(1L, 0L, Fact.make("relation", 1L, "some long value")));
+        assertTrue(secondLength < firstLength - 20);
+
+        final WireDecoder decoder = new WireDecoder();
+        decoder.decodeFrame(first, 0, first.length, decoderSink);
+        decoder.decodeFrame(encoder.getBuffer(), 0, secondLength, decoderSink);
+        assertEquals(Arrays.asList(batch, batch), sink);
+    }
+
+    private void assertDecodeFailure(byte[] frame) {
+        try {
+            new WireDecoder().decodeFrame(frame, 0, frame.length, decoderSink);
+            fail("expected a ParseException");
+        } catch (ParseException ignored) {
+        }
+        assertTrue(sink.isEmpty());
+    }
+
+    @Test
+    public void testMalformedFrames() {
+        final WireEncoder encoder = new WireEncoder();
+        final int length = encoder.encodeBatch(batch(5L, 0L, Fact.make("a", 5L, "x", 1L)));
+        final byte[] frame = Arrays.copyOf(encoder.getBuffer(), length);
+
+        assertDecodeFailure(Arrays.copyOf(frame, length - 1));
+        final byte[] truncated = Arrays.copyOf(frame, length - 1);
+        truncated[3] -= 1;
+        assertDecodeFailure(truncated);
+        assertDecodeFailure(new byte[]{0, 0, 0, 1, 42});
+        // A reference to a dictionary entry that has not been sent.
+        assertDecodeFailure(new byte[]{0, 0, 0, 6, WireEncoder.BATCH_FRAME, 0, 0, 1, WireEncoder.STRING_REFERENCE_TYPE, 0});
+    }
+}